@@ -12,6 +12,7 @@ import java.util.logging.Level;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import com.poissonnerie.controller.ClientController;
+import com.poissonnerie.controller.UserActionController;
 import java.util.concurrent.*;
 
 public class Main {
@@ -133,6 +134,7 @@ public class Main {
         splash.setProgress(60, "Chargement des données...");
         LOGGER.info("Début du chargement des données initiales");
         // Removed automatic test client creation
+        UserActionController.getInstance().planifierRetention();
         LOGGER.info("Données initiales chargées avec succès");
     }
 
@@ -201,6 +203,7 @@ public class Main {
             public void windowClosing(WindowEvent e) {
                 try {
                     DatabaseManager.checkDatabaseHealth();
+                    DatabaseManager.shutdown();
                     mainFrame.dispose();
                     System.exit(0);
                 } catch (Exception ex) {
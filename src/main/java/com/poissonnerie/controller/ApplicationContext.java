@@ -0,0 +1,108 @@
+package com.poissonnerie.controller;
+
+import java.util.logging.Logger;
+
+// Contexte applicatif : une seule instance de chaque contrôleur, créée à la première
+// demande et partagée par tous les écrans (et par ReportController).
+public class ApplicationContext {
+    private static final Logger LOGGER = Logger.getLogger(ApplicationContext.class.getName());
+    private static volatile ApplicationContext instance;
+
+    private VenteController venteController;
+    private ProduitController produitController;
+    private ClientController clientController;
+    private CaisseController caisseController;
+    private FournisseurController fournisseurController;
+    private ConfigurationController configurationController;
+    private ReportController reportController;
+    private TableauDeBordController tableauDeBordController;
+    private FileRapports fileRapports;
+    private SpoolerImpression spoolerImpression;
+
+    private ApplicationContext() {
+        LOGGER.fine("Contexte applicatif créé");
+    }
+
+    public static ApplicationContext getInstance() {
+        if (instance == null) {
+            synchronized (ApplicationContext.class) {
+                if (instance == null) {
+                    instance = new ApplicationContext();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public synchronized VenteController getVenteController() {
+        if (venteController == null) {
+            venteController = new VenteController();
+        }
+        return venteController;
+    }
+
+    public synchronized ProduitController getProduitController() {
+        if (produitController == null) {
+            produitController = new ProduitController();
+        }
+        return produitController;
+    }
+
+    public synchronized ClientController getClientController() {
+        if (clientController == null) {
+            clientController = new ClientController();
+        }
+        return clientController;
+    }
+
+    public synchronized CaisseController getCaisseController() {
+        if (caisseController == null) {
+            caisseController = new CaisseController();
+        }
+        return caisseController;
+    }
+
+    public synchronized FournisseurController getFournisseurController() {
+        if (fournisseurController == null) {
+            fournisseurController = new FournisseurController();
+        }
+        return fournisseurController;
+    }
+
+    public synchronized ConfigurationController getConfigurationController() {
+        if (configurationController == null) {
+            configurationController = new ConfigurationController();
+        }
+        return configurationController;
+    }
+
+    public synchronized ReportController getReportController() {
+        if (reportController == null) {
+            reportController = new ReportController();
+        }
+        return reportController;
+    }
+
+    public synchronized TableauDeBordController getTableauDeBordController() {
+        if (tableauDeBordController == null) {
+            tableauDeBordController = new TableauDeBordController();
+            tableauDeBordController.demarrerVerification();
+        }
+        return tableauDeBordController;
+    }
+
+    public synchronized FileRapports getFileRapports() {
+        if (fileRapports == null) {
+            fileRapports = new FileRapports();
+        }
+        return fileRapports;
+    }
+
+    public synchronized SpoolerImpression getSpoolerImpression() {
+        if (spoolerImpression == null) {
+            spoolerImpression = new SpoolerImpression();
+            spoolerImpression.demarrer();
+        }
+        return spoolerImpression;
+    }
+}
@@ -1,6 +1,7 @@
 package com.poissonnerie.controller;
 
 import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.TransactionTemplate;
 import java.sql.*;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -40,57 +41,35 @@ public class AuthenticationController {
     }
 
     private void setupDatabase() throws SQLException {
-        createSchema();
+        // Le schéma (table users comprise) est créé par les migrations
         createAdminUser();
     }
 
-    private void createSchema() throws SQLException {
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-            try (Statement stmt = conn.createStatement()) {
-                // Create users table only if it doesn't exist
-                stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "username TEXT NOT NULL UNIQUE, " +
-                    "password TEXT NOT NULL, " +
-                    "active BOOLEAN DEFAULT true, " +
-                    "created_at INTEGER NOT NULL DEFAULT (strftime('%s','now') * 1000), " +
-                    "last_login INTEGER, " +
-                    "force_password_reset BOOLEAN DEFAULT false)");
-
-                conn.commit();
-                LOGGER.info("Database schema created successfully");
-            } catch (SQLException e) {
-                LOGGER.log(Level.SEVERE, "Error creating schema", e);
-                conn.rollback();
-                throw e;
-            }
+    public void createAdminUser() throws SQLException {
+        if (adminExiste()) {
+            LOGGER.info("Admin user already exists");
+            return;
         }
-    }
 
-    public void createAdminUser() throws SQLException {
-        Connection conn = null;
-        int retries = 3;
-        while (retries > 0) {
-            try {
-                conn = DatabaseManager.getConnection();
-                conn.setAutoCommit(false);
+        // Hachage hors transaction : bcrypt est lent et ne doit pas retenir le verrou d'écriture
+        String hashedPassword = BCrypt.hashpw(DEFAULT_ADMIN_PASSWORD, BCrypt.gensalt(10));
+        try {
+            TransactionTemplate.execute(conn -> {
                 // Check if admin user exists
                 try (PreparedStatement checkStmt = conn.prepareStatement(
                     "SELECT COUNT(*) FROM users WHERE username = ?")) {
                     checkStmt.setString(1, "admin");
-                    ResultSet rs = checkStmt.executeQuery();
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        LOGGER.info("Admin user already exists");
-                        return;
+                    try (ResultSet rs = checkStmt.executeQuery()) {
+                        if (rs.next() && rs.getInt(1) > 0) {
+                            LOGGER.info("Admin user already exists");
+                            return null;
+                        }
                     }
                 }
 
                 // Create admin user if doesn't exist
-                String hashedPassword = BCrypt.hashpw(DEFAULT_ADMIN_PASSWORD, BCrypt.gensalt(10));
                 try (PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT INTO users (username, password, active) VALUES (?, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS)) {
+                    "INSERT INTO users (username, password, active) VALUES (?, ?, ?)")) {
                     stmt.setString(1, "admin");
                     stmt.setString(2, hashedPassword);
                     stmt.setBoolean(3, true);
@@ -98,28 +77,21 @@ public class AuthenticationController {
 
                     LOGGER.info("Created admin user");
                 }
-
-                conn.commit();
-            } catch (SQLException e) {
-                LOGGER.log(Level.SEVERE, "Error creating admin user", e);
-                if (conn != null) {
-                    conn.rollback();
-                }
-                retries--; // Decrement retries on error
-            } finally {
-                if (conn != null) {
-                    try {
-                        conn.close();
-                    } catch (SQLException e) {
-                        LOGGER.log(Level.SEVERE, "Error closing connection", e);
-                    }
-                }
-            }
+                return null;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error creating admin user", e);
+            throw e;
         }
-        if (retries == 0) {
-            LOGGER.severe("Failed to create admin user after multiple retries.");
-            throw new SQLException("Failed to create admin user after multiple retries.");
+    }
 
+    private boolean adminExiste() throws SQLException {
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM users WHERE username = ?")) {
+            stmt.setString(1, "admin");
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
         }
     }
 
@@ -129,7 +101,7 @@ public class AuthenticationController {
             return false;
         }
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT id, password, active FROM users WHERE username = ?")) {
 
@@ -166,19 +138,22 @@ public class AuthenticationController {
     }
 
     private void updateLastLogin(int userId) {
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "UPDATE users SET last_login = ? WHERE id = ?")) {
-            stmt.setLong(1, Instant.now().toEpochMilli());
-            stmt.setInt(2, userId);
-            stmt.executeUpdate();
+        try {
+            TransactionTemplate.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE users SET last_login = ? WHERE id = ?")) {
+                    stmt.setLong(1, Instant.now().toEpochMilli());
+                    stmt.setInt(2, userId);
+                    return stmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             LOGGER.log(Level.WARNING, "Erreur lors de la mise à jour de la dernière connexion", e);
         }
     }
 
     public Set<Role> getUserRoles(String username) {
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT id FROM users WHERE username = ?")) {
             stmt.setString(1, username);
@@ -200,7 +175,7 @@ public class AuthenticationController {
     }
 
     public boolean isUserActive(String username) {
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT active FROM users WHERE username = ?")) {
             stmt.setString(1, username);
@@ -1,8 +1,11 @@
 package com.poissonnerie.controller;
 
+import com.poissonnerie.model.Evenements;
 import com.poissonnerie.model.MouvementCaisse;
 import com.poissonnerie.model.UserAction;
 import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.EventBus;
+import com.poissonnerie.util.TransactionTemplate;
 
 import java.sql.*;
 import java.time.LocalDateTime;
@@ -16,10 +19,18 @@ import java.util.logging.Level;
 public class CaisseController {
     private static final Logger LOGGER = Logger.getLogger(CaisseController.class.getName());
     private final List<MouvementCaisse> mouvements = new ArrayList<>();
-    private double soldeCaisse = 0.0;
+    // Mis à jour aussi par le thread d'abonnement aux règlements de créance
+    private volatile double soldeCaisse = 0.0;
     private final UserActionController userActionController = UserActionController.getInstance();
 
-    public List<MouvementCaisse> getMouvements() {
+    public CaisseController() {
+        // Un règlement de créance crée un mouvement de caisse : il est ajouté à la liste par un
+        // thread dédié, sans retarder l'éditeur
+        EventBus.getInstance().abonner(Evenements.CreanceReglee.class, EventBus.executeurDedie("poissonnerie-caisse-evenements"),
+            reglements -> reglements.forEach(r -> enregistrerMouvementExterne(r.getMouvement())));
+    }
+
+    public synchronized List<MouvementCaisse> getMouvements() {
         return new ArrayList<>(mouvements);
     }
 
@@ -27,7 +38,7 @@ public class CaisseController {
         return soldeCaisse;
     }
 
-    public boolean isCaisseOuverte() {
+    public synchronized boolean isCaisseOuverte() {
         if (mouvements.isEmpty()) {
             return false;
         }
@@ -39,13 +50,13 @@ public class CaisseController {
             .orElse(false);
     }
 
-    public void chargerMouvements() {
+    public synchronized void chargerMouvements() {
         mouvements.clear();
         soldeCaisse = 0.0;
         String sql = "SELECT * FROM mouvements_caisse ORDER BY date DESC";
         LOGGER.info("Chargement des mouvements de caisse...");
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -98,55 +109,68 @@ public class CaisseController {
         String sql = "INSERT INTO mouvements_caisse (date, type, montant, description, user_id) VALUES (datetime('now', 'localtime'), ?, ?, ?, ?)";
         String getIdSql = "SELECT last_insert_rowid() as id";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, mouvement.getType().getValue());
-                pstmt.setDouble(2, mouvement.getMontant());
-                pstmt.setString(3, mouvement.getDescription());
-                if (mouvement.getUserId() != null) {
-                    pstmt.setInt(4, mouvement.getUserId());
-                } else {
-                    pstmt.setNull(4, Types.INTEGER);
+        try {
+            TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, mouvement.getType().getValue());
+                    pstmt.setDouble(2, mouvement.getMontant());
+                    pstmt.setString(3, mouvement.getDescription());
+                    if (mouvement.getUserId() != null) {
+                        pstmt.setInt(4, mouvement.getUserId());
+                    } else {
+                        pstmt.setNull(4, Types.INTEGER);
+                    }
+                    pstmt.executeUpdate();
                 }
-                pstmt.executeUpdate();
 
                 try (Statement stmt = conn.createStatement();
                      ResultSet rs = stmt.executeQuery(getIdSql)) {
-                    if (rs.next()) {
-                        mouvement.setId(rs.getInt("id"));
-                        mouvements.add(0, mouvement);
-                        updateSoldeAndState(mouvement);
-
-                        UserAction action = new UserAction(
-                            UserAction.ActionType.CREATION,
-                            "", // Sera défini par UserActionController
-                            String.format("Mouvement de caisse %s : %.2f€ - %s",
-                                mouvement.getType().getValue(),
-                                mouvement.getMontant(),
-                                mouvement.getDescription()),
-                            UserAction.EntityType.CAISSE,
-                            mouvement.getId()
-                        );
-                        action.setUserId(mouvement.getUserId());
-                        userActionController.logAction(action);
+                    if (!rs.next()) {
+                        throw new SQLException("Impossible de récupérer l'ID du mouvement");
                     }
+                    mouvement.setId(rs.getInt("id"));
                 }
-                conn.commit();
-                LOGGER.info(String.format("Mouvement de caisse ajouté avec succès: %s", mouvement));
-                LOGGER.info(String.format("Nouvel état de la caisse - Solde: %.2f€, Ouverte: %b", soldeCaisse, isCaisseOuverte()));
-            } catch (SQLException e) {
-                conn.rollback();
-                LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout du mouvement", e);
-                throw e;
+                return mouvement.getId();
+            });
+
+            // Journalisé une fois le mouvement validé : ni entrée pour une transaction
+            // annulée, ni doublon quand la transaction est rejouée
+            UserAction action = new UserAction(
+                UserAction.ActionType.CREATION,
+                "", // Sera défini par UserActionController
+                String.format("Mouvement de caisse %s : %.2f€ - %s",
+                    mouvement.getType().getValue(),
+                    mouvement.getMontant(),
+                    mouvement.getDescription()),
+                UserAction.EntityType.CAISSE,
+                mouvement.getId()
+            );
+            action.setUserId(mouvement.getUserId());
+            userActionController.logAction(action);
+
+            synchronized (this) {
+                mouvements.add(0, mouvement);
+                updateSoldeAndState(mouvement);
             }
+            EventBus.getInstance().publier(new Evenements.MouvementCaisseAjoute(mouvement));
+            LOGGER.info(String.format("Mouvement de caisse ajouté avec succès: %s", mouvement));
+            LOGGER.info(String.format("Nouvel état de la caisse - Solde: %.2f€, Ouverte: %b", soldeCaisse, isCaisseOuverte()));
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur fatale lors de l'ajout du mouvement", e);
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout du mouvement", e);
             throw new RuntimeException("Erreur lors de l'ajout du mouvement", e);
         }
     }
 
-    public String exporterMouvementsCSV(LocalDateTime debut, LocalDateTime fin) {
+    // Mouvement déjà validé en base par un autre contrôleur
+    private void enregistrerMouvementExterne(MouvementCaisse mouvement) {
+        synchronized (this) {
+            mouvements.add(0, mouvement);
+            updateSoldeAndState(mouvement);
+        }
+        EventBus.getInstance().publier(new Evenements.MouvementCaisseAjoute(mouvement));
+    }
+
+    public synchronized String exporterMouvementsCSV(LocalDateTime debut, LocalDateTime fin) {
         StringBuilder csv = new StringBuilder();
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
@@ -165,13 +189,32 @@ public class CaisseController {
         return csv.toString();
     }
 
-    public List<MouvementCaisse> getMouvementsDuJour(LocalDateTime date) {
+    // Somme des mouvements d'un type sur la période (bornes incluses), calculée en base
+    // sur l'index des dates : indépendante des mouvements chargés en mémoire
+    public double totalMouvements(MouvementCaisse.TypeMouvement type, LocalDateTime debut, LocalDateTime fin) {
+        String sql = "SELECT COALESCE(SUM(montant), 0) FROM mouvements_caisse WHERE type = ? AND date BETWEEN ? AND ?";
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, type.getValue());
+            stmt.setString(2, debut == null ? "0000-01-01 00:00:00" : debut.format(format));
+            stmt.setString(3, fin == null ? "9999-12-31 23:59:59" : fin.format(format));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0.0;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du calcul du total des mouvements", e);
+            throw new RuntimeException("Erreur lors du calcul du total des mouvements: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized List<MouvementCaisse> getMouvementsDuJour(LocalDateTime date) {
         return mouvements.stream()
             .filter(m -> m.getDate().toLocalDate().equals(date.toLocalDate()))
             .collect(Collectors.toList());
     }
 
-    public List<MouvementCaisse> rechercherMouvementsParDate(LocalDateTime dateDebut, LocalDateTime dateFin) {
+    public synchronized List<MouvementCaisse> rechercherMouvementsParDate(LocalDateTime dateDebut, LocalDateTime dateFin) {
         return mouvements.stream()
             .filter(m -> !m.getDate().isBefore(dateDebut.toLocalDate().atStartOfDay()) &&
                         !m.getDate().isAfter(dateFin.toLocalDate().atTime(23, 59, 59)))
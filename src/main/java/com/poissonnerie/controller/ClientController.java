@@ -1,9 +1,14 @@
 package com.poissonnerie.controller;
 
 import com.poissonnerie.model.Client;
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.model.MouvementCaisse;
 import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.EventBus;
+import com.poissonnerie.util.TransactionTemplate;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -23,19 +28,27 @@ public class ClientController {
         LOGGER.setLevel(Level.ALL);
     }
 
-    public List<Client> getClients() {
+    public synchronized List<Client> getClients() {
         if (clients.isEmpty()) {
             chargerClients();
         }
         return new ArrayList<>(clients);
     }
 
-    public void chargerClients() {
+    public synchronized void chargerClients() {
         LOGGER.info("Chargement des clients...");
         clients.clear();
+        clients.addAll(lireClients());
+        LOGGER.info("Clients chargés avec succès: " + clients.size() + " clients");
+    }
+
+    // Clients lus en base, sans toucher à la liste en mémoire : le résultat reflète la
+    // connexion de lecture courante (celle d'un InstantaneLecture pour un lot de rapports)
+    public List<Client> lireClients() {
         String sql = "SELECT id, nom, telephone, adresse, solde FROM clients ORDER BY nom";
+        List<Client> lus = new ArrayList<>();
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
@@ -47,11 +60,10 @@ public class ClientController {
                     rs.getString("adresse"),
                     rs.getDouble("solde")
                 );
-                clients.add(client);
+                lus.add(client);
                 LOGGER.fine("Client chargé: ID=" + client.getId() + ", Nom=" + client.getNom());
             }
-
-            LOGGER.info("Clients chargés avec succès: " + clients.size() + " clients");
+            return lus;
 
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors du chargement des clients", e);
@@ -93,38 +105,35 @@ public class ClientController {
 
         String sql = "INSERT INTO clients (nom, telephone, adresse, solde) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, sanitizeInput(client.getNom()));
-                pstmt.setString(2, sanitizeInput(client.getTelephone()));
-                pstmt.setString(3, sanitizeInput(client.getAdresse()));
-                pstmt.setDouble(4, client.getSolde());
-
-                int rows = pstmt.executeUpdate();
-                if (rows == 0) {
-                    throw new SQLException("L'ajout du client a échoué");
-                }
+        try {
+            int id = TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setString(1, sanitizeInput(client.getNom()));
+                    pstmt.setString(2, sanitizeInput(client.getTelephone()));
+                    pstmt.setString(3, sanitizeInput(client.getAdresse()));
+                    pstmt.setDouble(4, client.getSolde());
+
+                    int rows = pstmt.executeUpdate();
+                    if (rows == 0) {
+                        throw new SQLException("L'ajout du client a échoué");
+                    }
 
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        client.setId(rs.getInt(1));
-                        clients.add(client);
-                        conn.commit();
-                        LOGGER.info("Client ajouté avec succès, ID: " + client.getId());
-                    } else {
-                        throw new SQLException("Impossible d'obtenir l'ID du client");
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (!rs.next()) {
+                            throw new SQLException("Impossible d'obtenir l'ID du client");
+                        }
+                        return rs.getInt(1);
                     }
                 }
-            } catch (SQLException e) {
-                conn.rollback();
-                LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout du client", e);
-                throw new RuntimeException("Erreur lors de l'ajout du client: " + e.getMessage(), e);
-            }
+            });
+
+            client.setId(id);
+            clients.add(client);
+            EventBus.getInstance().publier(new Evenements.ClientModifie(client));
+            LOGGER.info("Client ajouté avec succès, ID: " + client.getId());
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur de connexion lors de l'ajout du client", e);
-            throw new RuntimeException("Erreur de connexion lors de l'ajout du client: " + e.getMessage(), e);
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'ajout du client", e);
+            throw new RuntimeException("Erreur lors de l'ajout du client: " + e.getMessage(), e);
         }
     }
 
@@ -134,35 +143,31 @@ public class ClientController {
 
         String sql = "UPDATE clients SET nom = ?, telephone = ?, adresse = ? WHERE id = ? AND solde >= 0";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, sanitizeInput(client.getNom()));
-                pstmt.setString(2, sanitizeInput(client.getTelephone()));
-                pstmt.setString(3, sanitizeInput(client.getAdresse()));
-                pstmt.setInt(4, client.getId());
+        try {
+            TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, sanitizeInput(client.getNom()));
+                    pstmt.setString(2, sanitizeInput(client.getTelephone()));
+                    pstmt.setString(3, sanitizeInput(client.getAdresse()));
+                    pstmt.setInt(4, client.getId());
 
-                int rowsUpdated = pstmt.executeUpdate();
-                if (rowsUpdated == 0) {
-                    throw new IllegalStateException("Client non trouvé ou mise à jour impossible: " + client.getId());
-                }
-
-                int index = clients.indexOf(client);
-                if (index != -1) {
-                    clients.set(index, client);
+                    int rowsUpdated = pstmt.executeUpdate();
+                    if (rowsUpdated == 0) {
+                        throw new IllegalStateException("Client non trouvé ou mise à jour impossible: " + client.getId());
+                    }
+                    return null;
                 }
+            });
 
-                conn.commit();
-                LOGGER.info("Client mis à jour avec succès, ID: " + client.getId());
-            } catch (SQLException e) {
-                conn.rollback();
-                LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour du client", e);
-                throw new RuntimeException("Erreur lors de la mise à jour du client: " + e.getMessage(), e);
+            int index = clients.indexOf(client);
+            if (index != -1) {
+                clients.set(index, client);
             }
+            EventBus.getInstance().publier(new Evenements.ClientModifie(client));
+            LOGGER.info("Client mis à jour avec succès, ID: " + client.getId());
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur de connexion lors de la mise à jour du client", e);
-            throw new RuntimeException("Erreur de connexion lors de la mise à jour du client: " + e.getMessage(), e);
+            LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour du client", e);
+            throw new RuntimeException("Erreur lors de la mise à jour du client: " + e.getMessage(), e);
         }
     }
 
@@ -177,43 +182,39 @@ public class ClientController {
         String checkVentesSql = "SELECT COUNT(*) FROM ventes WHERE client_id = ?";
         String deleteClientSql = "DELETE FROM clients WHERE id = ? AND solde = 0";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
+        try {
+            TransactionTemplate.execute(conn -> {
                 // Vérifier les ventes
                 try (PreparedStatement checkStmt = conn.prepareStatement(checkVentesSql)) {
                     checkStmt.setInt(1, client.getId());
-                    ResultSet rs = checkStmt.executeQuery();
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        throw new IllegalStateException("Impossible de supprimer le client car il a des ventes associées");
+                    try (ResultSet rs = checkStmt.executeQuery()) {
+                        if (rs.next() && rs.getInt(1) > 0) {
+                            throw new IllegalStateException("Impossible de supprimer le client car il a des ventes associées");
+                        }
                     }
                 }
 
                 // Supprimer le client
                 try (PreparedStatement deleteStmt = conn.prepareStatement(deleteClientSql)) {
                     deleteStmt.setInt(1, client.getId());
-                    int rowsDeleted = deleteStmt.executeUpdate();
-
-                    if (rowsDeleted == 0) {
+                    if (deleteStmt.executeUpdate() == 0) {
                         throw new IllegalStateException("Client non trouvé ou solde non nul");
                     }
-
-                    clients.remove(client);
-                    conn.commit();
-                    LOGGER.info("Client supprimé avec succès, ID: " + client.getId());
                 }
-            } catch (SQLException | IllegalStateException e) {
-                conn.rollback();
-                LOGGER.log(Level.SEVERE, "Erreur lors de la suppression du client", e);
-                throw new RuntimeException("Erreur lors de la suppression du client: " + e.getMessage(), e);
-            }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur de connexion lors de la suppression du client", e);
-            throw new RuntimeException("Erreur de connexion lors de la suppression du client: " + e.getMessage(), e);
+                return null;
+            });
+
+            clients.remove(client);
+            EventBus.getInstance().publier(new Evenements.ClientModifie(client));
+            LOGGER.info("Client supprimé avec succès, ID: " + client.getId());
+        } catch (SQLException | IllegalStateException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la suppression du client", e);
+            throw new RuntimeException("Erreur lors de la suppression du client: " + e.getMessage(), e);
         }
     }
 
-    public void reglerCreance(Client client, double montant) {
+    // Retourne l'identifiant du mouvement de caisse, qui identifie le règlement
+    public int reglerCreance(Client client, double montant) {
         if (client == null || client.getId() <= 0) {
             throw new IllegalArgumentException("Client invalide");
         }
@@ -230,9 +231,9 @@ public class ClientController {
         String insertReglementSql = "INSERT INTO reglements_clients (client_id, montant, type_paiement, commentaire) VALUES (?, ?, ?, ?)";
         String insertMouvementSql = "INSERT INTO mouvements_caisse (type, montant, description) VALUES (?, ?, ?)";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
+        String description = "Règlement créance - Client: " + sanitizeInput(client.getNom());
+        try {
+            int mouvementId = TransactionTemplate.execute(conn -> {
                 // Mise à jour du solde client
                 try (PreparedStatement updateStmt = conn.prepareStatement(updateClientSql)) {
                     updateStmt.setDouble(1, montant);
@@ -243,37 +244,41 @@ public class ClientController {
                     if (rowsUpdated == 0) {
                         throw new IllegalStateException("Impossible de mettre à jour le solde du client");
                     }
+                }
 
-                    // Enregistrement du règlement client
-                    try (PreparedStatement reglementStmt = conn.prepareStatement(insertReglementSql)) {
-                        reglementStmt.setInt(1, client.getId());
-                        reglementStmt.setDouble(2, montant);
-                        reglementStmt.setString(3, "ESPECES"); // Par défaut en espèces
-                        reglementStmt.setString(4, "Règlement de créance");
-                        reglementStmt.executeUpdate();
-                    }
-
-                    // Enregistrement du mouvement de caisse
-                    try (PreparedStatement insertStmt = conn.prepareStatement(insertMouvementSql)) {
-                        insertStmt.setString(1, "ENTREE");
-                        insertStmt.setDouble(2, montant);
-                        insertStmt.setString(3, "Règlement créance - Client: " + sanitizeInput(client.getNom()));
-                        insertStmt.executeUpdate();
-                    }
+                // Enregistrement du règlement client
+                try (PreparedStatement reglementStmt = conn.prepareStatement(insertReglementSql)) {
+                    reglementStmt.setInt(1, client.getId());
+                    reglementStmt.setDouble(2, montant);
+                    reglementStmt.setString(3, "ESPECES"); // Par défaut en espèces
+                    reglementStmt.setString(4, "Règlement de créance");
+                    reglementStmt.executeUpdate();
+                }
 
-                    client.setSolde(client.getSolde() - montant);
-                    conn.commit();
-                    LOGGER.info("Créance réglée avec succès pour le client " + client.getNom() +
-                            " - Montant: " + montant + "€");
+                // Enregistrement du mouvement de caisse
+                try (PreparedStatement insertStmt = conn.prepareStatement(insertMouvementSql)) {
+                    insertStmt.setString(1, "ENTREE");
+                    insertStmt.setDouble(2, montant);
+                    insertStmt.setString(3, description);
+                    insertStmt.executeUpdate();
                 }
-            } catch (SQLException e) {
-                conn.rollback();
-                LOGGER.log(Level.SEVERE, "Erreur lors du règlement de la créance", e);
-                throw new RuntimeException("Erreur lors du règlement de la créance: " + e.getMessage(), e);
-            }
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+
+            client.setSolde(client.getSolde() - montant);
+            // Le mouvement de caisse est repris par CaisseController sans relecture de la base
+            MouvementCaisse mouvement = new MouvementCaisse(mouvementId, LocalDateTime.now(),
+                MouvementCaisse.TypeMouvement.ENTREE, montant, description);
+            EventBus.getInstance().publier(new Evenements.CreanceReglee(client, montant, client.getSolde(), mouvement));
+            LOGGER.info("Créance réglée avec succès pour le client " + client.getNom() +
+                    " - Montant: " + montant + "€");
+            return mouvementId;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur de connexion lors du règlement de la créance", e);
-            throw new RuntimeException("Erreur de connexion lors du règlement de la créance: " + e.getMessage(), e);
+            LOGGER.log(Level.SEVERE, "Erreur lors du règlement de la créance", e);
+            throw new RuntimeException("Erreur lors du règlement de la créance: " + e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
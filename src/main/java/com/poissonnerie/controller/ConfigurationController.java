@@ -2,6 +2,7 @@ package com.poissonnerie.controller;
 
 import com.poissonnerie.model.ConfigurationParam;
 import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.TransactionTemplate;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,7 +24,6 @@ public class ConfigurationController {
     private static final Logger LOGGER = Logger.getLogger(ConfigurationController.class.getName());
     private final List<ConfigurationParam> configurations = new ArrayList<>();
     private final Map<String, String> configCache = new HashMap<>();
-    private static final int MAX_RETRIES = 3;
     private static final Pattern SAFE_KEY_PATTERN = Pattern.compile("^[A-Z_]{1,50}$");
     private static final SecureRandom secureRandom = new SecureRandom();
     private boolean isLoading = false;
@@ -52,7 +52,7 @@ public class ConfigurationController {
         configurations.clear();
         configCache.clear();
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement("SELECT * FROM configurations ORDER BY cle")) {
 
             ResultSet rs = stmt.executeQuery();
@@ -89,12 +89,14 @@ public class ConfigurationController {
         String sql = "UPDATE configurations SET valeur = ? WHERE cle = ?";
         LOGGER.info("Mise à jour de la configuration: " + config.getCle());
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, sanitizeInput(config.getValeur()));
-            pstmt.setString(2, sanitizeInput(config.getCle()));
-            int rowsUpdated = pstmt.executeUpdate();
+        try {
+            int rowsUpdated = TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, sanitizeInput(config.getValeur()));
+                    pstmt.setString(2, sanitizeInput(config.getCle()));
+                    return pstmt.executeUpdate();
+                }
+            });
 
             if (rowsUpdated > 0) {
                 configCache.put(config.getCle(), config.getValeur());
@@ -126,27 +128,26 @@ public class ConfigurationController {
                         "ELSE valeur END " +
                         "WHERE cle IN (?, ?, ?, ?, ?)";
 
-            try (Connection conn = DatabaseManager.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                String[] params = {
-                    ConfigurationParam.CLE_TAUX_TVA,
-                    ConfigurationParam.CLE_TVA_ENABLED,
-                    ConfigurationParam.CLE_FORMAT_RECU,
-                    ConfigurationParam.CLE_PIED_PAGE_RECU,
-                    ConfigurationParam.CLE_SIRET_ENTREPRISE
-                };
-
-                for (int i = 0; i < params.length; i++) {
-                    stmt.setString(i + 1, params[i]);
-                    stmt.setString(i + 6, params[i]);
+            String[] params = {
+                ConfigurationParam.CLE_TAUX_TVA,
+                ConfigurationParam.CLE_TVA_ENABLED,
+                ConfigurationParam.CLE_FORMAT_RECU,
+                ConfigurationParam.CLE_PIED_PAGE_RECU,
+                ConfigurationParam.CLE_SIRET_ENTREPRISE
+            };
+
+            TransactionTemplate.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) {
+                        stmt.setString(i + 1, params[i]);
+                        stmt.setString(i + 6, params[i]);
+                    }
+                    return stmt.executeUpdate();
                 }
+            });
+            LOGGER.info("Configurations réinitialisées avec succès");
 
-                stmt.executeUpdate();
-                LOGGER.info("Configurations réinitialisées avec succès");
-
-                chargerConfigurations();
-            }
+            chargerConfigurations();
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la réinitialisation des configurations", e);
             throw new RuntimeException("Erreur lors de la réinitialisation des configurations", e);
@@ -158,44 +159,28 @@ public class ConfigurationController {
             throw new IllegalArgumentException("La liste des configurations ne peut pas être vide");
         }
 
-        Connection conn = null;
-        try {
-            conn = DatabaseManager.getConnection();
-            conn.setAutoCommit(false);
+        for (ConfigurationParam config : configs) {
+            validateConfiguration(config);
+        }
 
-            String sql = "UPDATE configurations SET valeur = ? WHERE cle = ?";
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                for (ConfigurationParam config : configs) {
-                    validateConfiguration(config);
-                    pstmt.setString(1, sanitizeInput(config.getValeur()));
-                    pstmt.setString(2, sanitizeInput(config.getCle()));
-                    pstmt.addBatch();
+        String sql = "UPDATE configurations SET valeur = ? WHERE cle = ?";
+        try {
+            TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (ConfigurationParam config : configs) {
+                        pstmt.setString(1, sanitizeInput(config.getValeur()));
+                        pstmt.setString(2, sanitizeInput(config.getCle()));
+                        pstmt.addBatch();
+                    }
+                    return pstmt.executeBatch();
                 }
-                pstmt.executeBatch();
-            }
+            });
 
-            conn.commit();
             chargerConfigurations();
             LOGGER.info("Configurations sauvegardées avec succès");
         } catch (SQLException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors du rollback", ex);
-                }
-            }
             LOGGER.log(Level.SEVERE, "Erreur lors de la sauvegarde des configurations", e);
             throw new RuntimeException("Erreur lors de la sauvegarde des configurations", e);
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors de la fermeture de la connexion", e);
-                }
-            }
         }
     }
 
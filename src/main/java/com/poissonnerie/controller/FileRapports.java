@@ -0,0 +1,291 @@
+package com.poissonnerie.controller;
+
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.model.SuiviRapport;
+import com.poissonnerie.model.TacheRapport;
+import com.poissonnerie.util.EventBus;
+import com.poissonnerie.util.InstantaneLecture;
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+// Génération des rapports en arrière-plan sur un nombre borné de travailleurs. Les
+// rapports soumis ensemble forment un lot : ils s'exécutent en parallèle et lisent tous
+// le même instantané de la base (InstantaneLecture), ouvert au démarrage du lot avec une
+// connexion par travailleur utilisé. L'avancement et les changements d'état sont publiés
+// sur l'EventBus (TacheRapportModifiee) ; l'annulation est coopérative, vérifiée par
+// le rapport entre deux lignes, et le fichier incomplet est supprimé.
+public class FileRapports {
+    private static final Logger LOGGER = Logger.getLogger(FileRapports.class.getName());
+    // Doit rester inférieur à la taille du pool de lecture, pour laisser une connexion aux écrans
+    private static final int TRAVAILLEURS = Integer.getInteger("poissonnerie.rapports.workers", 3);
+    private static final long INTERVALLE_PUBLICATION_MS = Long.getLong("poissonnerie.rapports.progressMs", 250L);
+    private static final int HISTORIQUE = Integer.getInteger("poissonnerie.rapports.history", 50);
+
+    // Génération d'un rapport, exécutée sur un travailleur
+    @FunctionalInterface
+    public interface Travail {
+        void executer(SuiviRapport suivi) throws Exception;
+    }
+
+    public static final class Demande {
+        private final String libelle;
+        private final String fichier;
+        private final Travail travail;
+
+        public Demande(String libelle, String fichier, Travail travail) {
+            if (libelle == null || travail == null) {
+                throw new IllegalArgumentException("Le libellé et le travail sont obligatoires");
+            }
+            this.libelle = libelle;
+            this.fichier = fichier;
+            this.travail = travail;
+        }
+
+        public String getLibelle() { return libelle; }
+        public String getFichier() { return fichier; }
+    }
+
+    private final ExecutorService travailleurs;
+    // Connexions de lecture réservées par les instantanés des lots en cours
+    private final Semaphore connexions = new Semaphore(TRAVAILLEURS, true);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Execution> executions = new LinkedHashMap<>();
+
+    public FileRapports() {
+        AtomicInteger numero = new AtomicInteger();
+        this.travailleurs = Executors.newFixedThreadPool(TRAVAILLEURS, r -> {
+            Thread t = new Thread(r, "poissonnerie-rapports-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<List<TacheRapport>> soumettre(Demande demande) {
+        return soumettreLot(List.of(demande));
+    }
+
+    // Le résultat se termine avec l'état final de chaque rapport du lot, dans l'ordre
+    public CompletableFuture<List<TacheRapport>> soumettreLot(List<Demande> demandes) {
+        if (demandes.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        Lot lot = new Lot(demandes.size());
+        List<CompletableFuture<TacheRapport>> fins = new ArrayList<>();
+        for (Demande demande : demandes) {
+            Execution execution = new Execution(sequence.incrementAndGet(), demande);
+            enregistrer(execution);
+            execution.publier();
+            fins.add(execution.fin);
+            travailleurs.execute(() -> executer(lot, execution));
+        }
+        LOGGER.info("Lot de " + demandes.size() + " rapport(s) soumis");
+        return CompletableFuture.allOf(fins.toArray(new CompletableFuture<?>[0]))
+            .thenApply(v -> fins.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    // Sans effet sur un rapport déjà terminé
+    public void annuler(long id) {
+        Execution execution;
+        synchronized (executions) {
+            execution = executions.get(id);
+        }
+        if (execution != null) {
+            execution.annuler();
+        }
+    }
+
+    public List<TacheRapport> getTaches() {
+        synchronized (executions) {
+            return executions.values().stream().map(Execution::etat).collect(Collectors.toList());
+        }
+    }
+
+    private void enregistrer(Execution execution) {
+        synchronized (executions) {
+            executions.put(execution.id, execution);
+            // Les rapports terminés les plus anciens sortent de l'historique
+            Iterator<Execution> it = executions.values().iterator();
+            while (executions.size() > HISTORIQUE && it.hasNext()) {
+                if (it.next().etat.isFinal()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void executer(Lot lot, Execution execution) {
+        try {
+            if (!execution.demarrer()) {
+                return;
+            }
+            // Les lectures du rapport passent par la connexion de l'instantané liée à ce thread
+            InstantaneLecture.Liaison liaison = lot.instantane().lier();
+            try {
+                execution.demande.travail.executer(execution);
+            } finally {
+                liaison.close();
+            }
+            if (execution.annule) {
+                execution.terminer(TacheRapport.Etat.ANNULEE, null);
+            } else {
+                String fichier = execution.demande.fichier;
+                // Un rapport sans données (aucune créance, par exemple) ne crée pas de fichier
+                execution.terminer(TacheRapport.Etat.TERMINEE,
+                    fichier == null || new File(fichier).exists() ? fichier : "Aucune donnée à exporter");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            execution.terminer(TacheRapport.Etat.ANNULEE, null);
+        } catch (Exception e) {
+            if (execution.annule) {
+                execution.terminer(TacheRapport.Etat.ANNULEE, null);
+            } else {
+                LOGGER.log(Level.SEVERE, "Échec du rapport " + execution.demande.libelle, e);
+                execution.terminer(TacheRapport.Etat.ECHEC, e.getMessage());
+            }
+        } finally {
+            lot.terminer();
+        }
+    }
+
+    // Rapports soumis ensemble : un instantané partagé, ouvert par le premier qui démarre
+    // et fermé par le dernier qui se termine
+    private final class Lot {
+        private final int nombreConnexions;
+        private int restants;
+        private InstantaneLecture instantane;
+
+        Lot(int taille) {
+            this.nombreConnexions = Math.min(taille, TRAVAILLEURS);
+            this.restants = taille;
+        }
+
+        synchronized InstantaneLecture instantane() throws SQLException, InterruptedException {
+            if (instantane == null) {
+                // Réservation en une fois : un lot ouvert a toujours de quoi se terminer
+                connexions.acquire(nombreConnexions);
+                try {
+                    instantane = InstantaneLecture.ouvrir(nombreConnexions);
+                } catch (SQLException | RuntimeException e) {
+                    connexions.release(nombreConnexions);
+                    throw e;
+                }
+            }
+            return instantane;
+        }
+
+        synchronized void terminer() {
+            if (--restants == 0 && instantane != null) {
+                instantane.close();
+                instantane = null;
+                connexions.release(nombreConnexions);
+            }
+        }
+    }
+
+    private static final class Execution implements SuiviRapport {
+        private final long id;
+        private final Demande demande;
+        private final CompletableFuture<TacheRapport> fin = new CompletableFuture<>();
+        private final AtomicLong lignes = new AtomicLong();
+        private volatile TacheRapport.Etat etat = TacheRapport.Etat.EN_ATTENTE;
+        private volatile boolean annule;
+        private volatile long total;
+        private volatile String message;
+        private long dernierePublication;
+
+        Execution(long id, Demande demande) {
+            this.id = id;
+            this.demande = demande;
+        }
+
+        @Override
+        public void definirTotal(long lignesTotal) {
+            total = lignesTotal;
+            publier();
+        }
+
+        @Override
+        public void avancer(long nombre) {
+            lignes.addAndGet(nombre);
+            if (System.currentTimeMillis() - dernierePublication >= INTERVALLE_PUBLICATION_MS) {
+                publier();
+            }
+        }
+
+        @Override
+        public boolean estAnnule() {
+            return annule;
+        }
+
+        synchronized boolean demarrer() {
+            if (etat != TacheRapport.Etat.EN_ATTENTE) {
+                return false;
+            }
+            etat = TacheRapport.Etat.EN_COURS;
+            publier();
+            return true;
+        }
+
+        void annuler() {
+            synchronized (this) {
+                if (etat.isFinal()) {
+                    return;
+                }
+                annule = true;
+                if (etat == TacheRapport.Etat.EN_COURS) {
+                    return;
+                }
+            }
+            // Pas encore démarré : le travailleur l'ignorera
+            terminer(TacheRapport.Etat.ANNULEE, "Annulé avant le démarrage");
+        }
+
+        void terminer(TacheRapport.Etat etatFinal, String messageFinal) {
+            boolean demarre;
+            synchronized (this) {
+                if (etat.isFinal()) {
+                    return;
+                }
+                demarre = etat == TacheRapport.Etat.EN_COURS;
+                etat = etatFinal;
+                message = messageFinal;
+            }
+            // Seul un rapport démarré a pu commencer à écrire son fichier
+            if (demarre && etatFinal != TacheRapport.Etat.TERMINEE && demande.fichier != null) {
+                File fichier = new File(demande.fichier);
+                if (fichier.exists() && !fichier.delete()) {
+                    LOGGER.warning("Impossible de supprimer le fichier incomplet " + demande.fichier);
+                }
+            }
+            LOGGER.info("Rapport " + demande.libelle + " : " + etatFinal.getLibelle());
+            TacheRapport resultat = publier();
+            fin.complete(resultat);
+        }
+
+        TacheRapport etat() {
+            return new TacheRapport(id, demande.libelle, demande.fichier, etat, lignes.get(), total, message);
+        }
+
+        TacheRapport publier() {
+            dernierePublication = System.currentTimeMillis();
+            TacheRapport tache = etat();
+            EventBus.getInstance().publier(new Evenements.TacheRapportModifiee(tache));
+            return tache;
+        }
+    }
+}
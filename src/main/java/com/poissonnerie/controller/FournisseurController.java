@@ -2,6 +2,7 @@ package com.poissonnerie.controller;
 
 import com.poissonnerie.model.Fournisseur;
 import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.TransactionTemplate;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,19 +20,25 @@ public class FournisseurController {
         this.fournisseurs = new ArrayList<>();
     }
 
-    public void chargerFournisseurs() {
+    public synchronized void chargerFournisseurs() {
         LOGGER.info("Chargement des fournisseurs...");
         fournisseurs.clear();
+        fournisseurs.addAll(lireFournisseurs());
+        LOGGER.info("Fournisseurs chargés: " + fournisseurs.size());
+    }
 
-        try (Connection conn = DatabaseManager.getConnection();
+    // Fournisseurs lus en base, sans toucher à la liste en mémoire (rapports)
+    public List<Fournisseur> lireFournisseurs() {
+        List<Fournisseur> lus = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(
                  "SELECT * FROM fournisseurs WHERE supprime = false ORDER BY nom");
              ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
-                fournisseurs.add(creerFournisseurDepuisResultSet(rs));
+                lus.add(creerFournisseurDepuisResultSet(rs));
             }
-            LOGGER.info("Fournisseurs chargés: " + fournisseurs.size());
+            return lus;
 
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur de chargement des fournisseurs", e);
@@ -39,7 +46,7 @@ public class FournisseurController {
         }
     }
 
-    public List<Fournisseur> getFournisseurs() {
+    public synchronized List<Fournisseur> getFournisseurs() {
         return new ArrayList<>(fournisseurs);
     }
 
@@ -50,26 +57,26 @@ public class FournisseurController {
         String sql = "INSERT INTO fournisseurs (nom, contact, telephone, email, adresse, statut, supprime) " +
                     "VALUES (?, ?, ?, ?, ?, ?, false)";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                preparerStatementFournisseur(pstmt, fournisseur);
-                if (pstmt.executeUpdate() == 0) {
-                    throw new SQLException("Échec de l'insertion");
-                }
+        try {
+            int id = TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    preparerStatementFournisseur(pstmt, fournisseur);
+                    if (pstmt.executeUpdate() == 0) {
+                        throw new SQLException("Échec de l'insertion");
+                    }
 
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        fournisseur.setId(rs.getInt(1));
-                        fournisseurs.add(fournisseur);
-                        conn.commit();
-                        LOGGER.info("Fournisseur ajouté, ID: " + fournisseur.getId());
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (!rs.next()) {
+                            throw new SQLException("Impossible d'obtenir l'ID du fournisseur");
+                        }
+                        return rs.getInt(1);
                     }
                 }
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            }
+            });
+
+            fournisseur.setId(id);
+            fournisseurs.add(fournisseur);
+            LOGGER.info("Fournisseur ajouté, ID: " + fournisseur.getId());
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur d'ajout du fournisseur", e);
             throw new RuntimeException("Erreur d'ajout du fournisseur", e);
@@ -83,27 +90,24 @@ public class FournisseurController {
         String sql = "UPDATE fournisseurs SET nom = ?, contact = ?, telephone = ?, email = ?, " +
                     "adresse = ?, statut = ? WHERE id = ? AND supprime = false";
 
-        try (Connection conn = DatabaseManager.getConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                preparerStatementFournisseur(pstmt, fournisseur);
-                pstmt.setInt(7, fournisseur.getId());
+        try {
+            TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    preparerStatementFournisseur(pstmt, fournisseur);
+                    pstmt.setInt(7, fournisseur.getId());
 
-                if (pstmt.executeUpdate() == 0) {
-                    throw new IllegalStateException("Fournisseur non trouvé: " + fournisseur.getId());
-                }
-
-                int index = fournisseurs.indexOf(fournisseur);
-                if (index != -1) {
-                    fournisseurs.set(index, fournisseur);
+                    if (pstmt.executeUpdate() == 0) {
+                        throw new IllegalStateException("Fournisseur non trouvé: " + fournisseur.getId());
+                    }
+                    return null;
                 }
+            });
 
-                conn.commit();
-                LOGGER.info("Fournisseur mis à jour, ID: " + fournisseur.getId());
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
+            int index = fournisseurs.indexOf(fournisseur);
+            if (index != -1) {
+                fournisseurs.set(index, fournisseur);
             }
+            LOGGER.info("Fournisseur mis à jour, ID: " + fournisseur.getId());
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Erreur de mise à jour du fournisseur", e);
             throw new RuntimeException("Erreur de mise à jour du fournisseur", e);
@@ -115,12 +119,15 @@ public class FournisseurController {
             throw new IllegalArgumentException("Fournisseur invalide");
         }
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "UPDATE fournisseurs SET supprime = true WHERE id = ? AND supprime = false")) {
-
-            pstmt.setInt(1, fournisseur.getId());
-            if (pstmt.executeUpdate() > 0) {
+        try {
+            int rowsDeleted = TransactionTemplate.execute(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE fournisseurs SET supprime = true WHERE id = ? AND supprime = false")) {
+                    pstmt.setInt(1, fournisseur.getId());
+                    return pstmt.executeUpdate();
+                }
+            });
+            if (rowsDeleted > 0) {
                 fournisseurs.remove(fournisseur);
                 LOGGER.info("Fournisseur supprimé, ID: " + fournisseur.getId());
             }
@@ -137,7 +144,7 @@ public class FournisseurController {
                     "(LOWER(nom) LIKE LOWER(?) OR LOWER(contact) LIKE LOWER(?) OR " +
                     "LOWER(telephone) LIKE LOWER(?) OR LOWER(email) LIKE LOWER(?))";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             String searchTerm = "%" + terme.toLowerCase() + "%";
@@ -2,21 +2,35 @@ package com.poissonnerie.controller;
 
 import com.poissonnerie.model.*;
 import com.poissonnerie.util.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.logging.Logger;
 import java.util.logging.Level;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 
 public class ReportController {
     
     public List<Produit> getProduits() {
-        // TODO: Implement product retrieval from database
-        return new ArrayList<>();
+        return produitController.getProduits();
     }
     private static final Logger LOGGER = Logger.getLogger(ReportController.class.getName());
+    // Tables lues par chaque rapport : toute modification de l'une d'elles invalide le cache
+    private static final List<String> TABLES_VENTES = List.of("ventes", "lignes_vente", "produits", "clients");
+    private static final List<String> TABLES_FINANCIER = List.of("ventes", "lignes_vente", "produits", "mouvements_caisse");
+    private static final List<String> TABLES_STOCKS = List.of("produits");
+    private static final List<String> TABLES_CREANCES = List.of("clients", "ventes");
+    private static final List<String> TABLES_FOURNISSEURS = List.of("fournisseurs");
     private final VenteController venteController;
     private final ProduitController produitController;
     private final ClientController clientController;
@@ -24,19 +38,25 @@ public class ReportController {
     private final FournisseurController fournisseurController;
 
     public ReportController() {
-        this.venteController = new VenteController();
-        this.produitController = new ProduitController();
-        this.clientController = new ClientController();
-        this.caisseController = new CaisseController();
-        this.fournisseurController = new FournisseurController();
+        // Contrôleurs partagés avec les écrans : pas de second chargement des mêmes données
+        ApplicationContext context = ApplicationContext.getInstance();
+        this.venteController = context.getVenteController();
+        this.produitController = context.getProduitController();
+        this.clientController = context.getClientController();
+        this.caisseController = context.getCaisseController();
+        this.fournisseurController = context.getFournisseurController();
     }
 
+    // Les rapports lisent la base après la création de leur clé de cache, et non les listes
+    // en mémoire des écrans : dans un lot, ils voient ainsi l'instantané partagé
+
     // Excel Report Generation Methods
     public void genererRapportStocksExcel(String username, String cheminFichier) {
         try {
-            List<Produit> produits = produitController.getProduits();
+            CacheRapports.Cle cle = CacheRapports.cle("stocks-xlsx", TABLES_STOCKS);
+            List<Produit> produits = produitController.lireProduits();
             Map<String, Double> statistiques = calculerStatistiquesStocks(produits);
-            ExcelGenerator.genererRapportStocks(username, produits, statistiques, cheminFichier);
+            ExcelGenerator.genererRapportStocks(username, produits, statistiques, cheminFichier, cle);
             LOGGER.info("Rapport des stocks généré avec succès");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport des stocks", e);
@@ -45,15 +65,20 @@ public class ReportController {
     }
 
     public void genererRapportVentesExcel(String username, LocalDateTime debut, LocalDateTime fin, String cheminFichier) {
-        try {
-            List<Vente> ventes = venteController.getVentes().stream()
-                .filter(v -> !v.getDate().isBefore(debut) && !v.getDate().isAfter(fin))
-                .collect(Collectors.toList());
+        genererRapportVentesExcel(username, debut, fin, cheminFichier, SuiviRapport.AUCUN);
+    }
 
-            Map<String, Double> analyses = analyserVentesPourRapport(ventes);
-            ExcelGenerator.genererRapportVentes(username, ventes, analyses, cheminFichier);
+    public void genererRapportVentesExcel(String username, LocalDateTime debut, LocalDateTime fin, String cheminFichier,
+                                          SuiviRapport suivi) {
+        try {
+            CacheRapports.Cle cle = CacheRapports.cle("ventes-xlsx", TABLES_VENTES, debut, fin);
+            Map<String, Double> analyses = analyserVentesPourRapport(debut, fin);
+            ExcelGenerator.genererRapportVentes(username, parcoursVentes(debut, fin, suivi), analyses, cheminFichier, cle);
             LOGGER.info("Rapport des ventes Excel généré avec succès");
         } catch (Exception e) {
+            if (suivi.estAnnule()) {
+                throw new CancellationException("Rapport Excel des ventes annulé");
+            }
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport Excel des ventes", e);
             throw new RuntimeException("Erreur lors de la génération du rapport Excel des ventes", e);
         }
@@ -61,7 +86,9 @@ public class ReportController {
 
     public void genererRapportCreancesExcel(String username, String cheminFichier) {
         try {
-            List<Client> clients = clientController.getClients().stream()
+            // Le nombre de jours depuis la dernière vente dépend de la date du jour
+            CacheRapports.Cle cle = CacheRapports.cle("creances-xlsx", TABLES_CREANCES, LocalDate.now());
+            List<Client> clients = clientController.lireClients().stream()
                 .filter(c -> c.getSolde() > 0)
                 .sorted((c1, c2) -> Double.compare(c2.getSolde(), c1.getSolde()))
                 .collect(Collectors.toList());
@@ -71,7 +98,7 @@ public class ReportController {
                 return;
             }
 
-            ExcelGenerator.genererRapportCreances(username, clients, cheminFichier);
+            ExcelGenerator.genererRapportCreances(username, clients, cheminFichier, cle);
             LOGGER.info("Rapport des créances Excel généré avec succès");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport Excel des créances", e);
@@ -81,8 +108,9 @@ public class ReportController {
 
     public void genererRapportFournisseursExcel(String username, String cheminFichier) {
         try {
-            List<Fournisseur> fournisseurs = fournisseurController.getFournisseurs();
-            ExcelGenerator.genererRapportFournisseurs(username, fournisseurs, cheminFichier);
+            CacheRapports.Cle cle = CacheRapports.cle("fournisseurs-xlsx", TABLES_FOURNISSEURS);
+            List<Fournisseur> fournisseurs = fournisseurController.lireFournisseurs();
+            ExcelGenerator.genererRapportFournisseurs(username, fournisseurs, cheminFichier, cle);
             LOGGER.info("Rapport des fournisseurs Excel généré avec succès");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport Excel des fournisseurs", e);
@@ -102,7 +130,20 @@ public class ReportController {
     }
 
     // PDF Report Generation Methods
-    public void genererRapportStocksPDF(String username, List<Produit> produits, Map<String, Double> statistiques, ByteArrayOutputStream outputStream) {
+    public void genererRapportStocksPDF(String username, OutputStream outputStream) {
+        try {
+            CacheRapports.Cle cle = CacheRapports.cle("stocks-pdf", TABLES_STOCKS);
+            List<Produit> produits = produitController.lireProduits();
+            Map<String, Double> statistiques = calculerStatistiquesStocks(produits);
+            produirePDF(cle, outputStream, sortie -> PDFGenerator.genererRapportStocks(produits, statistiques, sortie));
+            LOGGER.info("Rapport des stocks PDF généré avec succès pour " + username);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport PDF des stocks", e);
+            throw new RuntimeException("Erreur lors de la génération du rapport PDF des stocks", e);
+        }
+    }
+
+    public void genererRapportStocksPDF(String username, List<Produit> produits, Map<String, Double> statistiques, OutputStream outputStream) {
         try {
             PDFGenerator.genererRapportStocks(produits, statistiques, outputStream);
             LOGGER.info("Rapport des stocks PDF généré avec succès pour " + username);
@@ -112,10 +153,11 @@ public class ReportController {
         }
     }
 
-    public void genererRapportFournisseursPDF(String username, ByteArrayOutputStream outputStream) {
+    public void genererRapportFournisseursPDF(String username, OutputStream outputStream) {
         try {
+            CacheRapports.Cle cle = CacheRapports.cle("fournisseurs-pdf", TABLES_FOURNISSEURS);
             List<Fournisseur> fournisseurs = getFournisseursAvecStats();
-            PDFGenerator.genererRapportFournisseurs(fournisseurs, outputStream);
+            produirePDF(cle, outputStream, sortie -> PDFGenerator.genererRapportFournisseurs(fournisseurs, sortie));
             LOGGER.info("Rapport des fournisseurs PDF généré avec succès pour " + username);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport PDF des fournisseurs", e);
@@ -123,9 +165,11 @@ public class ReportController {
         }
     }
 
-    public void genererRapportCreancesPDF(String username, ByteArrayOutputStream outputStream) {
+    public void genererRapportCreancesPDF(String username, OutputStream outputStream) {
         try {
-            List<Client> clients = clientController.getClients().stream()
+            // Même clé que l'export Excel : le rapport dépend de la date du jour
+            CacheRapports.Cle cle = CacheRapports.cle("creances-pdf", TABLES_CREANCES, LocalDate.now());
+            List<Client> clients = clientController.lireClients().stream()
                 .filter(c -> c.getSolde() > 0)
                 .sorted((c1, c2) -> Double.compare(c2.getSolde(), c1.getSolde()))
                 .collect(Collectors.toList());
@@ -135,7 +179,7 @@ public class ReportController {
                 return;
             }
 
-            PDFGenerator.genererRapportCreances(clients, outputStream);
+            produirePDF(cle, outputStream, sortie -> PDFGenerator.genererRapportCreances(clients, sortie));
             LOGGER.info("Rapport des créances PDF généré avec succès pour " + username);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport PDF des créances", e);
@@ -143,27 +187,35 @@ public class ReportController {
         }
     }
 
-    public void genererRapportVentesPDF(String username, LocalDateTime debut, LocalDateTime fin, ByteArrayOutputStream outputStream) {
+    public void genererRapportVentesPDF(String username, LocalDateTime debut, LocalDateTime fin, OutputStream outputStream) {
+        genererRapportVentesPDF(username, debut, fin, outputStream, SuiviRapport.AUCUN);
+    }
+
+    public void genererRapportVentesPDF(String username, LocalDateTime debut, LocalDateTime fin, OutputStream outputStream,
+                                        SuiviRapport suivi) {
         try {
-            List<Vente> ventes = venteController.getVentes().stream()
-                .filter(v -> !v.getDate().isBefore(debut) && !v.getDate().isAfter(fin))
-                .collect(Collectors.toList());
-            PDFGenerator.genererRapportVentes(ventes, outputStream);
+            CacheRapports.Cle cle = CacheRapports.cle("ventes-pdf", TABLES_VENTES, debut, fin);
+            produirePDF(cle, outputStream, sortie -> PDFGenerator.genererRapportVentes(parcoursVentes(debut, fin, suivi), sortie));
             LOGGER.info("Rapport des ventes PDF généré avec succès pour " + username);
         } catch (Exception e) {
+            if (suivi.estAnnule()) {
+                throw new CancellationException("Rapport PDF des ventes annulé");
+            }
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport PDF des ventes", e);
             throw new RuntimeException("Erreur lors de la génération du rapport PDF des ventes", e);
         }
     }
 
-    public void genererRapportFinancierPDF(String username, LocalDateTime debut, LocalDateTime fin, ByteArrayOutputStream outputStream) {
+    public void genererRapportFinancierPDF(String username, LocalDateTime debut, LocalDateTime fin, OutputStream outputStream) {
         try {
+            CacheRapports.Cle cle = CacheRapports.cle("financier-pdf", TABLES_FINANCIER, debut, fin);
             Map<String, Double> chiffreAffaires = calculerChiffreAffaires(debut, fin);
             Map<String, Double> couts = calculerCouts(debut, fin);
             Map<String, Double> benefices = calculerBenefices(chiffreAffaires, couts);
             Map<String, Double> marges = calculerMarges(chiffreAffaires, couts);
 
-            PDFGenerator.genererRapportFinancier(chiffreAffaires, couts, benefices, marges, outputStream);
+            produirePDF(cle, outputStream, sortie ->
+                PDFGenerator.genererRapportFinancier(chiffreAffaires, couts, benefices, marges, sortie));
             LOGGER.info("Rapport financier PDF généré avec succès pour " + username);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport financier PDF", e);
@@ -174,11 +226,7 @@ public class ReportController {
     // Analysis Methods
     private Map<String, Double> calculerChiffreAffaires(LocalDateTime debut, LocalDateTime fin) {
         Map<String, Double> caParPeriode = new HashMap<>();
-        List<Vente> ventes = venteController.getVentes().stream()
-            .filter(v -> !v.getDate().isBefore(debut) && !v.getDate().isAfter(fin))
-            .collect(Collectors.toList());
-
-        double total = ventes.stream().mapToDouble(Vente::getTotal).sum();
+        double total = AgregatsVentes.totaux(jour(debut), jour(fin)).getChiffreAffaires();
         caParPeriode.put("Total période", total);
 
         return caParPeriode;
@@ -186,11 +234,7 @@ public class ReportController {
 
     private Map<String, Double> calculerCouts(LocalDateTime debut, LocalDateTime fin) {
         Map<String, Double> couts = new HashMap<>();
-        double totalAchats = caisseController.getMouvements().stream()
-            .filter(m -> m.getType() == MouvementCaisse.TypeMouvement.SORTIE)
-            .filter(m -> !m.getDate().isBefore(debut) && !m.getDate().isAfter(fin))
-            .mapToDouble(MouvementCaisse::getMontant)
-            .sum();
+        double totalAchats = caisseController.totalMouvements(MouvementCaisse.TypeMouvement.SORTIE, debut, fin);
         couts.put("Total achats", totalAchats);
         return couts;
     }
@@ -238,39 +282,85 @@ public class ReportController {
         return stats;
     }
 
-    public Map<String, Double> analyserVentesPourRapport(List<Vente> ventes) {
+    // Sommes et meilleurs produits lus dans les agrégats des ventes de la période
+    public Map<String, Double> analyserVentesPourRapport(LocalDateTime debut, LocalDateTime fin) {
         Map<String, Double> analyses = new HashMap<>();
 
-        double caTotal = ventes.stream().mapToDouble(Vente::getTotal).sum();
-        analyses.put("Chiffre d'affaires total", caTotal);
-
-        OptionalDouble moyenneVentes = ventes.stream()
-            .mapToDouble(Vente::getTotal)
-            .average();
-        analyses.put("Moyenne des ventes", moyenneVentes.orElse(0.0));
+        AgregatsVentes.Totaux totaux = AgregatsVentes.totaux(jour(debut), jour(fin));
+        analyses.put("Chiffre d'affaires total", totaux.getChiffreAffaires());
+        analyses.put("Moyenne des ventes", totaux.getPanierMoyen());
+        analyses.put("Nombre total de ventes", (double) totaux.getNombreVentes());
+        analyses.put("Panier moyen", totaux.getPanierMoyen());
 
-        analyses.put("Nombre total de ventes", (double) ventes.size());
+        AgregatsVentes.meilleursProduits(jour(debut), jour(fin), 5)
+            .forEach((produit, ca) -> analyses.put("Top produit - " + produit, ca));
 
-        double panierMoyen = ventes.isEmpty() ? 0.0 : caTotal / ventes.size();
-        analyses.put("Panier moyen", panierMoyen);
+        return analyses;
+    }
 
-        Map<String, Double> ventesParProduit = ventes.stream()
-            .flatMap(v -> v.getLignes().stream())
-            .collect(Collectors.groupingBy(
-                ligne -> ligne.getProduit().getNom(),
-                Collectors.summingDouble(ligne -> ligne.getQuantite() * ligne.getPrixUnitaire())
-            ));
+    // PDF copié depuis le cache des rapports quand les données lues n'ont pas changé,
+    // sinon généré directement dans le flux de destination
+    private static void produirePDF(CacheRapports.Cle cle, OutputStream outputStream,
+                                    Consumer<OutputStream> generation) throws Exception {
+        CacheRapports.produire(cle, outputStream, generation::accept);
+    }
 
-        ventesParProduit.entrySet().stream()
-            .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-            .limit(5)
-            .forEach(entry -> analyses.put("Top produit - " + entry.getKey(), entry.getValue()));
+    // Ventes de la période lues page par page : le total attendu vient des agrégats, chaque
+    // vente écrite fait avancer le suivi et l'annulation est vérifiée avant chacune
+    private ParcoursVentes parcoursVentes(LocalDateTime debut, LocalDateTime fin, SuiviRapport suivi) {
+        return consommateur -> {
+            suivi.definirTotal(AgregatsVentes.totaux(jour(debut), jour(fin)).getNombreVentes());
+            venteController.parcourirVentes(debut, fin, vente -> {
+                suivi.verifierAnnulation();
+                consommateur.accept(vente);
+                suivi.avancer(1);
+            });
+        };
+    }
 
-        return analyses;
+    // Rapports de clôture d'un mois, à soumettre ensemble à la FileRapports : ils sont
+    // générés en parallèle et tous calculés sur le même état de la base
+    public List<FileRapports.Demande> demandesClotureMensuelle(String username, YearMonth mois, String repertoire) {
+        LocalDateTime debut = mois.atDay(1).atStartOfDay();
+        LocalDateTime fin = mois.atEndOfMonth().atTime(LocalTime.MAX);
+        String suffixe = "_" + mois.format(DateTimeFormatter.ofPattern("yyyyMM"));
+        String ventesExcel = new File(repertoire, "rapport_ventes" + suffixe + ".xlsx").getPath();
+        String ventesPDF = new File(repertoire, "rapport_ventes" + suffixe + ".pdf").getPath();
+        String financierExcel = new File(repertoire, "rapport_financier" + suffixe + ".xlsx").getPath();
+        String financierPDF = new File(repertoire, "rapport_financier" + suffixe + ".pdf").getPath();
+        String stocksExcel = new File(repertoire, "rapport_stocks" + suffixe + ".xlsx").getPath();
+        String stocksPDF = new File(repertoire, "rapport_stocks" + suffixe + ".pdf").getPath();
+        String creancesExcel = new File(repertoire, "rapport_creances" + suffixe + ".xlsx").getPath();
+
+        List<FileRapports.Demande> demandes = new ArrayList<>();
+        demandes.add(new FileRapports.Demande("Ventes (Excel) " + mois, ventesExcel,
+            suivi -> genererRapportVentesExcel(username, debut, fin, ventesExcel, suivi)));
+        demandes.add(new FileRapports.Demande("Ventes (PDF) " + mois, ventesPDF, suivi -> {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(ventesPDF))) {
+                genererRapportVentesPDF(username, debut, fin, outputStream, suivi);
+            }
+        }));
+        demandes.add(new FileRapports.Demande("Financier (Excel) " + mois, financierExcel,
+            suivi -> genererRapportFinancierExcel(username, debut, fin, financierExcel)));
+        demandes.add(new FileRapports.Demande("Financier (PDF) " + mois, financierPDF, suivi -> {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(financierPDF))) {
+                genererRapportFinancierPDF(username, debut, fin, outputStream);
+            }
+        }));
+        demandes.add(new FileRapports.Demande("Stocks (Excel) " + mois, stocksExcel,
+            suivi -> genererRapportStocksExcel(username, stocksExcel)));
+        demandes.add(new FileRapports.Demande("Stocks (PDF) " + mois, stocksPDF, suivi -> {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(stocksPDF))) {
+                genererRapportStocksPDF(username, outputStream);
+            }
+        }));
+        demandes.add(new FileRapports.Demande("Créances (Excel) " + mois, creancesExcel,
+            suivi -> genererRapportCreancesExcel(username, creancesExcel)));
+        return demandes;
     }
 
     private List<Fournisseur> getFournisseursAvecStats() {
-        return fournisseurController.getFournisseurs();
+        return fournisseurController.lireFournisseurs();
     }
 
     public Map<String, Double> calculerKPIs(LocalDateTime debut, LocalDateTime fin) {
@@ -280,7 +370,7 @@ public class ReportController {
             kpis.put("CA Total", ca.getOrDefault("Total période", 0.0));
 
             List<Produit> produits = produitController.getProduits();
-            double tauxRotation = calculerTauxRotationStock(produits);
+            double tauxRotation = calculerTauxRotationStock(produits, debut, fin);
             kpis.put("Taux de rotation stock", tauxRotation);
 
             Map<String, Double> couts = calculerCouts(debut, fin);
@@ -294,7 +384,7 @@ public class ReportController {
         }
     }
 
-    private double calculerTauxRotationStock(List<Produit> produits) {
+    private double calculerTauxRotationStock(List<Produit> produits, LocalDateTime debut, LocalDateTime fin) {
         if (produits.isEmpty()) return 0.0;
 
         double valeurStockMoyen = produits.stream()
@@ -302,12 +392,12 @@ public class ReportController {
             .average()
             .orElse(0.0);
 
-        double coutVentesPeriode = venteController.getVentes().stream()
-            .flatMap(v -> v.getLignes().stream())
-            .mapToDouble(ligne -> ligne.getProduit().getPrixAchat() * ligne.getQuantite())
-            .sum();
+        // Coût des ventes de la période ramené à une année
+        double coutVentesPeriode = AgregatsVentes.totaux(jour(debut), jour(fin)).getCout();
+        long jours = debut == null || fin == null ? 365
+            : Math.max(1, ChronoUnit.DAYS.between(jour(debut), jour(fin)) + 1);
 
-        return valeurStockMoyen > 0 ? (coutVentesPeriode / valeurStockMoyen) * 365 : 0.0;
+        return valeurStockMoyen > 0 ? (coutVentesPeriode / valeurStockMoyen) * 365 / jours : 0.0;
     }
 
     public Map<String, Double> analyserAchatsFournisseurs(LocalDateTime debut, LocalDateTime fin) {
@@ -325,15 +415,10 @@ public class ReportController {
 
     public Map<String, Double> analyserVentesParPeriode(LocalDateTime debut, LocalDateTime fin) {
         try {
-            List<Vente> ventes = venteController.getVentes().stream()
-                .filter(v -> !v.getDate().isBefore(debut) && !v.getDate().isAfter(fin))
-                .collect(Collectors.toList());
-
-            return ventes.stream()
-                .collect(Collectors.groupingBy(
-                    v -> v.getDate().format(java.time.format.DateTimeFormatter.ofPattern("MM/yyyy")),
-                    Collectors.summingDouble(Vente::getTotal)
-                ));
+            Map<String, Double> ventesParMois = new LinkedHashMap<>();
+            AgregatsVentes.totalParMois(jour(debut), jour(fin)).forEach((mois, total) ->
+                ventesParMois.put(mois.format(DateTimeFormatter.ofPattern("MM/yyyy")), total));
+            return ventesParMois;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'analyse des ventes par période", e);
             return new HashMap<>();
@@ -342,15 +427,10 @@ public class ReportController {
 
     public Map<String, Double> analyserModePaiement(LocalDateTime debut, LocalDateTime fin) {
         try {
-            List<Vente> ventes = venteController.getVentes().stream()
-                .filter(v -> !v.getDate().isBefore(debut) && !v.getDate().isAfter(fin))
-                .collect(Collectors.toList());
-
-            return ventes.stream()
-                .collect(Collectors.groupingBy(
-                    v -> v.getModePaiement().getLibelle(),
-                    Collectors.summingDouble(Vente::getTotal)
-                ));
+            Map<String, Double> ventesParMode = new LinkedHashMap<>();
+            AgregatsVentes.totalParModePaiement(jour(debut), jour(fin)).forEach((mode, total) ->
+                ventesParMode.put(mode.getLibelle(), total));
+            return ventesParMode;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'analyse des modes de paiement", e);
             return new HashMap<>();
@@ -360,33 +440,15 @@ public class ReportController {
     public Map<String, Double> analyserTendancesVentes(LocalDateTime debut, LocalDateTime fin) {
         Map<String, Double> tendances = new HashMap<>();
         try {
-            List<Vente> ventes = venteController.getVentes().stream()
-                .filter(v -> !v.getDate().isBefore(debut) && !v.getDate().isAfter(fin))
-                .collect(Collectors.toList());
-
-            Map<String, Double> ventesParJour = ventes.stream()
-                .collect(Collectors.groupingBy(
-                    v -> v.getDate().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                    Collectors.summingDouble(Vente::getTotal)
-                ));
-
-            double moyenneJournaliere = ventesParJour.values().stream()
+            // Moyenne sur les jours ayant au moins une vente
+            double moyenneJournaliere = AgregatsVentes.totalParJour(jour(debut), jour(fin)).values().stream()
                 .mapToDouble(Double::doubleValue)
                 .average()
                 .orElse(0.0);
             tendances.put("Moyenne journalière", moyenneJournaliere);
 
-            Map<String, Double> ventesParProduit = ventes.stream()
-                .flatMap(v -> v.getLignes().stream())
-                .collect(Collectors.groupingBy(
-                    ligne -> ligne.getProduit().getNom(),
-                    Collectors.summingDouble(ligne -> ligne.getQuantite() * ligne.getPrixUnitaire())
-                ));
-
-            ventesParProduit.entrySet().stream()
-                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
-                .limit(5)
-                .forEach(entry -> tendances.put("Tendance " + entry.getKey(), entry.getValue()));
+            AgregatsVentes.meilleursProduits(jour(debut), jour(fin), 5)
+                .forEach((produit, ca) -> tendances.put("Tendance " + produit, ca));
 
             return tendances;
         } catch (Exception e) {
@@ -420,6 +482,7 @@ public class ReportController {
 
     public void genererRapportFinancierExcel(String username, LocalDateTime debut, LocalDateTime fin, String cheminFichier) {
         try {
+            CacheRapports.Cle cle = CacheRapports.cle("financier-xlsx", TABLES_FINANCIER, debut, fin);
             Map<String, Double> chiffreAffaires = calculerChiffreAffaires(debut, fin);
             Map<String, Double> couts = calculerCouts(debut, fin);
             Map<String, Double> benefices = calculerBenefices(chiffreAffaires, couts);
@@ -431,7 +494,8 @@ public class ReportController {
                 couts,
                 benefices,
                 marges,
-                cheminFichier
+                cheminFichier,
+                cle
             );
             LOGGER.info("Rapport financier Excel généré avec succès pour " + username);
         } catch (Exception e) {
@@ -439,4 +503,9 @@ public class ReportController {
             throw new RuntimeException("Erreur lors de la génération du rapport financier Excel", e);
         }
     }
-}
\ No newline at end of file
+
+    // Les agrégats des ventes sont tenus par jour : la période couvre des jours entiers
+    private static LocalDate jour(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toLocalDate();
+    }
+}
@@ -0,0 +1,350 @@
+package com.poissonnerie.controller;
+
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.model.TravailImpression;
+import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.EventBus;
+import com.poissonnerie.util.RetryPolicy;
+import com.poissonnerie.util.TextBillPrinter;
+import com.poissonnerie.util.TransactionTemplate;
+import com.poissonnerie.util.TransportTicket;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// File d'impression des tickets, persistée dans travaux_impression : l'écran n'attend
+// plus l'imprimante, il rend la main dès la validation de la transaction. Chaque
+// imprimante a son propre travailleur, qui envoie les tickets dans l'ordre. Une imprimante
+// hors ligne est réessayée selon une RetryPolicy, sans bloquer les autres imprimantes.
+// Un ticket n'est marqué imprimé qu'après l'envoi : après un arrêt brutal, le ticket en
+// cours d'envoi peut donc sortir deux fois, mais aucun n'est perdu. Un ticket déjà en file
+// ou imprimé récemment sous la même clé n'est pas remis en file.
+public class SpoolerImpression {
+    private static final Logger LOGGER = Logger.getLogger(SpoolerImpression.class.getName());
+    // Imprimante du comptoir, configurée par poissonnerie.ticket.transport ; les autres
+    // le sont par poissonnerie.ticket.transport.<nom>
+    public static final String CAISSE = "caisse";
+    private static final long FENETRE_DOUBLON_MS = TimeUnit.SECONDS.toMillis(
+        Long.getLong("poissonnerie.impression.dedupSeconds", 60L));
+    private static final long RETENTION_MS = TimeUnit.DAYS.toMillis(
+        Long.getLong("poissonnerie.impression.retentionDays", 7L));
+    private static final long DELAI_ERREUR_MS = 5000L;
+    private static final RetryPolicy POLITIQUE = new RetryPolicy(
+        Integer.getInteger("poissonnerie.impression.retry.maxAttempts", 30),
+        Long.getLong("poissonnerie.impression.retry.initialDelayMs", 1000L),
+        Long.getLong("poissonnerie.impression.retry.maxDelayMs", 30000L),
+        2.0, 0.2);
+
+    private static final String ETATS_EN_FILE = "('" + TravailImpression.Etat.EN_ATTENTE + "', '"
+        + TravailImpression.Etat.HORS_LIGNE + "')";
+
+    private final Map<String, Imprimante> imprimantes = new HashMap<>();
+
+    // Purge l'historique et relance les tickets laissés en file par la session précédente
+    public void demarrer() {
+        List<String> enFile = new ArrayList<>();
+        try {
+            int purges = TransactionTemplate.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM travaux_impression WHERE etat NOT IN " + ETATS_EN_FILE + " AND date_creation < ?")) {
+                    stmt.setLong(1, System.currentTimeMillis() - RETENTION_MS);
+                    return stmt.executeUpdate();
+                }
+            });
+            if (purges > 0) {
+                LOGGER.info(purges + " ancien(s) ticket(s) retiré(s) de la file d'impression");
+            }
+            try (Connection conn = DatabaseManager.getReadConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                     "SELECT DISTINCT imprimante FROM travaux_impression WHERE etat IN " + ETATS_EN_FILE)) {
+                while (rs.next()) {
+                    enFile.add(rs.getString("imprimante"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du démarrage de la file d'impression", e);
+            throw new RuntimeException("Erreur lors du démarrage de la file d'impression: " + e.getMessage(), e);
+        }
+        for (String imprimante : enFile) {
+            LOGGER.info("Reprise des tickets en attente pour l'imprimante " + imprimante);
+            signaler(imprimante);
+        }
+    }
+
+    public boolean estConfiguree(String imprimante) {
+        return transport(imprimante) != null;
+    }
+
+    // Met le ticket en file sur l'imprimante du comptoir ; faux si elle n'est pas
+    // configurée, l'appelant garde alors l'impression classique
+    public boolean imprimer(String cle, TextBillPrinter ticket) {
+        if (!estConfiguree(CAISSE)) {
+            return false;
+        }
+        soumettre(CAISSE, cle, ticket.genererEscPos());
+        return true;
+    }
+
+    public long soumettre(String imprimante, String cle, byte[] donnees) {
+        try {
+            long id = TransactionTemplate.execute(conn -> ajouter(conn, imprimante, cle, donnees));
+            signaler(imprimante);
+            return id;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la mise en file du ticket " + cle, e);
+            throw new RuntimeException("Erreur lors de la mise en file du ticket: " + e.getMessage(), e);
+        }
+    }
+
+    // Inscription dans la transaction de l'appelant (celle de la vente, par exemple), qui
+    // doit appeler signaler() après la validation. Retourne l'identifiant du ticket déjà
+    // en file si la clé est un doublon.
+    public long ajouter(Connection conn, String imprimante, String cle, byte[] donnees) throws SQLException {
+        String doublon = "SELECT id FROM travaux_impression WHERE imprimante = ? AND cle = ? " +
+                        "AND (etat IN " + ETATS_EN_FILE + " OR (etat = ? AND date_impression >= ?)) " +
+                        "ORDER BY id DESC LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(doublon)) {
+            stmt.setString(1, imprimante);
+            stmt.setString(2, cle);
+            stmt.setString(3, TravailImpression.Etat.IMPRIME.name());
+            stmt.setLong(4, System.currentTimeMillis() - FENETRE_DOUBLON_MS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    LOGGER.info("Réimpression ignorée pour le ticket " + cle);
+                    return rs.getLong("id");
+                }
+            }
+        }
+
+        String sql = "INSERT INTO travaux_impression (imprimante, cle, donnees) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, imprimante);
+            stmt.setString(2, cle);
+            stmt.setBytes(3, donnees);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("Échec de la mise en file du ticket, aucun ID obtenu");
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // Réveille le travailleur de l'imprimante, créé au premier ticket
+    public void signaler(String imprimante) {
+        Imprimante travailleur;
+        synchronized (imprimantes) {
+            travailleur = imprimantes.get(imprimante);
+            if (travailleur == null) {
+                TransportTicket transport = transport(imprimante);
+                if (transport == null) {
+                    LOGGER.warning("Aucun transport configuré pour l'imprimante " + imprimante
+                        + ", les tickets restent en file");
+                    return;
+                }
+                travailleur = new Imprimante(imprimante, transport);
+                imprimantes.put(imprimante, travailleur);
+                travailleur.thread.start();
+            }
+        }
+        travailleur.reveiller();
+    }
+
+    // Remet en file les tickets abandonnés après trop de tentatives
+    public int relancerEchecs(String imprimante) {
+        try {
+            int relances = TransactionTemplate.execute(conn -> {
+                String sql = "UPDATE travaux_impression SET etat = ?, tentatives = 0, message = NULL " +
+                            "WHERE imprimante = ? AND etat = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, TravailImpression.Etat.EN_ATTENTE.name());
+                    stmt.setString(2, imprimante);
+                    stmt.setString(3, TravailImpression.Etat.ECHEC.name());
+                    return stmt.executeUpdate();
+                }
+            });
+            if (relances > 0) {
+                signaler(imprimante);
+            }
+            return relances;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la relance des tickets", e);
+            throw new RuntimeException("Erreur lors de la relance des tickets: " + e.getMessage(), e);
+        }
+    }
+
+    public int getNombreEnFile(String imprimante) {
+        String sql = "SELECT COUNT(*) FROM travaux_impression WHERE imprimante = ? AND etat IN " + ETATS_EN_FILE;
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, imprimante);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du comptage des tickets en file", e);
+            throw new RuntimeException("Erreur lors du comptage des tickets en file: " + e.getMessage(), e);
+        }
+    }
+
+    private static TransportTicket transport(String imprimante) {
+        if (CAISSE.equals(imprimante)) {
+            return TransportTicket.depuisConfiguration();
+        }
+        String configuration = System.getProperty("poissonnerie.ticket.transport." + imprimante);
+        return configuration == null || configuration.isBlank() ? null : TransportTicket.depuis(configuration.trim());
+    }
+
+    private static void publier(TravailImpression travail) {
+        EventBus.getInstance().publier(new Evenements.TravailImpressionModifie(travail));
+    }
+
+    // Ticket lu en tête de file
+    private static final class Ticket {
+        private final long id;
+        private final String cle;
+        private final byte[] donnees;
+        private final int tentatives;
+
+        Ticket(long id, String cle, byte[] donnees, int tentatives) {
+            this.id = id;
+            this.cle = cle;
+            this.donnees = donnees;
+            this.tentatives = tentatives;
+        }
+    }
+
+    // Travailleur d'une imprimante : envoie les tickets un par un, dans l'ordre de la file
+    private static final class Imprimante {
+        private final String nom;
+        private final TransportTicket transport;
+        private final Thread thread;
+        private boolean signale;
+
+        Imprimante(String nom, TransportTicket transport) {
+            this.nom = nom;
+            this.transport = transport;
+            this.thread = new Thread(this::boucle, "poissonnerie-impression-" + nom);
+            this.thread.setDaemon(true);
+        }
+
+        synchronized void reveiller() {
+            signale = true;
+            notifyAll();
+        }
+
+        // Attente d'un nouveau ticket ou de la fin du délai (0 : sans limite)
+        synchronized void attendre(long delaiMs) throws InterruptedException {
+            long fin = System.currentTimeMillis() + delaiMs;
+            while (!signale) {
+                long reste = delaiMs == 0 ? 0 : fin - System.currentTimeMillis();
+                if (delaiMs > 0 && reste <= 0) {
+                    break;
+                }
+                wait(reste);
+            }
+            signale = false;
+        }
+
+        private void boucle() {
+            LOGGER.info("Imprimante " + nom + " : " + transport.description());
+            while (true) {
+                try {
+                    Ticket ticket = prochain();
+                    if (ticket == null) {
+                        attendre(0);
+                    } else {
+                        imprimer(ticket);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (SQLException | RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Erreur de la file d'impression " + nom, e);
+                    try {
+                        attendre(DELAI_ERREUR_MS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private Ticket prochain() throws SQLException {
+            String sql = "SELECT id, cle, donnees, tentatives FROM travaux_impression " +
+                        "WHERE imprimante = ? AND etat IN " + ETATS_EN_FILE + " ORDER BY id LIMIT 1";
+            try (Connection conn = DatabaseManager.getReadConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, nom);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    return new Ticket(rs.getLong("id"), rs.getString("cle"),
+                        rs.getBytes("donnees"), rs.getInt("tentatives"));
+                }
+            }
+        }
+
+        private void imprimer(Ticket ticket) throws SQLException, InterruptedException {
+            publier(new TravailImpression(ticket.id, nom, ticket.cle,
+                TravailImpression.Etat.EN_COURS, ticket.tentatives, null));
+            long debut = System.nanoTime();
+            try {
+                transport.envoyer(ticket.donnees);
+            } catch (IOException e) {
+                int tentatives = ticket.tentatives + 1;
+                boolean abandon = !POLITIQUE.peutReessayer(tentatives);
+                TravailImpression.Etat etat = abandon ? TravailImpression.Etat.ECHEC : TravailImpression.Etat.HORS_LIGNE;
+                LOGGER.warning(String.format("Ticket %s non imprimé (%s, tentative %d): %s",
+                    ticket.cle, nom, tentatives, e.getMessage()));
+                enregistrer(ticket.id, etat, tentatives, e.getMessage());
+                publier(new TravailImpression(ticket.id, nom, ticket.cle, etat, tentatives, e.getMessage()));
+                if (!abandon) {
+                    // Un nouveau ticket réveille le travailleur et provoque un nouvel essai immédiat
+                    attendre(POLITIQUE.delai(tentatives));
+                }
+                return;
+            }
+            enregistrer(ticket.id, TravailImpression.Etat.IMPRIME, ticket.tentatives, null);
+            LOGGER.fine(String.format("Ticket %s imprimé sur %s en %d ms",
+                ticket.cle, nom, (System.nanoTime() - debut) / 1_000_000));
+            publier(new TravailImpression(ticket.id, nom, ticket.cle,
+                TravailImpression.Etat.IMPRIME, ticket.tentatives, null));
+        }
+
+        private void enregistrer(long id, TravailImpression.Etat etat, int tentatives, String message)
+                throws SQLException {
+            TransactionTemplate.execute(conn -> {
+                String sql = "UPDATE travaux_impression SET etat = ?, tentatives = ?, message = ?, " +
+                            "date_impression = ? WHERE id = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, etat.name());
+                    stmt.setInt(2, tentatives);
+                    stmt.setString(3, message);
+                    if (etat == TravailImpression.Etat.IMPRIME) {
+                        stmt.setLong(4, System.currentTimeMillis());
+                    } else {
+                        stmt.setNull(4, Types.INTEGER);
+                    }
+                    stmt.setLong(5, id);
+                    return stmt.executeUpdate();
+                }
+            });
+        }
+    }
+}
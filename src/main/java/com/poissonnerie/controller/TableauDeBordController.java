@@ -0,0 +1,175 @@
+package com.poissonnerie.controller;
+
+import com.poissonnerie.model.CatalogueProduits;
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.model.Indicateurs;
+import com.poissonnerie.model.MouvementCaisse;
+import com.poissonnerie.model.Vente;
+import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.EventBus;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Indicateurs du tableau de bord tenus à jour en continu : une requête d'agrégation
+// au démarrage, puis une mise à jour en temps constant à chaque vente, mouvement de
+// caisse ou nouvel instantané du catalogue. L'écran lit un instantané sans accès à la
+// base ; une vérification périodique recalcule les agrégats pour corriger toute dérive.
+public class TableauDeBordController {
+    private static final Logger LOGGER = Logger.getLogger(TableauDeBordController.class.getName());
+    private static final long VERIFICATION_MINUTES = Long.getLong("poissonnerie.kpi.checkMinutes", 15L);
+    private static final DateTimeFormatter FORMAT_DATE_CAISSE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String SQL_AGREGATS =
+        "SELECT " +
+        "(SELECT COALESCE(SUM(total), 0) FROM ventes WHERE supprime = false AND date >= ?) AS ventes_jour, " +
+        "(SELECT COALESCE(SUM(total), 0) FROM ventes WHERE supprime = false) AS chiffre_affaires, " +
+        "(SELECT COALESCE(MAX(id), 0) FROM ventes) AS derniere_vente, " +
+        "(SELECT COALESCE(SUM(montant), 0) FROM mouvements_caisse WHERE type = 'ENTREE' AND date >= ?) AS encaissements_jour, " +
+        "(SELECT COALESCE(MAX(id), 0) FROM mouvements_caisse) AS dernier_mouvement, " +
+        "(SELECT COUNT(*) FROM produits WHERE supprime = false AND stock <= 0) AS ruptures";
+
+    private volatile Indicateurs indicateurs;
+    private ScheduledExecutorService verification;
+
+    public TableauDeBordController() {
+        // Un seul thread pour les trois abonnements : les rafales sont appliquées hors du
+        // thread de l'éditeur, l'une après l'autre
+        EventBus bus = EventBus.getInstance();
+        Executor executeur = EventBus.executeurDedie("poissonnerie-indicateurs-evenements");
+        bus.abonner(Evenements.VenteEnregistree.class, executeur, this::appliquerVentes);
+        bus.abonner(Evenements.MouvementCaisseAjoute.class, executeur, this::appliquerMouvements);
+        bus.abonner(Evenements.CatalogueModifie.class, executeur, versions -> appliquerRuptures());
+    }
+
+    // Instantané courant ; calculé par la requête d'agrégation au premier appel
+    public Indicateurs getIndicateurs() {
+        Indicateurs courant = indicateurs;
+        if (courant == null || !courant.getJour().equals(LocalDate.now())) {
+            return recalculer();
+        }
+        return courant;
+    }
+
+    // Recalcule tous les agrégats en une requête et publie le résultat
+    public synchronized Indicateurs recalculer() {
+        LocalDate jour = LocalDate.now();
+        long debutJourMs = jour.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_AGREGATS)) {
+            stmt.setLong(1, debutJourMs);
+            stmt.setString(2, jour.atStartOfDay().format(FORMAT_DATE_CAISSE));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                Indicateurs calcules = new Indicateurs(jour,
+                    rs.getDouble("ventes_jour"),
+                    rs.getDouble("encaissements_jour"),
+                    rs.getInt("ruptures"),
+                    rs.getDouble("chiffre_affaires"),
+                    rs.getInt("derniere_vente"),
+                    rs.getInt("dernier_mouvement"));
+                signalerDerive(indicateurs, calcules);
+                publier(calcules);
+                return calcules;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du calcul des indicateurs", e);
+            throw new RuntimeException("Erreur lors du calcul des indicateurs: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized void appliquerVentes(List<Evenements.VenteEnregistree> evenements) {
+        Indicateurs courant = indicateurs;
+        if (courant == null) {
+            return;
+        }
+        for (Evenements.VenteEnregistree evenement : evenements) {
+            Vente vente = evenement.getVente();
+            // Déjà comptée par la requête d'agrégation
+            if (vente.getId() <= courant.getDerniereVenteId()) {
+                continue;
+            }
+            boolean duJour = vente.getDate().toLocalDate().equals(courant.getJour());
+            courant = courant.avecVente(vente.getId(), vente.getTotal(), duJour);
+        }
+        publier(courant);
+    }
+
+    private synchronized void appliquerMouvements(List<Evenements.MouvementCaisseAjoute> evenements) {
+        Indicateurs courant = indicateurs;
+        if (courant == null) {
+            return;
+        }
+        for (Evenements.MouvementCaisseAjoute evenement : evenements) {
+            MouvementCaisse mouvement = evenement.getMouvement();
+            if (mouvement.getId() <= courant.getDernierMouvementId()) {
+                continue;
+            }
+            double montant = mouvement.getType() == MouvementCaisse.TypeMouvement.ENTREE
+                && mouvement.getDate().toLocalDate().equals(courant.getJour()) ? mouvement.getMontant() : 0;
+            courant = courant.avecEncaissement(mouvement.getId(), montant);
+        }
+        publier(courant);
+    }
+
+    // Le nombre de ruptures est compté à la construction de chaque instantané du catalogue
+    private synchronized void appliquerRuptures() {
+        Indicateurs courant = indicateurs;
+        if (courant == null) {
+            return;
+        }
+        int ruptures = CatalogueProduits.getInstance().getSnapshot().getNombreRuptures();
+        if (ruptures != courant.getProduitsRupture()) {
+            publier(courant.avecRuptures(ruptures));
+        }
+    }
+
+    private void publier(Indicateurs nouveaux) {
+        if (nouveaux == indicateurs) {
+            return;
+        }
+        indicateurs = nouveaux;
+        EventBus.getInstance().publier(new Evenements.IndicateursModifies(nouveaux));
+    }
+
+    private void signalerDerive(Indicateurs tenus, Indicateurs calcules) {
+        if (tenus == null || !tenus.getJour().equals(calcules.getJour())) {
+            return;
+        }
+        if (Math.abs(tenus.getChiffreAffaires() - calcules.getChiffreAffaires()) > 0.01
+                || Math.abs(tenus.getEncaissementsJour() - calcules.getEncaissementsJour()) > 0.01
+                || tenus.getProduitsRupture() != calcules.getProduitsRupture()) {
+            LOGGER.warning("Indicateurs corrigés par la vérification : " + tenus + " -> " + calcules);
+        }
+    }
+
+    // Vérification de cohérence peu fréquente, qui gère aussi le changement de jour
+    public synchronized void demarrerVerification() {
+        if (verification != null) {
+            return;
+        }
+        verification = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "poissonnerie-indicateurs");
+            t.setDaemon(true);
+            return t;
+        });
+        verification.scheduleWithFixedDelay(() -> {
+            try {
+                recalculer();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Vérification des indicateurs en échec", e);
+            }
+        }, VERIFICATION_MINUTES, VERIFICATION_MINUTES, TimeUnit.MINUTES);
+    }
+}
@@ -1,29 +1,45 @@
 package com.poissonnerie.controller;
 
 import com.poissonnerie.model.UserAction;
+import com.google.gson.JsonObject;
+import com.poissonnerie.util.ArchiveJournal;
+import com.poissonnerie.util.AsyncBatchWriter;
 import com.poissonnerie.util.DatabaseManager;
 import java.sql.*;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class UserActionController {
     private static final Logger LOGGER = Logger.getLogger(UserActionController.class.getName());
-    private static final int MAX_RETRIES = 3;
-    private static final long RETRY_DELAY_MS = 100;
     private static UserActionController instance;
+    private static final String SQL_INSERT_ACTION =
+        "INSERT INTO user_actions (username, action_type, entity_type, entity_id, description, date_time, user_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final java.time.format.DateTimeFormatter FORMAT_DATE =
+        java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long JOURS_RETENTION = Long.getLong("poissonnerie.audit.retentionDays", 90L);
     private Integer currentUserId;
     private String currentUsername;
+    private final AsyncBatchWriter<UserAction> journal;
+    private ScheduledExecutorService retention;
 
     private UserActionController() {
-        try {
-            createTableIfNotExists();
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de l'initialisation de UserActionController", e);
-            throw new RuntimeException(e);
-        }
+        // La table user_actions est créée par les migrations de schéma
+        journal = new AsyncBatchWriter<>("journal-actions",
+            UserActionController::insererActions,
+            Integer.getInteger("poissonnerie.audit.queueCapacity", 10000),
+            Integer.getInteger("poissonnerie.audit.batchSize", 200),
+            Long.getLong("poissonnerie.audit.flushIntervalMs", 500L),
+            AsyncBatchWriter.Saturation.valueOf(
+                System.getProperty("poissonnerie.audit.saturation", "BLOQUER").toUpperCase()));
+        journal.start();
     }
 
     public static UserActionController getInstance() {
@@ -37,23 +53,6 @@ public class UserActionController {
         return instance;
     }
 
-    private void createTableIfNotExists() throws SQLException {
-        String sql = "CREATE TABLE IF NOT EXISTS user_actions (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "action_type TEXT NOT NULL," +
-                    "username TEXT NOT NULL," +
-                    "date_time TEXT NOT NULL," +
-                    "description TEXT NOT NULL," +
-                    "entity_type TEXT NOT NULL," +
-                    "entity_id INTEGER NOT NULL," +
-                    "user_id INTEGER)";
-
-        try (Connection conn = DatabaseManager.getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-        }
-    }
-
     public void setCurrentUser(Integer userId, String username) {
         this.currentUserId = userId;
         this.currentUsername = username;
@@ -73,86 +72,64 @@ public class UserActionController {
             action.setUserId(currentUserId);
         }
 
-        String sql = "INSERT INTO user_actions (username, action_type, entity_type, entity_id, description, date_time, user_id) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
-            Connection conn = null;
-            try {
-                conn = DatabaseManager.getConnection();
-                conn.setAutoCommit(false);
-
-                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    stmt.setString(1, action.getUsername());
-                    stmt.setString(2, action.getType().getValue());
-                    stmt.setString(3, action.getEntityType().getValue());
-                    stmt.setInt(4, action.getEntityId());
-                    stmt.setString(5, action.getDescription());
-                    stmt.setString(6, action.getDateTime().format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                    if (action.getUserId() != null) {
-                        stmt.setInt(7, action.getUserId());
-                    } else {
-                        stmt.setNull(7, java.sql.Types.INTEGER);
-                    }
+        // Écriture différée : l'appelant (souvent en pleine transaction métier) ne paie qu'un ajout en file
+        if (!journal.submit(action)) {
+            LOGGER.fine("File du journal saturée, action non journalisée : " + action.getDescription());
+        }
+    }
 
-                    stmt.executeUpdate();
-                    conn.commit();
-                    return;
-                }
-            } catch (SQLException e) {
-                if (conn != null) {
-                    try {
-                        conn.rollback();
-                    } catch (SQLException re) {
-                        LOGGER.log(Level.SEVERE, "Erreur lors du rollback", re);
-                    }
-                }
-                LOGGER.warning("Tentative " + (attempt + 1) + " échouée: " + e.getMessage());
-
-                if (attempt < MAX_RETRIES - 1) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * (1L << attempt));
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interruption pendant l'attente", ie);
-                    }
+    // Insère un lot d'actions en une seule requête préparée
+    private static void insererActions(Connection conn, List<UserAction> lot) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_ACTION)) {
+            for (UserAction action : lot) {
+                stmt.setString(1, action.getUsername());
+                stmt.setString(2, action.getType().getValue());
+                stmt.setString(3, action.getEntityType().getValue());
+                stmt.setInt(4, action.getEntityId());
+                stmt.setString(5, action.getDescription());
+                stmt.setString(6, action.getDateTime().format(FORMAT_DATE));
+                if (action.getUserId() != null) {
+                    stmt.setInt(7, action.getUserId());
                 } else {
-                    throw new RuntimeException("Échec de l'enregistrement après " + MAX_RETRIES + " tentatives", e);
-                }
-            } finally {
-                if (conn != null) {
-                    try {
-                        conn.close();
-                    } catch (SQLException e) {
-                        LOGGER.log(Level.SEVERE, "Erreur lors de la fermeture de la connexion", e);
-                    }
+                    stmt.setNull(7, java.sql.Types.INTEGER);
                 }
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         }
     }
+
+    // Écrit immédiatement les actions encore en file (avant une lecture du journal par exemple)
+    public void flush() {
+        journal.flush();
+    }
+
+    public Map<String, Long> getJournalStats() {
+        return journal.getStats();
+    }
+
     public List<UserAction> getActions(LocalDateTime debut, LocalDateTime fin) {
+        flush();
         List<UserAction> actions = new ArrayList<>();
         String sql = "SELECT * FROM user_actions WHERE date_time BETWEEN ? AND ? ORDER BY date_time DESC";
 
-        try (Connection conn = DatabaseManager.getConnection();
+        try (Connection conn = DatabaseManager.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, debut.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            pstmt.setString(2, fin.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            pstmt.setString(1, debut.format(FORMAT_DATE));
+            pstmt.setString(2, fin.format(FORMAT_DATE));
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     UserAction action = new UserAction(
-                        UserAction.ActionType.valueOf(rs.getString("action_type")),
+                        UserAction.ActionType.fromValue(rs.getString("action_type")),
                         rs.getString("username"),
                         rs.getString("description"),
-                        UserAction.EntityType.valueOf(rs.getString("entity_type")),
+                        UserAction.EntityType.fromValue(rs.getString("entity_type")),
                         rs.getInt("entity_id")
                     );
-                    action.setDateTime(LocalDateTime.parse(
-                        rs.getString("date_time"), 
-                        java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
-                    ));
+                    action.setId(rs.getInt("id"));
+                    action.setDateTime(LocalDateTime.parse(rs.getString("date_time"), FORMAT_DATE));
                     Object userId = rs.getObject("user_id");
                     if (userId != null) {
                         action.setUserId((Integer) userId);
@@ -166,20 +143,51 @@ public class UserActionController {
         }
         return actions;
     }
-    public void purgerActions(LocalDateTime dateLimite) {
-        String sql = "DELETE FROM user_actions WHERE date_time < ?";
-        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    // Déplace les actions antérieures à la date limite vers les archives compressées,
+    // par petits lots pour ne pas bloquer les écritures de la caisse
+    public int purgerActions(LocalDateTime dateLimite) {
+        flush();
+        int nbArchivees = ArchiveJournal.archiver(dateLimite);
+        LOGGER.info(String.format("Purge des actions utilisateur : %d entrées archivées", nbArchivees));
+        return nbArchivees;
+    }
 
-            pstmt.setString(1, dateLimite.format(formatter));
-            int nbSuppression = pstmt.executeUpdate();
+    // Archive les actions plus anciennes que la durée de rétention, une fois au démarrage puis chaque jour
+    public synchronized void planifierRetention() {
+        if (retention != null) {
+            return;
+        }
+        retention = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "poissonnerie-retention-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        retention.scheduleWithFixedDelay(() -> {
+            try {
+                purgerActions(LocalDateTime.now().minusDays(JOURS_RETENTION));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Archivage planifié du journal en échec", e);
+            }
+        }, 1, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
 
-            LOGGER.info(String.format("Purge des actions utilisateur : %d entrées supprimées", nbSuppression));
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de la purge des actions utilisateur", e);
-            throw new RuntimeException("Erreur lors de la purge des actions utilisateur", e);
+    public List<UserAction> getActionsArchivees(LocalDateTime debut, LocalDateTime fin) {
+        List<UserAction> actions = new ArrayList<>();
+        for (JsonObject ligne : ArchiveJournal.lire(debut, fin)) {
+            UserAction action = new UserAction(
+                UserAction.ActionType.fromValue(ligne.get("action_type").getAsString()),
+                ligne.get("username").getAsString(),
+                ligne.get("description").getAsString(),
+                UserAction.EntityType.fromValue(ligne.get("entity_type").getAsString()),
+                ligne.get("entity_id").getAsInt()
+            );
+            action.setId(ligne.get("id").getAsInt());
+            action.setDateTime(LocalDateTime.parse(ligne.get("date_time").getAsString(), FORMAT_DATE));
+            if (ligne.has("user_id")) {
+                action.setUserId(ligne.get("user_id").getAsInt());
+            }
+            actions.add(action);
         }
+        return actions;
     }
 }
\ No newline at end of file
@@ -1,12 +1,22 @@
 package com.poissonnerie.controller;
 
 import com.poissonnerie.model.*;
-import com.poissonnerie.util.DatabaseManager; 
+import com.poissonnerie.util.AgregatsVentes;
+import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.EventBus;
+import com.poissonnerie.util.TextBillPrinter;
+import com.poissonnerie.util.TransactionTemplate;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
@@ -15,8 +25,10 @@ public class VenteController {
     private static final Logger LOGGER = Logger.getLogger(VenteController.class.getName());
     private final List<Vente> ventes;
     private static final double LIMITE_CREDIT_MAX = 5000.0;
-    private static final int TRANSACTION_TIMEOUT_SECONDS = 30;
     private static final int BATCH_SIZE = 100;
+    private static final int TAILLE_PAGE_PARCOURS = Integer.getInteger("poissonnerie.rapports.pageSize", 500);
+    // Au-delà, un saut de l'ascenseur est estimé plutôt que compté ligne à ligne
+    private static final int SAUT_EXACT_MAX = Integer.getInteger("poissonnerie.ventes.sautExactMax", 1000);
     private final CaisseController caisseController;
 
     // Motifs de validation
@@ -25,197 +37,385 @@ public class VenteController {
     private static final int MAX_LIGNES_VENTE = 100;
 
     private static final String SQL_INSERT_VENTE = 
-        "INSERT INTO ventes (date, client_id, credit, total) VALUES (?, ?, ?, ?)";
+        "INSERT INTO ventes (date, client_id, credit, total, mode_paiement) VALUES (?, ?, ?, ?, ?)";
     private static final String SQL_INSERT_LIGNE_VENTE = 
         "INSERT INTO lignes_vente (vente_id, produit_id, quantite, prix_unitaire) VALUES (?, ?, ?, ?)";
-    private static final String SQL_UPDATE_STOCK = 
-        "UPDATE produits SET stock = stock - ? WHERE id = ? AND supprime = false AND stock >= ?";
+    // Quantités par produit passées en un seul objet JSON {"id": quantité, ...}
+    private static final String SQL_VERIFIER_STOCK =
+        "SELECT p.id, p.stock, CAST(d.value AS INTEGER) AS demande FROM produits p " +
+        "JOIN json_each(?) d ON p.id = CAST(d.key AS INTEGER) WHERE p.supprime = false";
+    private static final String SQL_UPDATE_STOCK =
+        "UPDATE produits SET stock = stock - d.quantite " +
+        "FROM (SELECT CAST(key AS INTEGER) AS produit_id, CAST(value AS INTEGER) AS quantite FROM json_each(?)) AS d " +
+        "WHERE produits.id = d.produit_id AND produits.supprime = false AND produits.stock >= d.quantite";
     private static final String SQL_UPDATE_SOLDE_CLIENT = 
         "UPDATE clients SET solde = solde + ? WHERE id = ? AND supprime = false AND " +
         "(solde + ?) <= ?";
 
     public VenteController() {
         this.ventes = new ArrayList<>();
-        this.caisseController = new CaisseController();
-        initializeDatabase();
+        this.caisseController = ApplicationContext.getInstance().getCaisseController();
     }
 
-    private void initializeDatabase() {
-        LOGGER.info("Initialisation des tables de la base de données...");
-        try (Connection conn = DatabaseManager.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            // Optimisation des paramètres SQLite
-            stmt.execute("PRAGMA foreign_keys = ON");
-            stmt.execute("PRAGMA busy_timeout = " + (TRANSACTION_TIMEOUT_SECONDS * 1000));
-            stmt.execute("PRAGMA cache_size = 2000");
-            stmt.execute("PRAGMA page_size = 4096");
-            stmt.execute("PRAGMA journal_mode = WAL");
-            stmt.execute("PRAGMA synchronous = NORMAL");
-
-            // Index optimisés pour les requêtes fréquentes
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_ventes_date ON ventes(date DESC)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_ventes_client_date ON ventes(client_id, date DESC)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_lignes_vente_produit_date ON lignes_vente(produit_id, vente_id)");
-
-            LOGGER.info("Base de données optimisée avec succès");
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de l'optimisation de la base de données", e);
-            throw new RuntimeException("Erreur d'initialisation de la base de données", e);
-        }
-    }
-
-    public List<Vente> getVentes() {
+    public synchronized List<Vente> getVentes() {
         return new ArrayList<>(ventes);
     }
 
-    public void chargerVentes() {
+    public synchronized void chargerVentes() {
         LOGGER.info("Chargement des ventes en cours...");
         ventes.clear();
+        ventes.addAll(chargerPageVentes(PageVentes.Filtre.aucun(), null, BATCH_SIZE,
+            PageVentes.Direction.SUIVANTE).getVentes());
+        LOGGER.info("Ventes chargées avec succès: " + ventes.size() + " ventes");
+    }
 
-        String sql = "SELECT v.*, c.* FROM ventes v " +
-                    "LEFT JOIN clients c ON v.client_id = c.id " +
-                    "WHERE v.supprime = false " +
-                    "ORDER BY v.date DESC LIMIT " + BATCH_SIZE;
-
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    // Page de l'historique par curseur (date, id). Sans curseur, retourne la page la plus
+    // récente (SUIVANTE) ou la plus ancienne (PRECEDENTE). Jamais d'OFFSET : chaque page
+    // est une recherche dans les index partiels des ventes actives.
+    public PageVentes chargerPageVentes(PageVentes.Filtre filtre, PageVentes.Curseur curseur,
+                                        int taille, PageVentes.Direction direction) {
+        if (taille <= 0) {
+            throw new IllegalArgumentException("La taille de page doit être positive");
+        }
+        if (filtre == null) {
+            filtre = PageVentes.Filtre.aucun();
+        }
+        boolean versAnciennes = direction != PageVentes.Direction.PRECEDENTE;
+
+        List<Object> parametres = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+            "SELECT v.id, v.date, v.client_id, v.credit, v.total, v.mode_paiement, " +
+            "c.nom, c.telephone, c.adresse, c.solde FROM ventes v " +
+            "LEFT JOIN clients c ON v.client_id = c.id " +
+            "WHERE v.supprime = false");
+        ajouterFiltre(sql, parametres, filtre);
+        if (curseur != null) {
+            sql.append(versAnciennes ? " AND (v.date, v.id) < (?, ?)" : " AND (v.date, v.id) > (?, ?)");
+            parametres.add(curseur.getDate());
+            parametres.add(curseur.getId());
+        }
+        sql.append(versAnciennes ? " ORDER BY v.date DESC, v.id DESC" : " ORDER BY v.date ASC, v.id ASC");
+        // Une ligne de plus pour savoir s'il reste une page dans cette direction
+        sql.append(" LIMIT ?");
+        parametres.add(taille + 1);
+
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parametres.size(); i++) {
+                stmt.setObject(i + 1, parametres.get(i));
+            }
 
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Client client = null;
-                if (rs.getObject("client_id") != null) {
-                    client = creerClientDepuisResultSet(rs);
+            List<Vente> page = new ArrayList<>();
+            List<PageVentes.Curseur> curseurs = new ArrayList<>();
+            Map<Integer, Client> clientsParId = new HashMap<>();
+            boolean encore = false;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (page.size() == taille) {
+                        encore = true;
+                        break;
+                    }
+                    page.add(creerVenteDepuisResultSet(rs, clientsParId));
+                    curseurs.add(new PageVentes.Curseur(rs.getLong("date"), rs.getInt("id")));
                 }
+            }
+            chargerLignesVentes(conn, page);
 
-                Vente vente = new Vente(
-                    rs.getInt("id"),
-                    LocalDateTime.ofInstant(
-                        Instant.ofEpochMilli(rs.getLong("date")),
-                        java.time.ZoneId.systemDefault()
-                    ),
-                    client,
-                    rs.getBoolean("credit"),
-                    rs.getDouble("total"),
-                    rs.getBoolean("credit") ? Vente.ModePaiement.CREDIT : Vente.ModePaiement.ESPECES
-                );
+            if (!versAnciennes) {
+                Collections.reverse(page);
+                Collections.reverse(curseurs);
+            }
+            PageVentes.Curseur premier = curseurs.isEmpty() ? null : curseurs.get(0);
+            PageVentes.Curseur dernier = curseurs.isEmpty() ? null : curseurs.get(curseurs.size() - 1);
+            boolean precedente = versAnciennes ? curseur != null : encore;
+            boolean suivante = versAnciennes ? encore : curseur != null;
+            return new PageVentes(page, premier, dernier, precedente, suivante);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du chargement d'une page de ventes", e);
+            throw new RuntimeException("Erreur lors du chargement des ventes", e);
+        }
+    }
+
+    // Parcourt les ventes de la période (bornes incluses), de la plus récente à la plus
+    // ancienne, page par page : la mémoire utilisée ne dépend que de la taille d'une page
+    public void parcourirVentes(LocalDateTime debut, LocalDateTime fin, Consumer<Vente> consommateur) {
+        PageVentes.Filtre filtre = new PageVentes.Filtre(null, null,
+            debut == null ? null : versEpochMs(debut), fin == null ? null : versEpochMs(fin));
+        PageVentes.Curseur curseur = null;
+        PageVentes page;
+        do {
+            page = chargerPageVentes(filtre, curseur, TAILLE_PAGE_PARCOURS, PageVentes.Direction.SUIVANTE);
+            page.getVentes().forEach(consommateur);
+            curseur = page.getDernier();
+        } while (page.hasPageSuivante());
+    }
+
+    private static long versEpochMs(LocalDateTime date) {
+        return date.atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Curseur de la vente située 'saut' positions après 'depuis' (ou après le début de
+    // l'historique si null), pour atteindre directement une position de la liste, par
+    // exemple après un déplacement de l'ascenseur. 'jusqua' est le premier curseur connu
+    // au-delà de la cible (null : fin de l'historique) et 'intervalle' le nombre de ventes
+    // qui l'en séparent de 'depuis'. Un saut court est exact : il ne lit que les clés
+    // (date, id) des ventes sautées. Un saut plus long est estimé par interpolation de la
+    // date entre les deux bornes, puis atteint par une recherche dans l'index : son coût ne
+    // dépend pas de la distance, mais la position obtenue est approchée.
+    // Null si aucune vente ne suit 'depuis'.
+    public PageVentes.Curseur localiserCurseur(PageVentes.Filtre filtre, PageVentes.Curseur depuis,
+                                               PageVentes.Curseur jusqua, int saut, int intervalle) {
+        if (saut < 0) {
+            throw new IllegalArgumentException("Le saut doit être positif ou nul");
+        }
+        PageVentes.Filtre f = filtre != null ? filtre : PageVentes.Filtre.aucun();
+        try (Connection conn = DatabaseManager.getReadConnection()) {
+            if (saut < SAUT_EXACT_MAX) {
+                List<PageVentes.Curseur> cles = lireCles(conn, f, depuis, null, null, true, saut + 1);
+                return cles.size() == saut + 1 ? cles.get(saut) : null;
+            }
 
-                chargerLignesVente(conn, vente);
-                ventes.add(vente);
+            Long haut = depuis != null ? Long.valueOf(depuis.getDate()) : premiereDate(conn, f, true);
+            Long bas = jusqua != null ? Long.valueOf(jusqua.getDate()) : premiereDate(conn, f, false);
+            if (haut == null || bas == null) {
+                return null;
             }
+            double fraction = intervalle > saut ? (saut + 1.0) / intervalle : 1.0;
+            long cible = haut - Math.round((haut - bas) * fraction);
 
-            LOGGER.info("Ventes chargées avec succès: " + ventes.size() + " ventes");
+            List<PageVentes.Curseur> cles = lireCles(conn, f, depuis, jusqua, cible, true, 1);
+            if (cles.isEmpty()) {
+                // Aucune vente entre les bornes avant la date visée : la suivante de 'depuis'
+                cles = lireCles(conn, f, depuis, null, null, true, 1);
+            }
+            return cles.isEmpty() ? null : cles.get(0);
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors du chargement des ventes", e);
+            LOGGER.log(Level.SEVERE, "Erreur lors de la localisation d'une position de l'historique", e);
             throw new RuntimeException("Erreur lors du chargement des ventes", e);
         }
     }
 
-    private void chargerLignesVente(Connection conn, Vente vente) throws SQLException {
-        String sql = "SELECT l.*, p.* FROM lignes_vente l " +
+    // Clés (date, id) des ventes strictement entre 'apres' et 'avant' dans l'ordre de
+    // l'historique, de date au plus 'dateMax' ; lecture de l'index seul
+    private List<PageVentes.Curseur> lireCles(Connection conn, PageVentes.Filtre filtre,
+                                              PageVentes.Curseur apres, PageVentes.Curseur avant,
+                                              Long dateMax, boolean decroissant, int limite) throws SQLException {
+        List<Object> parametres = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT v.date, v.id FROM ventes v WHERE v.supprime = false");
+        ajouterFiltre(sql, parametres, filtre);
+        if (apres != null) {
+            sql.append(" AND (v.date, v.id) < (?, ?)");
+            parametres.add(apres.getDate());
+            parametres.add(apres.getId());
+        }
+        if (avant != null) {
+            sql.append(" AND (v.date, v.id) > (?, ?)");
+            parametres.add(avant.getDate());
+            parametres.add(avant.getId());
+        }
+        if (dateMax != null) {
+            sql.append(" AND v.date <= ?");
+            parametres.add(dateMax);
+        }
+        sql.append(decroissant ? " ORDER BY v.date DESC, v.id DESC" : " ORDER BY v.date ASC, v.id ASC");
+        sql.append(" LIMIT ?");
+        parametres.add(limite);
+
+        List<PageVentes.Curseur> cles = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parametres.size(); i++) {
+                stmt.setObject(i + 1, parametres.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    cles.add(new PageVentes.Curseur(rs.getLong(1), rs.getInt(2)));
+                }
+            }
+        }
+        return cles;
+    }
+
+    // Date de la vente la plus récente (ou la plus ancienne) correspondant au filtre
+    private Long premiereDate(Connection conn, PageVentes.Filtre filtre, boolean plusRecente) throws SQLException {
+        List<PageVentes.Curseur> cles = lireCles(conn, filtre, null, null, null, plusRecente, 1);
+        return cles.isEmpty() ? null : cles.get(0).getDate();
+    }
+
+    // Nombre de ventes actives correspondant au filtre, compté sur un index partiel
+    public int compterVentes(PageVentes.Filtre filtre) {
+        List<Object> parametres = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ventes v WHERE v.supprime = false");
+        ajouterFiltre(sql, parametres, filtre != null ? filtre : PageVentes.Filtre.aucun());
+
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parametres.size(); i++) {
+                stmt.setObject(i + 1, parametres.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du comptage des ventes", e);
+            throw new RuntimeException("Erreur lors du comptage des ventes", e);
+        }
+    }
+
+    private void ajouterFiltre(StringBuilder sql, List<Object> parametres, PageVentes.Filtre filtre) {
+        if (filtre.getClientId() != null) {
+            sql.append(" AND v.client_id = ?");
+            parametres.add(filtre.getClientId());
+        }
+        if (filtre.getCredit() != null) {
+            sql.append(" AND v.credit = ?");
+            parametres.add(filtre.getCredit() ? 1 : 0);
+        }
+        if (filtre.getDateMin() != null) {
+            sql.append(" AND v.date >= ?");
+            parametres.add(filtre.getDateMin());
+        }
+        if (filtre.getDateMax() != null) {
+            sql.append(" AND v.date <= ?");
+            parametres.add(filtre.getDateMax());
+        }
+    }
+
+    private Vente creerVenteDepuisResultSet(ResultSet rs, Map<Integer, Client> clientsParId) throws SQLException {
+        Client client = null;
+        if (rs.getObject("client_id") != null) {
+            int clientId = rs.getInt("client_id");
+            client = clientsParId.get(clientId);
+            if (client == null) {
+                client = creerClientDepuisResultSet(rs);
+                clientsParId.put(clientId, client);
+            }
+        }
+
+        boolean credit = rs.getBoolean("credit");
+        // Ventes antérieures à la migration 010 : mode déduit du drapeau credit
+        String mode = rs.getString("mode_paiement");
+        return new Vente(
+            rs.getInt("id"),
+            LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(rs.getLong("date")),
+                java.time.ZoneId.systemDefault()
+            ),
+            client,
+            credit,
+            rs.getDouble("total"),
+            mode != null ? Vente.ModePaiement.valueOf(mode)
+                : credit ? Vente.ModePaiement.CREDIT : Vente.ModePaiement.ESPECES
+        );
+    }
+
+    // Hydrate les lignes de toutes les ventes en une seule requête : les IDs sont passés
+    // comme un tableau JSON lié à un unique paramètre, quelle que soit la taille de la page
+    private void chargerLignesVentes(Connection conn, List<Vente> ventesACharger) throws SQLException {
+        if (ventesACharger.isEmpty()) {
+            return;
+        }
+
+        String sql = "SELECT l.vente_id, l.produit_id, l.quantite, l.prix_unitaire, " +
+                    "p.nom, p.categorie, p.prix_achat, p.prix_vente, p.stock, p.seuil_alerte " +
+                    "FROM lignes_vente l " +
                     "JOIN produits p ON l.produit_id = p.id " +
-                    "WHERE l.vente_id = ?";
+                    "WHERE l.vente_id IN (SELECT value FROM json_each(?)) " +
+                    "ORDER BY l.vente_id, l.id";
+
+        StringJoiner ids = new StringJoiner(",", "[", "]");
+        for (Vente vente : ventesACharger) {
+            ids.add(String.valueOf(vente.getId()));
+        }
+
+        Map<Integer, List<Vente.LigneVente>> lignesParVente = new HashMap<>();
+        // Une seule instance de Produit par ID, partagée entre les lignes
+        Map<Integer, Produit> produitsParId = new HashMap<>();
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, vente.getId());
+            pstmt.setString(1, ids.toString());
             pstmt.setFetchSize(BATCH_SIZE);
 
-            List<Vente.LigneVente> lignes = new ArrayList<>();
-            ResultSet rs = pstmt.executeQuery();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int quantite = rs.getInt("quantite");
+                    double prixUnitaire = rs.getDouble("prix_unitaire");
 
-            while (rs.next()) {
-                Produit produit = creerProduitDepuisResultSet(rs);
-                validateProduit(produit);
+                    if (quantite <= 0 || prixUnitaire <= 0) {
+                        LOGGER.warning("Ligne de vente invalide ignorée: quantité=" + quantite + ", prix=" + prixUnitaire);
+                        continue;
+                    }
 
-                int quantite = rs.getInt("quantite");
-                double prixUnitaire = rs.getDouble("prix_unitaire");
+                    int produitId = rs.getInt("produit_id");
+                    Produit produit = produitsParId.get(produitId);
+                    if (produit == null) {
+                        produit = creerProduitDepuisResultSet(rs);
+                        validateProduit(produit);
+                        produitsParId.put(produitId, produit);
+                    }
 
-                if (quantite <= 0 || prixUnitaire <= 0) {
-                    LOGGER.warning("Ligne de vente invalide ignorée: quantité=" + quantite + ", prix=" + prixUnitaire);
-                    continue;
+                    lignesParVente.computeIfAbsent(rs.getInt("vente_id"), k -> new ArrayList<>())
+                        .add(new Vente.LigneVente(produit, quantite, prixUnitaire));
                 }
-
-                lignes.add(new Vente.LigneVente(produit, quantite, prixUnitaire));
             }
+        }
 
+        for (Vente vente : ventesACharger) {
+            List<Vente.LigneVente> lignes = lignesParVente.getOrDefault(vente.getId(), new ArrayList<>());
             if (lignes.size() > MAX_LIGNES_VENTE) {
                 throw new SQLException("Nombre maximum de lignes dépassé: " + lignes.size());
             }
-
             vente.setLignes(lignes);
         }
     }
 
     public void enregistrerVente(Vente vente) {
+        enregistrerVente(vente, false);
+    }
+
+    // Avec imprimerTicket, le ticket est mis dans la file d'impression par la même
+    // transaction que la vente : il ne peut être ni perdu ni imprimé pour une vente annulée
+    public void enregistrerVente(Vente vente, boolean imprimerTicket) {
         LOGGER.info("Début de l'enregistrement de la vente...");
         validateVente(vente);
+        SpoolerImpression spooler = imprimerTicket ? ApplicationContext.getInstance().getSpoolerImpression() : null;
 
-        Connection conn = null;
         try {
-            conn = DatabaseManager.getConnection();
-            conn.setAutoCommit(false);
-            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
-
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON");
-                stmt.execute("PRAGMA busy_timeout = " + (TRANSACTION_TIMEOUT_SECONDS * 1000));
-
-                // Vérification du stock avec retries
-                int retryCount = 0;
-                boolean success = false;
-                while (!success && retryCount < 3) {
-                    try {
-                        verifierStockSuffisant(conn, vente.getLignes());
-                        success = true;
-                    } catch (SQLException e) {
-                        if (e.getMessage().contains("database is locked") && retryCount < 2) {
-                            retryCount++;
-                            Thread.sleep(1000);
-                        } else {
-                            throw e;
-                        }
-                    }
-                }
-
-                // Insertion de la vente avec generated keys
-                int venteId = insererVente(conn, vente);
-                vente.setId(venteId);
+            // Transaction unique via l'écrivain : stock, vente, lignes, agrégats et solde client
+            Map<Integer, Integer> quantites = quantitesParProduit(vente.getLignes());
+            int venteId = TransactionTemplate.execute(conn -> {
+                verifierStockSuffisant(conn, vente.getLignes(), quantites);
 
-                // Insertion des lignes et mise à jour des stocks
-                insererLigneVente(conn, venteId, vente);
+                int id = insererVente(conn, vente);
+                insererLigneVente(conn, id, vente);
+                AgregatsVentes.enregistrer(conn, id, vente);
+                mettreAJourStocks(conn, quantites);
 
-                // Mise à jour du solde client si nécessaire
                 if (vente.isCredit() && vente.getClient() != null) {
                     mettreAJourSoldeClient(conn, vente);
                 }
-
-                conn.commit();
-                ventes.add(vente);
-                LOGGER.info("Vente enregistrée avec succès, ID: " + vente.getId());
-
-            } catch (Exception e) {
-                if (conn != null) {
-                    try {
-                        conn.rollback();
-                    } catch (SQLException re) {
-                        LOGGER.log(Level.SEVERE, "Erreur lors du rollback", re);
-                    }
+                if (spooler != null) {
+                    // Le numéro du ticket est celui de la vente
+                    vente.setId(id);
+                    spooler.ajouter(conn, SpoolerImpression.CAISSE, "vente:" + id,
+                        new TextBillPrinter(vente).genererEscPos());
                 }
-                LOGGER.log(Level.SEVERE, "Erreur lors de l'enregistrement de la vente", e);
-                throw new RuntimeException("Erreur lors de l'enregistrement: " + e.getMessage(), e);
+                return id;
+            });
+            if (spooler != null) {
+                spooler.signaler(SpoolerImpression.CAISSE);
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Erreur fatale lors de l'enregistrement de la vente", e);
-            throw new RuntimeException("Erreur d'enregistrement: " + e.getMessage(), e);
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors de la fermeture de la connexion", e);
-                }
+
+            vente.setId(venteId);
+            ventes.add(vente);
+            if (vente.isCredit() && vente.getClient() != null) {
+                vente.getClient().setSolde(vente.getClient().getSolde() + vente.getTotal());
             }
+            CatalogueProduits.getInstance().invalider();
+            EventBus.getInstance().publier(new Evenements.VenteEnregistree(vente));
+            LOGGER.info("Vente enregistrée avec succès, ID: " + vente.getId());
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'enregistrement de la vente", e);
+            throw new RuntimeException("Erreur lors de l'enregistrement: " + e.getMessage(), e);
         }
     }
 
@@ -277,32 +477,54 @@ public class VenteController {
         }
     }
 
-    private void verifierStockSuffisant(Connection conn, List<Vente.LigneVente> lignes) throws SQLException {
-        String sql = "SELECT p.id, p.stock FROM produits p WHERE p.id = ?";
+    // Un même produit peut figurer sur plusieurs lignes : le stock est contrôlé sur le cumul
+    private Map<Integer, Integer> quantitesParProduit(List<Vente.LigneVente> lignes) {
+        Map<Integer, Integer> quantites = new LinkedHashMap<>();
+        for (Vente.LigneVente ligne : lignes) {
+            quantites.merge(ligne.getProduit().getId(), ligne.getQuantite(), Integer::sum);
+        }
+        return quantites;
+    }
+
+    private static String versJson(Map<Integer, Integer> quantites) {
+        StringJoiner json = new StringJoiner(",", "{", "}");
+        quantites.forEach((id, quantite) -> json.add("\"" + id + "\":" + quantite));
+        return json.toString();
+    }
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (Vente.LigneVente ligne : lignes) {
-                pstmt.setInt(1, ligne.getProduit().getId());
-
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        int stockActuel = rs.getInt("stock");
-                        if (stockActuel < ligne.getQuantite()) {
-                            throw new SQLException(
-                                String.format("Stock insuffisant pour %s. Stock: %d, Demandé: %d",
-                                    ligne.getProduit().getNom(), stockActuel, ligne.getQuantite())
-                            );
-                        }
-                    } else {
-                        throw new SQLException("Produit non trouvé: " + ligne.getProduit().getId());
-                    }
+    // Contrôle de tous les produits en une requête. Exécuté dans la transaction d'écriture
+    // (BEGIN IMMEDIATE) : aucun autre écrivain ne peut modifier le stock avant la mise à jour.
+    private void verifierStockSuffisant(Connection conn, List<Vente.LigneVente> lignes,
+                                        Map<Integer, Integer> quantites) throws SQLException {
+        Map<Integer, Integer> stocks = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_VERIFIER_STOCK)) {
+            pstmt.setString(1, versJson(quantites));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stocks.put(rs.getInt("id"), rs.getInt("stock"));
                 }
             }
         }
+
+        // Erreur sur le premier produit en défaut, dans l'ordre des lignes
+        for (Vente.LigneVente ligne : lignes) {
+            int produitId = ligne.getProduit().getId();
+            Integer stockActuel = stocks.get(produitId);
+            if (stockActuel == null) {
+                throw new SQLException("Produit non trouvé: " + produitId);
+            }
+            int demande = quantites.get(produitId);
+            if (stockActuel < demande) {
+                throw new SQLException(
+                    String.format("Stock insuffisant pour %s. Stock: %d, Demandé: %d",
+                        ligne.getProduit().getNom(), stockActuel, demande)
+                );
+            }
+        }
     }
 
     private int insererVente(Connection conn, Vente vente) throws SQLException {
-        String sql = "INSERT INTO ventes (date, client_id, credit, total) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO ventes (date, client_id, credit, total, mode_paiement) VALUES (?, ?, ?, ?, ?)";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             long timestamp = vente.getDate().atZone(java.time.ZoneId.systemDefault())
@@ -316,6 +538,7 @@ public class VenteController {
             }
             pstmt.setBoolean(3, vente.isCredit());
             pstmt.setDouble(4, vente.getTotal());
+            pstmt.setString(5, vente.getModePaiement().name());
 
             pstmt.executeUpdate();
 
@@ -330,46 +553,33 @@ public class VenteController {
     }
 
     private void insererLigneVente(Connection conn, int venteId, Vente vente) throws SQLException {
-        // Remove nested transaction management since it's handled by the parent method
-        for (Vente.LigneVente ligne : vente.getLignes()) {
-            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_LIGNE_VENTE)) {
+        // Toutes les lignes en un seul lot, dans la transaction de la vente
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_LIGNE_VENTE)) {
+            for (Vente.LigneVente ligne : vente.getLignes()) {
                 stmt.setInt(1, venteId);
                 stmt.setInt(2, ligne.getProduit().getId());
                 stmt.setInt(3, ligne.getQuantite());
                 stmt.setDouble(4, ligne.getPrixUnitaire());
-                stmt.executeUpdate();
-
-                // Update stock in the same transaction
-                try (PreparedStatement updateStmt = conn.prepareStatement(SQL_UPDATE_STOCK)) {
-                    updateStmt.setInt(1, ligne.getQuantite());
-                    updateStmt.setInt(2, ligne.getProduit().getId());
-                    updateStmt.setInt(3, ligne.getQuantite());
-                    int rowsAffected = updateStmt.executeUpdate();
-                    if (rowsAffected == 0) {
-                        throw new SQLException("Stock insuffisant pour le produit: " + sanitizeInput(ligne.getProduit().getNom()));
-                    }
-                }
+                stmt.addBatch();
             }
+            stmt.executeBatch();
         }
     }
 
-    private void mettreAJourStock(Connection conn, Vente.LigneVente ligne) throws SQLException {
-        String sql = "UPDATE produits SET stock = stock - ? WHERE id = ? AND supprime = false AND stock >= ?";
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, ligne.getQuantite());
-            pstmt.setInt(2, ligne.getProduit().getId());
-            pstmt.setInt(3, ligne.getQuantite());
-
+    // Décrément de tous les stocks en une seule instruction. Le produit en défaut est déjà
+    // désigné par verifierStockSuffisant ; la condition stock >= quantité reste une garde
+    // qui annule la transaction entière si un produit n'a pas été mis à jour.
+    private void mettreAJourStocks(Connection conn, Map<Integer, Integer> quantites) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_UPDATE_STOCK)) {
+            pstmt.setString(1, versJson(quantites));
             int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("Stock insuffisant pour le produit: " + sanitizeInput(ligne.getProduit().getNom()));
+            if (rowsAffected != quantites.size()) {
+                throw new SQLException(String.format("Stock modifié pendant la vente: %d produit(s) sur %d mis à jour",
+                    rowsAffected, quantites.size()));
             }
-            LOGGER.info("Stock mis à jour pour le produit " + ligne.getProduit().getId());
         }
     }
 
-
     private Client creerClientDepuisResultSet(ResultSet rs) throws SQLException {
         try {
             int clientId = rs.getInt("client_id");
@@ -0,0 +1,266 @@
+package com.poissonnerie.model;
+
+import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.EventBus;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Catalogue des produits partagé par toute l'application. Les lecteurs obtiennent un
+// instantané immuable (liste et index par ID, référence, catégorie et fournisseur) sans
+// aucun verrou ; chaque modification du catalogue (ajout, mise à jour, suppression, vente,
+// ajustement de stock) appelle invalider(), qui relit uniquement les produits dont la
+// révision a changé et publie un nouvel instantané de version supérieure. Des invalidations
+// simultanées sont regroupées en une seule relecture.
+public final class CatalogueProduits {
+    private static final Logger LOGGER = Logger.getLogger(CatalogueProduits.class.getName());
+    private static final int CHUNK_SIZE = Integer.getInteger("poissonnerie.produits.chunkSize", 500);
+    private static final String SQL_SELECT_PRODUITS =
+        "SELECT id, nom, categorie, prix_achat, prix_vente, stock, seuil_alerte, fournisseur_id, supprime, revision " +
+        "FROM produits ";
+    private static volatile CatalogueProduits instance;
+
+    private volatile Snapshot snapshot;
+    private final AtomicLong invalidations = new AtomicLong();
+    private long invalidationsAppliquees;
+    private final Object verrouChargement = new Object();
+
+    // Contenu du catalogue à une version donnée ; les collections ne sont jamais modifiées
+    // après publication, un produit relu remplace l'ancienne instance au lieu de la modifier
+    public static final class Snapshot {
+        private final long version;
+        private final long revision;
+        private final List<Produit> produits;
+        private final Map<Integer, Produit> parId;
+        private final Map<String, Produit> parReference;
+        private final Map<String, List<Produit>> parCategorie;
+        private final Map<Integer, List<Produit>> parFournisseur;
+        private final int nombreRuptures;
+
+        private Snapshot(long version, long revision, Map<Integer, Produit> produitsParId) {
+            this.version = version;
+            this.revision = revision;
+            this.parId = Collections.unmodifiableMap(produitsParId);
+            this.produits = Collections.unmodifiableList(new ArrayList<>(produitsParId.values()));
+
+            Map<String, Produit> references = new HashMap<>();
+            Map<String, List<Produit>> categories = new TreeMap<>();
+            Map<Integer, List<Produit>> fournisseurs = new HashMap<>();
+            int ruptures = 0;
+            for (Produit produit : produits) {
+                if (produit.getStock() <= 0) {
+                    ruptures++;
+                }
+                references.put(produit.getReference(), produit);
+                categories.computeIfAbsent(produit.getCategorie(), k -> new ArrayList<>()).add(produit);
+                fournisseurs.computeIfAbsent(produit.getFournisseurId(), k -> new ArrayList<>()).add(produit);
+            }
+            categories.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            fournisseurs.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            this.parReference = Collections.unmodifiableMap(references);
+            this.parCategorie = Collections.unmodifiableMap(categories);
+            this.parFournisseur = Collections.unmodifiableMap(fournisseurs);
+            this.nombreRuptures = ruptures;
+        }
+
+        public long getVersion() { return version; }
+        public long getRevision() { return revision; }
+        public List<Produit> getProduits() { return produits; }
+        public int size() { return produits.size(); }
+        public int getNombreRuptures() { return nombreRuptures; }
+
+        public Produit getParId(int id) {
+            return parId.get(id);
+        }
+
+        public Produit getParReference(String reference) {
+            return reference == null ? null : parReference.get(reference.trim().toUpperCase());
+        }
+
+        public List<Produit> getParCategorie(String categorie) {
+            return parCategorie.getOrDefault(categorie, Collections.emptyList());
+        }
+
+        public List<Produit> getParFournisseur(int fournisseurId) {
+            return parFournisseur.getOrDefault(fournisseurId, Collections.emptyList());
+        }
+
+        public Map<String, List<Produit>> getCategories() {
+            return parCategorie;
+        }
+    }
+
+    private CatalogueProduits() {
+    }
+
+    public static CatalogueProduits getInstance() {
+        if (instance == null) {
+            synchronized (CatalogueProduits.class) {
+                if (instance == null) {
+                    instance = new CatalogueProduits();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Instantané courant ; seul le tout premier appel attend le chargement initial
+    public Snapshot getSnapshot() {
+        Snapshot courant = snapshot;
+        if (courant != null) {
+            return courant;
+        }
+        synchronized (verrouChargement) {
+            if (snapshot == null) {
+                recharger();
+            }
+            return snapshot;
+        }
+    }
+
+    public long getVersion() {
+        return getSnapshot().getVersion();
+    }
+
+    // Lecture directe de la base, sans toucher à l'instantané partagé : le résultat reflète
+    // la connexion de lecture courante (celle d'un InstantaneLecture pour un lot de rapports)
+    public List<Produit> lireProduits() {
+        try (Connection conn = DatabaseManager.getReadConnection()) {
+            return chargerComplet(conn).getProduits();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture des produits", e);
+            throw new RuntimeException("Erreur lors de la lecture des produits", e);
+        }
+    }
+
+    // À appeler après la validation de toute transaction modifiant la table produits
+    public void invalider() {
+        long demande = invalidations.incrementAndGet();
+        synchronized (verrouChargement) {
+            // Une relecture commencée après cette invalidation l'a déjà prise en compte
+            if (invalidationsAppliquees >= demande) {
+                return;
+            }
+            try {
+                recharger();
+            } catch (RuntimeException e) {
+                // La modification est déjà validée en base : la prochaine invalidation la reprendra
+                LOGGER.log(Level.WARNING, "Rafraîchissement du catalogue reporté", e);
+            }
+        }
+    }
+
+    private void recharger() {
+        long cible = invalidations.get();
+        try (Connection conn = DatabaseManager.getReadConnection()) {
+            Snapshot precedent = snapshot;
+            snapshot = precedent == null ? chargerComplet(conn) : rafraichir(conn, precedent);
+            invalidationsAppliquees = cible;
+            if (precedent != null && snapshot != precedent) {
+                EventBus.getInstance().publier(new Evenements.CatalogueModifie(snapshot.getVersion()));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du chargement des produits", e);
+            throw new RuntimeException("Erreur lors du chargement des produits", e);
+        }
+    }
+
+    private Snapshot chargerComplet(Connection conn) throws SQLException {
+        // La révision est lue avant les tranches : une modification concurrente sera
+        // reprise par le prochain rafraîchissement
+        long revision = lireRevisionMax(conn);
+        Map<Integer, Produit> produits = new LinkedHashMap<>();
+        String sql = SQL_SELECT_PRODUITS + "WHERE supprime = false AND id > ? ORDER BY id LIMIT ?";
+        int dernierId = 0;
+        int lus;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            do {
+                lus = 0;
+                stmt.setInt(1, dernierId);
+                stmt.setInt(2, CHUNK_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Produit produit = creerProduitDepuisResultSet(rs);
+                        produits.put(produit.getId(), produit);
+                        dernierId = produit.getId();
+                        lus++;
+                    }
+                }
+            } while (lus == CHUNK_SIZE);
+        }
+        LOGGER.info("Catalogue chargé: " + produits.size() + " produits (révision " + revision + ")");
+        return new Snapshot(1, revision, produits);
+    }
+
+    // Seules les lignes dont la révision dépasse celle de l'instantané sont relues ; les
+    // produits modifiés sont remplacés par de nouvelles instances
+    private Snapshot rafraichir(Connection conn, Snapshot precedent) throws SQLException {
+        Map<Integer, Produit> modifies = new LinkedHashMap<>();
+        List<Integer> supprimes = new ArrayList<>();
+        long revision = precedent.revision;
+        String sql = SQL_SELECT_PRODUITS + "WHERE revision > ? ORDER BY revision";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, precedent.revision);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    revision = Math.max(revision, rs.getLong("revision"));
+                    if (rs.getBoolean("supprime")) {
+                        supprimes.add(rs.getInt("id"));
+                        modifies.remove(rs.getInt("id"));
+                    } else {
+                        modifies.put(rs.getInt("id"), creerProduitDepuisResultSet(rs));
+                    }
+                }
+            }
+        }
+        if (modifies.isEmpty() && supprimes.isEmpty()) {
+            return precedent;
+        }
+
+        Map<Integer, Produit> produits = new LinkedHashMap<>(precedent.parId);
+        supprimes.forEach(produits::remove);
+        boolean nouveauxProduits = false;
+        for (Produit produit : modifies.values()) {
+            nouveauxProduits |= produits.put(produit.getId(), produit) == null;
+        }
+        if (nouveauxProduits) {
+            // Conserve l'ordre des IDs attendu par les écrans
+            produits = new LinkedHashMap<>(new TreeMap<>(produits));
+        }
+        LOGGER.fine(String.format("%d produit(s) rafraîchi(s), %d retiré(s) (révision %d)",
+            modifies.size(), supprimes.size(), revision));
+        return new Snapshot(precedent.version + 1, revision, produits);
+    }
+
+    private Produit creerProduitDepuisResultSet(ResultSet rs) throws SQLException {
+        Produit produit = new Produit(
+            rs.getInt("id"),
+            rs.getString("nom"),
+            rs.getString("categorie"),
+            rs.getDouble("prix_achat"),
+            rs.getDouble("prix_vente"),
+            rs.getInt("stock"),
+            rs.getInt("seuil_alerte")
+        );
+        produit.setFournisseurId(rs.getInt("fournisseur_id"));
+        return produit;
+    }
+
+    private long lireRevisionMax(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(revision), 0) FROM produits");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
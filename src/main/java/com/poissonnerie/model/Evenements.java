@@ -0,0 +1,110 @@
+package com.poissonnerie.model;
+
+// Événements métier publiés sur l'EventBus après la validation de la transaction
+// correspondante. Les événements sont immuables, mais les objets métier qu'ils transportent
+// (Vente, Client, MouvementCaisse...) sont partagés avec l'éditeur : les abonnés les lisent
+// sans les modifier.
+public final class Evenements {
+
+    private Evenements() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    // Type commun, pour s'abonner à tous les événements à la fois
+    public interface Evenement {
+    }
+
+    public static final class VenteEnregistree implements Evenement {
+        private final Vente vente;
+
+        public VenteEnregistree(Vente vente) {
+            this.vente = vente;
+        }
+
+        public Vente getVente() { return vente; }
+    }
+
+    public static final class MouvementCaisseAjoute implements Evenement {
+        private final MouvementCaisse mouvement;
+
+        public MouvementCaisseAjoute(MouvementCaisse mouvement) {
+            this.mouvement = mouvement;
+        }
+
+        public MouvementCaisse getMouvement() { return mouvement; }
+    }
+
+    public static final class CreanceReglee implements Evenement {
+        private final Client client;
+        private final double montant;
+        private final double nouveauSolde;
+        private final MouvementCaisse mouvement;
+
+        public CreanceReglee(Client client, double montant, double nouveauSolde, MouvementCaisse mouvement) {
+            this.client = client;
+            this.montant = montant;
+            this.nouveauSolde = nouveauSolde;
+            this.mouvement = mouvement;
+        }
+
+        public Client getClient() { return client; }
+        public double getMontant() { return montant; }
+        public double getNouveauSolde() { return nouveauSolde; }
+        public MouvementCaisse getMouvement() { return mouvement; }
+    }
+
+    // Nouvel instantané du catalogue publié par CatalogueProduits
+    public static final class CatalogueModifie implements Evenement {
+        private final long version;
+
+        public CatalogueModifie(long version) {
+            this.version = version;
+        }
+
+        public long getVersion() { return version; }
+    }
+
+    // Nouvelles valeurs des indicateurs du tableau de bord
+    public static final class IndicateursModifies implements Evenement {
+        private final Indicateurs indicateurs;
+
+        public IndicateursModifies(Indicateurs indicateurs) {
+            this.indicateurs = indicateurs;
+        }
+
+        public Indicateurs getIndicateurs() { return indicateurs; }
+    }
+
+    // Ajout, modification ou suppression d'un client
+    public static final class ClientModifie implements Evenement {
+        private final Client client;
+
+        public ClientModifie(Client client) {
+            this.client = client;
+        }
+
+        public Client getClient() { return client; }
+    }
+
+    // Changement d'état ou avancement d'une génération de rapport en arrière-plan
+    public static final class TacheRapportModifiee implements Evenement {
+        private final TacheRapport tache;
+
+        public TacheRapportModifiee(TacheRapport tache) {
+            this.tache = tache;
+        }
+
+        public TacheRapport getTache() { return tache; }
+    }
+
+    // Changement d'état d'un ticket dans la file d'impression
+    public static final class TravailImpressionModifie implements Evenement {
+        private final TravailImpression travail;
+
+        public TravailImpressionModifie(TravailImpression travail) {
+            this.travail = travail;
+        }
+
+        public TravailImpression getTravail() { return travail; }
+    }
+}
@@ -0,0 +1,56 @@
+package com.poissonnerie.model;
+
+import java.time.LocalDate;
+
+// Valeurs des indicateurs du tableau de bord à un instant donné (immuable).
+// derniereVenteId et dernierMouvementId sont les plus grands identifiants déjà comptés :
+// un événement portant un identifiant inférieur ou égal est ignoré.
+public final class Indicateurs {
+    private final LocalDate jour;
+    private final double ventesJour;
+    private final double encaissementsJour;
+    private final int produitsRupture;
+    private final double chiffreAffaires;
+    private final int derniereVenteId;
+    private final int dernierMouvementId;
+
+    public Indicateurs(LocalDate jour, double ventesJour, double encaissementsJour, int produitsRupture,
+                       double chiffreAffaires, int derniereVenteId, int dernierMouvementId) {
+        this.jour = jour;
+        this.ventesJour = ventesJour;
+        this.encaissementsJour = encaissementsJour;
+        this.produitsRupture = produitsRupture;
+        this.chiffreAffaires = chiffreAffaires;
+        this.derniereVenteId = derniereVenteId;
+        this.dernierMouvementId = dernierMouvementId;
+    }
+
+    public LocalDate getJour() { return jour; }
+    public double getVentesJour() { return ventesJour; }
+    public double getEncaissementsJour() { return encaissementsJour; }
+    public int getProduitsRupture() { return produitsRupture; }
+    public double getChiffreAffaires() { return chiffreAffaires; }
+    public int getDerniereVenteId() { return derniereVenteId; }
+    public int getDernierMouvementId() { return dernierMouvementId; }
+
+    public Indicateurs avecVente(int venteId, double total, boolean duJour) {
+        return new Indicateurs(jour, duJour ? ventesJour + total : ventesJour, encaissementsJour,
+            produitsRupture, chiffreAffaires + total, Math.max(derniereVenteId, venteId), dernierMouvementId);
+    }
+
+    public Indicateurs avecEncaissement(int mouvementId, double montant) {
+        return new Indicateurs(jour, ventesJour, encaissementsJour + montant, produitsRupture,
+            chiffreAffaires, derniereVenteId, Math.max(dernierMouvementId, mouvementId));
+    }
+
+    public Indicateurs avecRuptures(int ruptures) {
+        return new Indicateurs(jour, ventesJour, encaissementsJour, ruptures,
+            chiffreAffaires, derniereVenteId, dernierMouvementId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Indicateurs{jour=%s, ventes=%.2f, encaissements=%.2f, ruptures=%d, CA=%.2f}",
+            jour, ventesJour, encaissementsJour, produitsRupture, chiffreAffaires);
+    }
+}
@@ -5,11 +5,10 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.time.LocalDateTime;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import com.poissonnerie.util.DatabaseManager;
+import com.poissonnerie.util.TransactionTemplate;
 
 public class InventaireManager {
     private static final Logger LOGGER = Logger.getLogger(InventaireManager.class.getName());
@@ -82,30 +81,28 @@ public class InventaireManager {
             produit.getNom(), produit.getStock(), produit.getStock() + quantite, raison));
 
         int ancienStock = produit.getStock();
+        int nouveauStock = ancienStock + quantite;
+        String commentaire = raison;
         try {
-            Connection conn = null;
-            try {
-                conn = DatabaseManager.getConnection();
-                conn.setAutoCommit(false);
+            if (nouveauStock < 0) {
+                throw new IllegalArgumentException(
+                    String.format("Stock insuffisant. Stock actuel: %d, Quantité demandée: %d",
+                        ancienStock, Math.abs(quantite)));
+            }
 
+            TransactionTemplate.execute(conn -> {
                 // Vérifier si le fournisseur existe
                 try (PreparedStatement checkStmt = conn.prepareStatement(
                         "SELECT id FROM fournisseurs WHERE id = ? AND supprime = false")) {
                     checkStmt.setInt(1, produit.getFournisseurId());
-                    ResultSet rs = checkStmt.executeQuery();
-                    if (!rs.next()) {
-                        LOGGER.severe("Fournisseur invalide pour le produit: " + produit.getNom());
-                        throw new IllegalArgumentException("Fournisseur invalide");
+                    try (ResultSet rs = checkStmt.executeQuery()) {
+                        if (!rs.next()) {
+                            LOGGER.severe("Fournisseur invalide pour le produit: " + produit.getNom());
+                            throw new IllegalArgumentException("Fournisseur invalide");
+                        }
                     }
                 }
 
-                // Mettre à jour le stock
-                produit.ajusterStock(quantite);
-                int nouveauStock = produit.getStock();
-
-                // Enregistrer l'ajustement dans l'historique
-                historique.add(new AjustementStock(produit, ancienStock, nouveauStock, raison));
-
                 // Enregistrer dans la base de données
                 try (PreparedStatement stmt = conn.prepareStatement(
                         "INSERT INTO historique_stock (produit_id, ancien_stock, nouveau_stock, type_mouvement, commentaire) " +
@@ -114,49 +111,36 @@ public class InventaireManager {
                     stmt.setInt(2, ancienStock);
                     stmt.setInt(3, nouveauStock);
                     stmt.setString(4, "AJUSTEMENT");
-                    stmt.setString(5, raison);
-                    stmt.executeUpdate();
-                }
-
-                conn.commit();
-                LOGGER.info("Ajustement de stock enregistré avec succès");
-
-                // Notifier les observateurs
-                for (InventaireObserver observer : observers) {
-                    try {
-                        observer.onStockAjuste(produit, ancienStock, nouveauStock);
-
-                        if (nouveauStock == 0) {
-                            LOGGER.warning("Rupture de stock pour " + produit.getNom());
-                            observer.onRuptureStock(produit);
-                        } else if (nouveauStock <= produit.getSeuilAlerte()) {
-                            LOGGER.warning("Stock bas pour " + produit.getNom());
-                            observer.onStockBas(produit);
-                        }
-                    } catch (Exception e) {
-                        LOGGER.log(Level.SEVERE, "Erreur lors de la notification de l'observer", e);
-                    }
-                }
-            } catch (SQLException e) {
-                if (conn != null) {
-                    try {
-                        conn.rollback();
-                    } catch (SQLException rollbackEx) {
-                        LOGGER.log(Level.SEVERE, "Erreur lors du rollback", rollbackEx);
-                    }
+                    stmt.setString(5, commentaire);
+                    return stmt.executeUpdate();
                 }
-                LOGGER.log(Level.SEVERE, "Erreur SQL lors de l'ajustement du stock", e);
-                throw new RuntimeException("Erreur lors de l'ajustement du stock: " + e.getMessage(), e);
-            } finally {
-                if (conn != null) {
-                    try {
-                        conn.setAutoCommit(true);
-                        conn.close();
-                    } catch (SQLException e) {
-                        LOGGER.log(Level.SEVERE, "Erreur lors de la fermeture de la connexion", e);
+            });
+            LOGGER.info("Ajustement de stock enregistré avec succès");
+
+            // Mettre à jour le stock et l'historique une fois la transaction validée
+            produit.ajusterStock(quantite);
+            historique.add(new AjustementStock(produit, ancienStock, nouveauStock, raison));
+            CatalogueProduits.getInstance().invalider();
+
+            // Notifier les observateurs
+            for (InventaireObserver observer : observers) {
+                try {
+                    observer.onStockAjuste(produit, ancienStock, nouveauStock);
+
+                    if (nouveauStock == 0) {
+                        LOGGER.warning("Rupture de stock pour " + produit.getNom());
+                        observer.onRuptureStock(produit);
+                    } else if (nouveauStock <= produit.getSeuilAlerte()) {
+                        LOGGER.warning("Stock bas pour " + produit.getNom());
+                        observer.onStockBas(produit);
                     }
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Erreur lors de la notification de l'observer", e);
                 }
             }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur SQL lors de l'ajustement du stock", e);
+            throw new RuntimeException("Erreur lors de l'ajustement du stock: " + e.getMessage(), e);
         } catch (IllegalArgumentException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de l'ajustement du stock", e);
             throw new IllegalArgumentException("Impossible d'ajuster le stock: " + e.getMessage());
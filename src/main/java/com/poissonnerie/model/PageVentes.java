@@ -0,0 +1,90 @@
+package com.poissonnerie.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Page de l'historique des ventes, triée de la plus récente à la plus ancienne.
+// La navigation se fait par curseur (date, id) : pas d'OFFSET, latence constante.
+public class PageVentes {
+    private final List<Vente> ventes;
+    private final Curseur premier;
+    private final Curseur dernier;
+    private final boolean pagePrecedente;
+    private final boolean pageSuivante;
+
+    public enum Direction {
+        SUIVANTE,   // Vers les ventes plus anciennes
+        PRECEDENTE  // Vers les ventes plus récentes
+    }
+
+    // Position d'une vente dans l'ordre (date DESC, id DESC)
+    public static class Curseur {
+        private final long date;
+        private final int id;
+
+        public Curseur(long date, int id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        public long getDate() { return date; }
+        public int getId() { return id; }
+
+        @Override
+        public String toString() {
+            return "Curseur{date=" + date + ", id=" + id + "}";
+        }
+    }
+
+    // Filtre optionnel : null signifie "tous". Les bornes de date sont en millisecondes
+    // epoch, incluses, comme la colonne ventes.date.
+    public static class Filtre {
+        private final Integer clientId;
+        private final Boolean credit;
+        private final Long dateMin;
+        private final Long dateMax;
+
+        public Filtre(Integer clientId, Boolean credit) {
+            this(clientId, credit, null, null);
+        }
+
+        public Filtre(Integer clientId, Boolean credit, Long dateMin, Long dateMax) {
+            this.clientId = clientId;
+            this.credit = credit;
+            this.dateMin = dateMin;
+            this.dateMax = dateMax;
+        }
+
+        public static Filtre aucun() {
+            return new Filtre(null, null);
+        }
+
+        public static Filtre periode(long dateMin, long dateMax) {
+            return new Filtre(null, null, dateMin, dateMax);
+        }
+
+        public Integer getClientId() { return clientId; }
+        public Boolean getCredit() { return credit; }
+        public Long getDateMin() { return dateMin; }
+        public Long getDateMax() { return dateMax; }
+    }
+
+    public PageVentes(List<Vente> ventes, Curseur premier, Curseur dernier,
+                      boolean pagePrecedente, boolean pageSuivante) {
+        this.ventes = Collections.unmodifiableList(new ArrayList<>(ventes));
+        this.premier = premier;
+        this.dernier = dernier;
+        this.pagePrecedente = pagePrecedente;
+        this.pageSuivante = pageSuivante;
+    }
+
+    public List<Vente> getVentes() { return ventes; }
+    public boolean hasPagePrecedente() { return pagePrecedente; }
+    public boolean hasPageSuivante() { return pageSuivante; }
+    public boolean isEmpty() { return ventes.isEmpty(); }
+
+    // Curseurs à passer pour obtenir la page précédente ou suivante
+    public Curseur getPremier() { return premier; }
+    public Curseur getDernier() { return dernier; }
+}
@@ -0,0 +1,10 @@
+package com.poissonnerie.model;
+
+import java.util.function.Consumer;
+
+// Ventes fournies une à une à un générateur de rapport, par exemple depuis un parcours
+// paginé de la base, sans jamais les réunir toutes dans une liste
+@FunctionalInterface
+public interface ParcoursVentes {
+    void parcourir(Consumer<Vente> consommateur);
+}
@@ -0,0 +1,36 @@
+package com.poissonnerie.model;
+
+import java.util.concurrent.CancellationException;
+
+// Retour d'avancement d'une génération de rapport, alimenté par le nombre de lignes
+// écrites, et demande d'annulation coopérative vérifiée entre deux lignes
+public interface SuiviRapport {
+
+    // Génération sans suivi ni annulation (appels synchrones)
+    SuiviRapport AUCUN = new SuiviRapport() {
+        @Override
+        public void definirTotal(long lignes) {
+        }
+
+        @Override
+        public void avancer(long lignes) {
+        }
+
+        @Override
+        public boolean estAnnule() {
+            return false;
+        }
+    };
+
+    void definirTotal(long lignes);
+
+    void avancer(long lignes);
+
+    boolean estAnnule();
+
+    default void verifierAnnulation() {
+        if (estAnnule()) {
+            throw new CancellationException("Génération du rapport annulée");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.poissonnerie.model;
+
+// État d'une génération de rapport en arrière-plan, à un instant donné (immuable)
+public final class TacheRapport {
+
+    public enum Etat {
+        EN_ATTENTE("En attente"),
+        EN_COURS("En cours"),
+        TERMINEE("Terminé"),
+        ANNULEE("Annulé"),
+        ECHEC("Échec");
+
+        private final String libelle;
+
+        Etat(String libelle) {
+            this.libelle = libelle;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+
+        public boolean isFinal() {
+            return this == TERMINEE || this == ANNULEE || this == ECHEC;
+        }
+    }
+
+    private final long id;
+    private final String libelle;
+    private final String fichier;
+    private final Etat etat;
+    private final long lignesTraitees;
+    private final long lignesTotal;
+    private final String message;
+
+    public TacheRapport(long id, String libelle, String fichier, Etat etat,
+                        long lignesTraitees, long lignesTotal, String message) {
+        this.id = id;
+        this.libelle = libelle;
+        this.fichier = fichier;
+        this.etat = etat;
+        this.lignesTraitees = lignesTraitees;
+        this.lignesTotal = lignesTotal;
+        this.message = message;
+    }
+
+    public long getId() { return id; }
+    public String getLibelle() { return libelle; }
+    public String getFichier() { return fichier; }
+    public Etat getEtat() { return etat; }
+    public long getLignesTraitees() { return lignesTraitees; }
+    public long getLignesTotal() { return lignesTotal; }
+    public String getMessage() { return message; }
+
+    // Pourcentage d'avancement, ou -1 tant que le nombre de lignes est inconnu
+    public int getProgression() {
+        if (etat == Etat.TERMINEE) {
+            return 100;
+        }
+        if (lignesTotal <= 0) {
+            return -1;
+        }
+        return (int) Math.min(100, lignesTraitees * 100 / lignesTotal);
+    }
+
+    @Override
+    public String toString() {
+        return "TacheRapport{" + id + ", " + libelle + ", " + etat + ", " + lignesTraitees + "/" + lignesTotal + "}";
+    }
+}
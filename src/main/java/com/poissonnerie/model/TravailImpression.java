@@ -0,0 +1,55 @@
+package com.poissonnerie.model;
+
+// État d'un ticket dans la file d'impression, à un instant donné (immuable)
+public final class TravailImpression {
+
+    public enum Etat {
+        EN_ATTENTE("En attente"),
+        EN_COURS("En cours"),
+        HORS_LIGNE("Imprimante hors ligne"),
+        IMPRIME("Imprimé"),
+        ECHEC("Échec");
+
+        private final String libelle;
+
+        Etat(String libelle) {
+            this.libelle = libelle;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+
+        public boolean isFinal() {
+            return this == IMPRIME || this == ECHEC;
+        }
+    }
+
+    private final long id;
+    private final String imprimante;
+    private final String cle;
+    private final Etat etat;
+    private final int tentatives;
+    private final String message;
+
+    public TravailImpression(long id, String imprimante, String cle, Etat etat, int tentatives, String message) {
+        this.id = id;
+        this.imprimante = imprimante;
+        this.cle = cle;
+        this.etat = etat;
+        this.tentatives = tentatives;
+        this.message = message;
+    }
+
+    public long getId() { return id; }
+    public String getImprimante() { return imprimante; }
+    public String getCle() { return cle; }
+    public Etat getEtat() { return etat; }
+    public int getTentatives() { return tentatives; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return "TravailImpression{" + id + ", " + imprimante + ", " + cle + ", " + etat + ", " + tentatives + "}";
+    }
+}
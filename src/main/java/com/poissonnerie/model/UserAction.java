@@ -28,6 +28,16 @@ public class UserAction {
         public String getValue() {
             return value;
         }
+
+        // Les actions sont enregistrées avec leur libellé ; le nom de la constante est aussi accepté
+        public static ActionType fromValue(String value) {
+            for (ActionType t : values()) {
+                if (t.value.equals(value) || t.name().equals(value)) {
+                    return t;
+                }
+            }
+            throw new IllegalArgumentException("Valeur inconnue: " + value);
+        }
     }
 
     public enum EntityType {
@@ -47,6 +57,16 @@ public class UserAction {
         public String getValue() {
             return value;
         }
+
+        // Les actions sont enregistrées avec leur libellé ; le nom de la constante est aussi accepté
+        public static EntityType fromValue(String value) {
+            for (EntityType t : values()) {
+                if (t.value.equals(value) || t.name().equals(value)) {
+                    return t;
+                }
+            }
+            throw new IllegalArgumentException("Valeur inconnue: " + value);
+        }
     }
 
     public UserAction(ActionType type, String username, String description, EntityType entityType, int entityId) {
@@ -0,0 +1,292 @@
+package com.poissonnerie.util;
+
+import com.poissonnerie.model.Vente;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Agrégats des ventes par jour, produit et mode de paiement (tables ventes_agregats et
+// ventes_agregats_totaux, migration 007). Ils sont mis à jour dans la transaction de chaque
+// vente : les rapports lisent quelques lignes par jour de la période au lieu de regrouper
+// toutes les lignes de vente. Les bornes des périodes sont des jours entiers, inclus.
+public final class AgregatsVentes {
+    private static final Logger LOGGER = Logger.getLogger(AgregatsVentes.class.getName());
+    private static final String JOUR_MIN = "0000-01-01";
+    private static final String JOUR_MAX = "9999-12-31";
+
+    private static final String SQL_AJOUTER_LIGNES =
+        "INSERT INTO ventes_agregats (jour, produit_id, mode_paiement, quantite, chiffre_affaires, cout, nombre_ventes) " +
+        "SELECT ?, l.produit_id, ?, SUM(l.quantite), SUM(l.quantite * l.prix_unitaire), " +
+        "SUM(l.quantite * COALESCE(p.prix_achat, 0)), 1 " +
+        "FROM lignes_vente l LEFT JOIN produits p ON p.id = l.produit_id " +
+        "WHERE l.vente_id = ? GROUP BY l.produit_id " +
+        "ON CONFLICT (jour, produit_id, mode_paiement) DO UPDATE SET " +
+        "quantite = quantite + excluded.quantite, " +
+        "chiffre_affaires = chiffre_affaires + excluded.chiffre_affaires, " +
+        "cout = cout + excluded.cout, " +
+        "nombre_ventes = nombre_ventes + 1";
+    private static final String SQL_AJOUTER_TOTAL =
+        "INSERT INTO ventes_agregats_totaux (jour, mode_paiement, nombre_ventes, total) VALUES (?, ?, 1, ?) " +
+        "ON CONFLICT (jour, mode_paiement) DO UPDATE SET " +
+        "nombre_ventes = nombre_ventes + 1, total = total + excluded.total";
+
+    // Reconstruction d'une plage de jours depuis les ventes (requêtes de la migration 007, avec
+    // le mode de paiement enregistré depuis la migration 010)
+    private static final String SQL_EFFACER_LIGNES = "DELETE FROM ventes_agregats WHERE jour BETWEEN ? AND ?";
+    private static final String SQL_EFFACER_TOTAUX = "DELETE FROM ventes_agregats_totaux WHERE jour BETWEEN ? AND ?";
+    private static final String SQL_RECALCULER_LIGNES =
+        "INSERT INTO ventes_agregats (jour, produit_id, mode_paiement, quantite, chiffre_affaires, cout, nombre_ventes) " +
+        "SELECT date(v.date / 1000, 'unixepoch', 'localtime') AS jour, l.produit_id, " +
+        "COALESCE(v.mode_paiement, CASE WHEN v.credit THEN 'CREDIT' ELSE 'ESPECES' END), " +
+        "SUM(l.quantite), SUM(l.quantite * l.prix_unitaire), SUM(l.quantite * COALESCE(p.prix_achat, 0)), " +
+        "COUNT(DISTINCT v.id) " +
+        "FROM ventes v JOIN lignes_vente l ON l.vente_id = v.id LEFT JOIN produits p ON p.id = l.produit_id " +
+        "WHERE v.supprime = false AND v.date >= ? AND v.date < ? " +
+        "GROUP BY 1, 2, 3";
+    private static final String SQL_RECALCULER_TOTAUX =
+        "INSERT INTO ventes_agregats_totaux (jour, mode_paiement, nombre_ventes, total) " +
+        "SELECT date(date / 1000, 'unixepoch', 'localtime'), " +
+        "COALESCE(mode_paiement, CASE WHEN credit THEN 'CREDIT' ELSE 'ESPECES' END), " +
+        "COUNT(*), SUM(total) " +
+        "FROM ventes WHERE supprime = false AND date >= ? AND date < ? " +
+        "GROUP BY 1, 2";
+    private static final String SQL_BORNES_VENTES =
+        "SELECT MIN(date), MAX(date) FROM ventes WHERE supprime = false";
+    // Les agrégats n'ont pas de compteur propre : les rapports qui les lisent dépendent de
+    // ventes, dont le compteur est avancé pour invalider leurs copies en cache
+    private static final String SQL_VERSION_VENTES =
+        "UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'ventes'";
+
+    private AgregatsVentes() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    // Totaux d'une période
+    public static final class Totaux {
+        private final long nombreVentes;
+        private final double chiffreAffaires;
+        private final long quantite;
+        private final double cout;
+
+        private Totaux(long nombreVentes, double chiffreAffaires, long quantite, double cout) {
+            this.nombreVentes = nombreVentes;
+            this.chiffreAffaires = chiffreAffaires;
+            this.quantite = quantite;
+            this.cout = cout;
+        }
+
+        public long getNombreVentes() { return nombreVentes; }
+        public double getChiffreAffaires() { return chiffreAffaires; }
+        public long getQuantite() { return quantite; }
+        public double getCout() { return cout; }
+
+        public double getPanierMoyen() {
+            return nombreVentes == 0 ? 0.0 : chiffreAffaires / nombreVentes;
+        }
+    }
+
+    // À appeler dans la transaction de la vente, après l'insertion de ses lignes
+    public static void enregistrer(Connection conn, int venteId, Vente vente) throws SQLException {
+        String jour = vente.getDate().toLocalDate().toString();
+        String mode = vente.getModePaiement().name();
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_AJOUTER_LIGNES)) {
+            stmt.setString(1, jour);
+            stmt.setString(2, mode);
+            stmt.setInt(3, venteId);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_AJOUTER_TOTAL)) {
+            stmt.setString(1, jour);
+            stmt.setString(2, mode);
+            stmt.setDouble(3, vente.getTotal());
+            stmt.executeUpdate();
+        }
+    }
+
+    // Recalcule les agrégats de toute la période couverte par les ventes, un mois par
+    // transaction pour ne pas garder longtemps le verrou d'écriture. Les ventes antérieures à
+    // la migration 010, sans mode de paiement enregistré, sont classées CREDIT ou ESPECES.
+    // Retourne le nombre de mois reconstruits.
+    public static int reconstruire() {
+        LocalDate premier;
+        LocalDate dernier;
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_BORNES_VENTES);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                LOGGER.info("Aucune vente : agrégats vides");
+                return 0;
+            }
+            premier = versJour(rs.getLong(1));
+            dernier = versJour(rs.getLong(2));
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture des bornes des ventes", e);
+            throw new RuntimeException("Erreur lors de la reconstruction des agrégats: " + e.getMessage(), e);
+        }
+
+        int mois = 0;
+        for (YearMonth courant = YearMonth.from(premier); !courant.isAfter(YearMonth.from(dernier));
+             courant = courant.plusMonths(1)) {
+            reconstruire(courant.atDay(1), courant.atEndOfMonth());
+            mois++;
+        }
+        LOGGER.info("Agrégats des ventes reconstruits: " + mois + " mois, du " + premier + " au " + dernier);
+        return mois;
+    }
+
+    // Recalcule les agrégats des jours donnés (inclus) en une transaction
+    public static void reconstruire(LocalDate debut, LocalDate fin) {
+        long debutMs = versEpochMs(debut);
+        long finMs = versEpochMs(fin.plusDays(1));
+        try {
+            TransactionTemplate.execute(conn -> {
+                for (String sql : new String[] {SQL_EFFACER_LIGNES, SQL_EFFACER_TOTAUX}) {
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        stmt.setString(1, debut.toString());
+                        stmt.setString(2, fin.toString());
+                        stmt.executeUpdate();
+                    }
+                }
+                for (String sql : new String[] {SQL_RECALCULER_LIGNES, SQL_RECALCULER_TOTAUX}) {
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        stmt.setLong(1, debutMs);
+                        stmt.setLong(2, finMs);
+                        stmt.executeUpdate();
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_VERSION_VENTES)) {
+                    stmt.executeUpdate();
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la reconstruction des agrégats", e);
+            throw new RuntimeException("Erreur lors de la reconstruction des agrégats: " + e.getMessage(), e);
+        }
+    }
+
+    public static Totaux totaux(LocalDate debut, LocalDate fin) {
+        String sql = "SELECT " +
+            "(SELECT COALESCE(SUM(nombre_ventes), 0) FROM ventes_agregats_totaux WHERE jour BETWEEN ?1 AND ?2) AS nombre_ventes, " +
+            "(SELECT COALESCE(SUM(total), 0) FROM ventes_agregats_totaux WHERE jour BETWEEN ?1 AND ?2) AS chiffre_affaires, " +
+            "(SELECT COALESCE(SUM(quantite), 0) FROM ventes_agregats WHERE jour BETWEEN ?1 AND ?2) AS quantite, " +
+            "(SELECT COALESCE(SUM(cout), 0) FROM ventes_agregats WHERE jour BETWEEN ?1 AND ?2) AS cout";
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            lierPeriode(stmt, debut, fin);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new Totaux(rs.getLong("nombre_ventes"), rs.getDouble("chiffre_affaires"),
+                    rs.getLong("quantite"), rs.getDouble("cout"));
+            }
+        } catch (SQLException e) {
+            throw erreurLecture(e);
+        }
+    }
+
+    // Montant des ventes par jour, dans l'ordre chronologique
+    public static Map<LocalDate, Double> totalParJour(LocalDate debut, LocalDate fin) {
+        String sql = "SELECT jour, SUM(total) FROM ventes_agregats_totaux " +
+            "WHERE jour BETWEEN ?1 AND ?2 GROUP BY jour ORDER BY jour";
+        Map<LocalDate, Double> resultat = new TreeMap<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            lierPeriode(stmt, debut, fin);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resultat.put(LocalDate.parse(rs.getString(1)), rs.getDouble(2));
+                }
+            }
+            return resultat;
+        } catch (SQLException e) {
+            throw erreurLecture(e);
+        }
+    }
+
+    public static Map<YearMonth, Double> totalParMois(LocalDate debut, LocalDate fin) {
+        String sql = "SELECT substr(jour, 1, 7) AS mois, SUM(total) FROM ventes_agregats_totaux " +
+            "WHERE jour BETWEEN ?1 AND ?2 GROUP BY mois ORDER BY mois";
+        Map<YearMonth, Double> resultat = new TreeMap<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            lierPeriode(stmt, debut, fin);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resultat.put(YearMonth.parse(rs.getString(1)), rs.getDouble(2));
+                }
+            }
+            return resultat;
+        } catch (SQLException e) {
+            throw erreurLecture(e);
+        }
+    }
+
+    public static Map<Vente.ModePaiement, Double> totalParModePaiement(LocalDate debut, LocalDate fin) {
+        String sql = "SELECT mode_paiement, SUM(total) FROM ventes_agregats_totaux " +
+            "WHERE jour BETWEEN ?1 AND ?2 GROUP BY mode_paiement";
+        Map<Vente.ModePaiement, Double> resultat = new EnumMap<>(Vente.ModePaiement.class);
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            lierPeriode(stmt, debut, fin);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resultat.put(Vente.ModePaiement.valueOf(rs.getString(1)), rs.getDouble(2));
+                }
+            }
+            return resultat;
+        } catch (SQLException e) {
+            throw erreurLecture(e);
+        }
+    }
+
+    // Produits au plus fort chiffre d'affaires sur la période, par ordre décroissant
+    public static Map<String, Double> meilleursProduits(LocalDate debut, LocalDate fin, int limite) {
+        String sql = "SELECT COALESCE(p.nom, 'Produit ' || a.produit_id) AS nom, SUM(a.chiffre_affaires) AS ca " +
+            "FROM ventes_agregats a LEFT JOIN produits p ON p.id = a.produit_id " +
+            "WHERE a.jour BETWEEN ?1 AND ?2 GROUP BY a.produit_id ORDER BY ca DESC LIMIT ?3";
+        Map<String, Double> resultat = new LinkedHashMap<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            lierPeriode(stmt, debut, fin);
+            stmt.setInt(3, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resultat.merge(rs.getString("nom"), rs.getDouble("ca"), Double::sum);
+                }
+            }
+            return resultat;
+        } catch (SQLException e) {
+            throw erreurLecture(e);
+        }
+    }
+
+    // Bornes nulles : période non bornée de ce côté
+    private static void lierPeriode(PreparedStatement stmt, LocalDate debut, LocalDate fin) throws SQLException {
+        stmt.setString(1, debut == null ? JOUR_MIN : debut.toString());
+        stmt.setString(2, fin == null ? JOUR_MAX : fin.toString());
+    }
+
+    private static RuntimeException erreurLecture(SQLException e) {
+        LOGGER.log(Level.SEVERE, "Erreur lors de la lecture des agrégats des ventes", e);
+        return new RuntimeException("Erreur lors de la lecture des agrégats des ventes: " + e.getMessage(), e);
+    }
+
+    private static LocalDate versJour(long epochMs) {
+        return Instant.ofEpochMilli(epochMs).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static long versEpochMs(LocalDate jour) {
+        return jour.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,250 @@
+package com.poissonnerie.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Archivage du journal user_actions dans des segments mensuels compressés.
+// Chaque segment (actions-AAAA-MM.jsonl.gz) est une suite de membres gzip ajoutés en fin
+// de fichier, un par lot archivé ; l'index associé (actions-AAAA-MM.idx) donne pour chaque
+// membre sa position, sa taille, ses dates extrêmes et son nombre de lignes, ce qui permet
+// de ne décompresser que les membres utiles à une recherche. Les lignes archivées sont
+// supprimées de la base par petits lots, chacun dans sa propre transaction, pour ne jamais
+// garder longtemps le verrou d'écriture.
+public final class ArchiveJournal {
+    private static final Logger LOGGER = Logger.getLogger(ArchiveJournal.class.getName());
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Path REPERTOIRE = Paths.get(System.getProperty("poissonnerie.audit.archiveDir", "archives/journal"));
+    private static final int TAILLE_LOT = Integer.getInteger("poissonnerie.audit.archive.chunkSize", 500);
+    private static final long PAUSE_MS = Long.getLong("poissonnerie.audit.archive.pauseMs", 100L);
+    private static final Object VERROU = new Object();
+
+    private static final String SQL_LOT =
+        "SELECT id, username, action_type, entity_type, entity_id, description, date_time, user_id " +
+        "FROM user_actions WHERE date_time < ? ORDER BY id LIMIT ?";
+    private static final String SQL_SUPPRIMER =
+        "DELETE FROM user_actions WHERE id IN (SELECT value FROM json_each(?))";
+
+    private ArchiveJournal() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    // Déplace dans les segments toutes les actions antérieures à la date limite.
+    // Retourne le nombre d'actions archivées.
+    public static int archiver(LocalDateTime dateLimite) {
+        String limite = dateLimite.format(FORMAT_DATE);
+        int total = 0;
+        synchronized (VERROU) {
+            try {
+                Files.createDirectories(REPERTOIRE);
+                List<JsonObject> lot;
+                while (!(lot = lireLot(limite)).isEmpty()) {
+                    // Le segment est écrit et synchronisé sur disque avant la suppression en base
+                    for (Map.Entry<String, List<JsonObject>> mois : parMois(lot).entrySet()) {
+                        ajouterMembre(mois.getKey(), mois.getValue());
+                    }
+                    supprimer(lot);
+                    total += lot.size();
+                    if (lot.size() < TAILLE_LOT) {
+                        break;
+                    }
+                    // Laisse passer les écritures de la caisse entre deux lots
+                    Thread.sleep(PAUSE_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warning("Archivage du journal interrompu après " + total + " action(s)");
+            } catch (SQLException | IOException e) {
+                LOGGER.log(Level.SEVERE, "Erreur lors de l'archivage du journal", e);
+                throw new RuntimeException("Erreur lors de l'archivage du journal: " + e.getMessage(), e);
+            }
+        }
+        LOGGER.info(String.format("Archivage du journal : %d action(s) antérieure(s) au %s archivée(s)", total, limite));
+        return total;
+    }
+
+    private static List<JsonObject> lireLot(String limite) throws SQLException {
+        List<JsonObject> lignes = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_LOT)) {
+            stmt.setString(1, limite);
+            stmt.setInt(2, TAILLE_LOT);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    JsonObject ligne = new JsonObject();
+                    ligne.addProperty("id", rs.getInt("id"));
+                    ligne.addProperty("username", rs.getString("username"));
+                    ligne.addProperty("action_type", rs.getString("action_type"));
+                    ligne.addProperty("entity_type", rs.getString("entity_type"));
+                    ligne.addProperty("entity_id", rs.getInt("entity_id"));
+                    ligne.addProperty("description", rs.getString("description"));
+                    ligne.addProperty("date_time", rs.getString("date_time"));
+                    Object userId = rs.getObject("user_id");
+                    if (userId != null) {
+                        ligne.addProperty("user_id", ((Number) userId).intValue());
+                    }
+                    lignes.add(ligne);
+                }
+            }
+        }
+        return lignes;
+    }
+
+    private static Map<String, List<JsonObject>> parMois(List<JsonObject> lot) {
+        Map<String, List<JsonObject>> groupes = new TreeMap<>();
+        for (JsonObject ligne : lot) {
+            String mois = ligne.get("date_time").getAsString().substring(0, 7);
+            groupes.computeIfAbsent(mois, k -> new ArrayList<>()).add(ligne);
+        }
+        return groupes;
+    }
+
+    private static void ajouterMembre(String mois, List<JsonObject> lignes) throws IOException {
+        ByteArrayOutputStream tampon = new ByteArrayOutputStream();
+        String dateMin = null;
+        String dateMax = null;
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(tampon), StandardCharsets.UTF_8)) {
+            for (JsonObject ligne : lignes) {
+                String date = ligne.get("date_time").getAsString();
+                if (dateMin == null || date.compareTo(dateMin) < 0) {
+                    dateMin = date;
+                }
+                if (dateMax == null || date.compareTo(dateMax) > 0) {
+                    dateMax = date;
+                }
+                writer.write(ligne.toString());
+                writer.write('\n');
+            }
+        }
+        byte[] membre = tampon.toByteArray();
+
+        long position;
+        try (FileChannel segment = FileChannel.open(fichierSegment(mois),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            position = segment.size();
+            ByteBuffer buffer = ByteBuffer.wrap(membre);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(true);
+        }
+
+        // Un membre écrit mais absent de l'index (arrêt entre les deux) est simplement ignoré
+        String entree = String.format("%d;%d;%s;%s;%d%n", position, membre.length, dateMin, dateMax, lignes.size());
+        try (FileChannel index = FileChannel.open(fichierIndex(mois),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            index.write(ByteBuffer.wrap(entree.getBytes(StandardCharsets.UTF_8)));
+            index.force(true);
+        }
+    }
+
+    private static void supprimer(List<JsonObject> lot) throws SQLException {
+        StringBuilder ids = new StringBuilder("[");
+        for (JsonObject ligne : lot) {
+            if (ids.length() > 1) {
+                ids.append(',');
+            }
+            ids.append(ligne.get("id").getAsInt());
+        }
+        String json = ids.append(']').toString();
+        TransactionTemplate.execute(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_SUPPRIMER)) {
+                stmt.setString(1, json);
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    // Lignes archivées entre deux dates (incluses), de la plus récente à la plus ancienne.
+    // Chaque ligne est restituée avec les colonnes de user_actions.
+    public static List<JsonObject> lire(LocalDateTime debut, LocalDateTime fin) {
+        String min = debut.format(FORMAT_DATE);
+        String max = fin.format(FORMAT_DATE);
+        // Une ligne archivée deux fois (arrêt entre l'écriture et la suppression) n'est gardée qu'une fois
+        Map<Integer, JsonObject> lignes = new LinkedHashMap<>();
+        try {
+            for (YearMonth mois = YearMonth.from(debut); !mois.isAfter(YearMonth.from(fin)); mois = mois.plusMonths(1)) {
+                Path index = fichierIndex(mois.toString());
+                if (!Files.exists(index)) {
+                    continue;
+                }
+                try (FileChannel segment = FileChannel.open(fichierSegment(mois.toString()), StandardOpenOption.READ)) {
+                    for (String entree : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                        String[] champs = entree.split(";");
+                        if (champs.length < 5 || champs[3].compareTo(min) < 0 || champs[2].compareTo(max) > 0) {
+                            continue;
+                        }
+                        lireMembre(segment, Long.parseLong(champs[0]), Integer.parseInt(champs[1]), min, max, lignes);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture des archives du journal", e);
+            throw new RuntimeException("Erreur lors de la lecture des archives du journal: " + e.getMessage(), e);
+        }
+
+        List<JsonObject> resultat = new ArrayList<>(lignes.values());
+        resultat.sort((a, b) -> b.get("date_time").getAsString().compareTo(a.get("date_time").getAsString()));
+        return resultat;
+    }
+
+    private static void lireMembre(FileChannel segment, long position, int longueur, String min, String max,
+                                   Map<Integer, JsonObject> lignes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(longueur);
+        while (buffer.hasRemaining()) {
+            if (segment.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Segment d'archive tronqué à la position " + position);
+            }
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8))) {
+            String texte;
+            while ((texte = reader.readLine()) != null) {
+                JsonElement element = JsonParser.parseString(texte);
+                JsonObject ligne = element.getAsJsonObject();
+                String date = ligne.get("date_time").getAsString();
+                if (date.compareTo(min) >= 0 && date.compareTo(max) <= 0) {
+                    lignes.putIfAbsent(ligne.get("id").getAsInt(), ligne);
+                }
+            }
+        }
+    }
+
+    private static Path fichierSegment(String mois) {
+        return REPERTOIRE.resolve("actions-" + mois + ".jsonl.gz");
+    }
+
+    private static Path fichierIndex(String mois) {
+        return REPERTOIRE.resolve("actions-" + mois + ".idx");
+    }
+}
@@ -0,0 +1,252 @@
+package com.poissonnerie.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+
+// Écriture différée et groupée d'événements (journal d'audit) : l'appelant ne paie
+// qu'un ajout dans une file bornée sans verrou ; un thread dédié écrit les événements
+// par lots dans une seule transaction, dès que le lot est plein ou que le délai maximal
+// est écoulé. Les files actives sont vidées par DatabaseManager.shutdown().
+public class AsyncBatchWriter<T> {
+    private static final Logger LOGGER = Logger.getLogger(AsyncBatchWriter.class.getName());
+    private static final List<AsyncBatchWriter<?>> ACTIFS = new CopyOnWriteArrayList<>();
+
+    static {
+        // Filet de sécurité si l'application se termine sans passer par DatabaseManager.shutdown()
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncBatchWriter::shutdownAll, "poissonnerie-vidage-files"));
+    }
+
+    // Comportement quand la file est pleine
+    public enum Saturation {
+        BLOQUER,              // L'appelant attend qu'une place se libère
+        REJETER_NOUVEAU,      // L'événement soumis est abandonné
+        REJETER_PLUS_ANCIEN   // L'événement le plus ancien de la file est abandonné
+    }
+
+    // Écrit un lot dans la transaction fournie
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+        void ecrire(Connection conn, List<T> lot) throws SQLException;
+    }
+
+    private final String nom;
+    private final BatchHandler<T> handler;
+    private final int capacite;
+    private final int tailleLot;
+    private final long delaiMaxNanos;
+    private final Saturation saturation;
+
+    private final Queue<T> file = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger taille = new AtomicInteger();
+    private final AtomicLong soumis = new AtomicLong();
+    private final AtomicLong ecrits = new AtomicLong();
+    private final AtomicLong rejetes = new AtomicLong();
+    private final AtomicLong perdus = new AtomicLong();
+    private final AtomicLong lots = new AtomicLong();
+    private final Object verrouEcriture = new Object();
+    private volatile Thread thread;
+    private volatile boolean actif;
+
+    public AsyncBatchWriter(String nom, BatchHandler<T> handler, int capacite, int tailleLot,
+                            long delaiMaxMs, Saturation saturation) {
+        if (capacite <= 0 || tailleLot <= 0 || delaiMaxMs <= 0) {
+            throw new IllegalArgumentException("Capacité, taille de lot et délai doivent être positifs");
+        }
+        this.nom = nom;
+        this.handler = handler;
+        this.capacite = capacite;
+        this.tailleLot = Math.min(tailleLot, capacite);
+        this.delaiMaxNanos = TimeUnit.MILLISECONDS.toNanos(delaiMaxMs);
+        this.saturation = saturation != null ? saturation : Saturation.BLOQUER;
+    }
+
+    public void start() {
+        synchronized (verrouEcriture) {
+            if (actif) {
+                return;
+            }
+            actif = true;
+            Thread t = new Thread(this::boucle, "poissonnerie-" + nom);
+            t.setDaemon(true);
+            thread = t;
+            t.start();
+        }
+        ACTIFS.add(this);
+        LOGGER.info(String.format("File d'écriture %s démarrée (capacité %d, lots de %d, %s)",
+            nom, capacite, tailleLot, saturation));
+    }
+
+    // Retourne false si l'événement a été abandonné
+    public boolean submit(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("L'élément ne peut pas être null");
+        }
+        soumis.incrementAndGet();
+
+        // Soumis depuis une transaction d'écriture en cours : attendre le vidage de la
+        // file bloquerait l'écrivain lui-même. L'événement est écrit dans cette transaction.
+        if (!actif || (DatabaseWriter.isWriterThread() && taille.get() >= capacite)) {
+            return ecrireDirectement(element);
+        }
+
+        while (!reserverPlace()) {
+            switch (saturation) {
+                case REJETER_NOUVEAU:
+                    rejetes.incrementAndGet();
+                    return false;
+                case REJETER_PLUS_ANCIEN:
+                    if (file.poll() != null) {
+                        taille.decrementAndGet();
+                        rejetes.incrementAndGet();
+                    }
+                    break;
+                default:
+                    LockSupport.unpark(thread);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    if (!actif) {
+                        return ecrireDirectement(element);
+                    }
+            }
+        }
+        file.add(element);
+        if (taille.get() >= tailleLot) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    private boolean reserverPlace() {
+        while (true) {
+            int courant = taille.get();
+            if (courant >= capacite) {
+                return false;
+            }
+            if (taille.compareAndSet(courant, courant + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean ecrireDirectement(T element) {
+        List<T> lot = new ArrayList<>(1);
+        lot.add(element);
+        return ecrireLot(lot);
+    }
+
+    private void boucle() {
+        long prochainVidage = System.nanoTime() + delaiMaxNanos;
+        while (actif) {
+            long attente = prochainVidage - System.nanoTime();
+            if (taille.get() < tailleLot && attente > 0) {
+                LockSupport.parkNanos(this, attente);
+                continue;
+            }
+            vider();
+            prochainVidage = System.nanoTime() + delaiMaxNanos;
+        }
+    }
+
+    // Écrit tout ce qui est en file au moment de l'appel
+    public void flush() {
+        vider();
+    }
+
+    private void vider() {
+        synchronized (verrouEcriture) {
+            List<T> lot = new ArrayList<>(tailleLot);
+            T element;
+            while ((element = file.poll()) != null) {
+                taille.decrementAndGet();
+                lot.add(element);
+                if (lot.size() == tailleLot) {
+                    ecrireLot(lot);
+                    lot = new ArrayList<>(tailleLot);
+                }
+            }
+            if (!lot.isEmpty()) {
+                ecrireLot(lot);
+            }
+        }
+    }
+
+    private boolean ecrireLot(List<T> lot) {
+        try {
+            TransactionTemplate.execute(conn -> {
+                handler.ecrire(conn, lot);
+                return null;
+            });
+            ecrits.addAndGet(lot.size());
+            lots.incrementAndGet();
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            // Un élément invalide ne doit pas faire perdre tout le lot : écriture un par un
+            if (lot.size() > 1 && TransactionTemplate.classer(e) == TransactionTemplate.TypeErreur.CONTRAINTE) {
+                boolean tousEcrits = true;
+                for (T element : lot) {
+                    tousEcrits &= ecrireDirectement(element);
+                }
+                return tousEcrits;
+            }
+            perdus.addAndGet(lot.size());
+            LOGGER.log(Level.SEVERE, String.format("Écriture d'un lot de %d élément(s) de %s impossible",
+                lot.size(), nom), e);
+            return false;
+        }
+    }
+
+    // Arrête le thread après avoir écrit les événements en attente
+    public void shutdown() {
+        Thread t;
+        synchronized (verrouEcriture) {
+            if (!actif) {
+                return;
+            }
+            actif = false;
+            t = thread;
+        }
+        LockSupport.unpark(t);
+        try {
+            t.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        vider();
+        ACTIFS.remove(this);
+        LOGGER.info(String.format("File d'écriture %s arrêtée (%d écrits, %d rejetés, %d perdus)",
+            nom, ecrits.get(), rejetes.get(), perdus.get()));
+    }
+
+    static void shutdownAll() {
+        for (AsyncBatchWriter<?> writer : ACTIFS) {
+            writer.shutdown();
+        }
+    }
+
+    public int getTailleFile() {
+        return taille.get();
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("Soumis", soumis.get());
+        stats.put("Écrits", ecrits.get());
+        stats.put("Lots", lots.get());
+        stats.put("Rejetés", rejetes.get());
+        stats.put("Perdus", perdus.get());
+        stats.put("En attente", (long) taille.get());
+        return stats;
+    }
+}
@@ -1,6 +1,5 @@
 package com.poissonnerie.util;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.logging.Level;
@@ -15,17 +14,18 @@ public class AuditLogger {
             return;
         }
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO journal_actions (utilisateur_id, type_action, entite, description, details, date_action) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)"
-             )) {
-            stmt.setInt(1, utilisateurId);
-            stmt.setString(2, typeAction);
-            stmt.setString(3, entite);
-            stmt.setString(4, description);
-            stmt.setString(5, details);
-
-            int result = stmt.executeUpdate();
+        try {
+            int result = TransactionTemplate.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO journal_actions (utilisateur_id, type_action, entite, description, details, date_action) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)")) {
+                    stmt.setInt(1, utilisateurId);
+                    stmt.setString(2, typeAction);
+                    stmt.setString(3, entite);
+                    stmt.setString(4, description);
+                    stmt.setString(5, details);
+                    return stmt.executeUpdate();
+                }
+            });
             if (result > 0) {
                 LOGGER.info(String.format("Action enregistrée avec succès - Utilisateur: %d, Action: %s", utilisateurId, typeAction));
             } else {
@@ -0,0 +1,363 @@
+package com.poissonnerie.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+// Cache disque des rapports générés. Un fichier est indexé par le type de rapport, ses
+// paramètres et les versions des tables lues (versions_tables, tenue par des triggers) :
+// dès qu'une de ces tables change, la clé change et le rapport est régénéré. L'ancienne
+// version est alors supprimée ; au-delà de la taille maximale, les fichiers les moins
+// récemment servis sont évincés. Les versions sont lues à la création de la clé, avant les
+// données : un rapport ne peut donc jamais être rangé sous une version plus récente que
+// son contenu, à condition de lire ses données en base après la création de la clé, et
+// non dans les listes en mémoire des écrans, rafraîchies seulement après la validation.
+public final class CacheRapports {
+    private static final Logger LOGGER = Logger.getLogger(CacheRapports.class.getName());
+    private static final Path REPERTOIRE = Paths.get(System.getProperty("poissonnerie.rapports.cacheDir", "cache/rapports"));
+    private static final long TAILLE_MAX = Long.getLong("poissonnerie.rapports.cacheMaxBytes", 256L * 1024 * 1024);
+    private static final String EXTENSION = ".rapport";
+
+    // Fichiers du cache (nom -> taille), du moins au plus récemment servi
+    private static final Map<String, Long> INDEX = new LinkedHashMap<>(16, 0.75f, true);
+    private static final AtomicLong succes = new AtomicLong();
+    private static final AtomicLong echecs = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static long tailleTotale;
+    private static boolean charge;
+
+    // Identité d'un rapport et versions des tables lues au moment de sa création
+    public static final class Cle {
+        private final String type;
+        private final String parametres;
+        private final String versions;
+
+        private Cle(String type, String parametres, String versions) {
+            this.type = type;
+            this.parametres = parametres;
+            this.versions = versions;
+        }
+
+        @Override
+        public String toString() {
+            return type + "(" + parametres + ")";
+        }
+    }
+
+    // Génération du rapport dans le fichier donné
+    @FunctionalInterface
+    public interface Generation {
+        void generer(Path fichier) throws Exception;
+    }
+
+    // Génération du rapport dans le flux donné (PDF)
+    @FunctionalInterface
+    public interface GenerationFlux {
+        void generer(OutputStream sortie) throws Exception;
+    }
+
+    private CacheRapports() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    // Copie le rapport en cache dans le fichier de destination, ou l'y génère puis le range
+    public static void produire(Cle cle, Path destination, Generation generation) throws Exception {
+        if (cle == null || TAILLE_MAX <= 0) {
+            generation.generer(destination);
+            return;
+        }
+        String nom = nomFichier(cle);
+        if (servir(nom, destination, null)) {
+            LOGGER.fine("Rapport servi par le cache: " + cle);
+            return;
+        }
+        generation.generer(destination);
+        // Génération sans fichier (aucune donnée) : rien à ranger
+        if (Files.exists(destination)) {
+            Path temporaire = Files.createTempFile(repertoire(), "ajout", ".tmp");
+            Files.copy(destination, temporaire, StandardCopyOption.REPLACE_EXISTING);
+            ranger(nom, temporaire);
+        }
+    }
+
+    // Variante pour les générateurs qui écrivent dans un flux (PDF). Le rapport est toujours
+    // généré directement dans la destination ; en cas d'absence du cache, les octets écrits
+    // sont recopiés au passage dans le fichier qui y sera rangé.
+    public static void produire(Cle cle, OutputStream destination, GenerationFlux generation) throws Exception {
+        if (cle == null || TAILLE_MAX <= 0) {
+            generation.generer(destination);
+            return;
+        }
+        String nom = nomFichier(cle);
+        if (servir(nom, null, destination)) {
+            LOGGER.fine("Rapport servi par le cache: " + cle);
+            return;
+        }
+        Path temporaire = Files.createTempFile(repertoire(), "ajout", ".tmp");
+        try {
+            try (OutputStream sortie = new BufferedOutputStream(
+                    new Duplication(destination, Files.newOutputStream(temporaire)))) {
+                generation.generer(sortie);
+            }
+            ranger(nom, temporaire);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    // Écrit dans la destination et dans la copie ; seule la copie est fermée, la
+    // destination appartient à l'appelant
+    private static final class Duplication extends OutputStream {
+        private final OutputStream destination;
+        private final OutputStream copie;
+
+        Duplication(OutputStream destination, OutputStream copie) {
+            this.destination = destination;
+            this.copie = copie;
+        }
+
+        @Override
+        public void write(int octet) throws IOException {
+            destination.write(octet);
+            copie.write(octet);
+        }
+
+        @Override
+        public void write(byte[] octets, int debut, int longueur) throws IOException {
+            destination.write(octets, debut, longueur);
+            copie.write(octets, debut, longueur);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            destination.flush();
+            copie.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                destination.flush();
+            } finally {
+                copie.close();
+            }
+        }
+    }
+
+    // À créer avant de lire les données du rapport
+    public static Cle cle(String type, List<String> tables, Object... parametres) {
+        String valeurs = Arrays.stream(parametres).map(String::valueOf).collect(Collectors.joining("|"));
+        try {
+            return new Cle(type, valeurs, versions(tables));
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la lecture des versions des tables", e);
+            throw new RuntimeException("Erreur lors de la lecture des versions des tables: " + e.getMessage(), e);
+        }
+    }
+
+    public static synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("Rapports en cache", (long) INDEX.size());
+        stats.put("Taille du cache (octets)", tailleTotale);
+        stats.put("Rapports servis par le cache", succes.get());
+        stats.put("Rapports générés", echecs.get());
+        stats.put("Rapports évincés", evictions.get());
+        return stats;
+    }
+
+    // Le préfixe identifie le rapport et ses paramètres, le suffixe la version des données
+    private static String nomFichier(Cle cle) {
+        return empreinte(cle.type + "\n" + cle.parametres) + "-" + empreinte(cle.versions) + EXTENSION;
+    }
+
+    private static String versions(List<String> tables) throws SQLException {
+        if (tables.isEmpty()) {
+            return "";
+        }
+        String marques = tables.stream().map(t -> "?").collect(Collectors.joining(", "));
+        String sql = "SELECT nom_table, version FROM versions_tables WHERE nom_table IN (" + marques + ") ORDER BY nom_table";
+        StringBuilder versions = new StringBuilder();
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < tables.size(); i++) {
+                stmt.setString(i + 1, tables.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    versions.append(rs.getString("nom_table")).append('=').append(rs.getLong("version")).append(';');
+                }
+            }
+        }
+        return versions.toString();
+    }
+
+    private static boolean servir(String nom, Path fichier, OutputStream flux) throws IOException {
+        Path source;
+        synchronized (CacheRapports.class) {
+            charger();
+            if (INDEX.get(nom) == null) {
+                echecs.incrementAndGet();
+                return false;
+            }
+            source = REPERTOIRE.resolve(nom);
+        }
+        try {
+            if (fichier != null) {
+                Files.copy(source, fichier, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.copy(source, flux);
+            }
+            // Date de dernier accès, pour reconstituer l'ordre LRU au prochain démarrage
+            Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // Évincé entre-temps par un autre thread
+            synchronized (CacheRapports.class) {
+                retirer(nom);
+            }
+            echecs.incrementAndGet();
+            return false;
+        }
+        succes.incrementAndGet();
+        return true;
+    }
+
+    private static void ranger(String nom, Path temporaire) {
+        try {
+            long taille = Files.size(temporaire);
+            if (taille > TAILLE_MAX) {
+                return;
+            }
+            Files.move(temporaire, REPERTOIRE.resolve(nom), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            synchronized (CacheRapports.class) {
+                String prefixe = nom.substring(0, nom.indexOf('-') + 1);
+                // Les versions précédentes du même rapport ne seront plus jamais servies
+                for (String ancien : new ArrayList<>(INDEX.keySet())) {
+                    if (ancien.startsWith(prefixe) && !ancien.equals(nom)) {
+                        supprimer(ancien);
+                    }
+                }
+                retirer(nom);
+                INDEX.put(nom, taille);
+                tailleTotale += taille;
+                evincer();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossible de ranger le rapport dans le cache", e);
+        }
+    }
+
+    private static void evincer() {
+        Iterator<Map.Entry<String, Long>> it = INDEX.entrySet().iterator();
+        while (tailleTotale > TAILLE_MAX && it.hasNext()) {
+            Map.Entry<String, Long> plusAncien = it.next();
+            it.remove();
+            tailleTotale -= plusAncien.getValue();
+            effacer(plusAncien.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static void supprimer(String nom) {
+        retirer(nom);
+        effacer(nom);
+    }
+
+    private static void retirer(String nom) {
+        Long taille = INDEX.remove(nom);
+        if (taille != null) {
+            tailleTotale -= taille;
+        }
+    }
+
+    private static void effacer(String nom) {
+        try {
+            Files.deleteIfExists(REPERTOIRE.resolve(nom));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossible de supprimer " + nom + " du cache", e);
+        }
+    }
+
+    private static Path repertoire() throws IOException {
+        Files.createDirectories(REPERTOIRE);
+        return REPERTOIRE;
+    }
+
+    // Reconstitue l'index depuis le disque au premier accès, dans l'ordre des derniers accès
+    private static void charger() {
+        if (charge) {
+            return;
+        }
+        charge = true;
+        if (!Files.isDirectory(REPERTOIRE)) {
+            return;
+        }
+        List<Path> fichiers = new ArrayList<>();
+        try (DirectoryStream<Path> contenu = Files.newDirectoryStream(REPERTOIRE)) {
+            for (Path fichier : contenu) {
+                if (fichier.getFileName().toString().endsWith(EXTENSION)) {
+                    fichiers.add(fichier);
+                } else {
+                    // Ajout interrompu par un arrêt de l'application
+                    Files.deleteIfExists(fichier);
+                }
+            }
+            fichiers.sort(Comparator.comparing(CacheRapports::dateAcces));
+            for (Path fichier : fichiers) {
+                long taille = Files.size(fichier);
+                INDEX.put(fichier.getFileName().toString(), taille);
+                tailleTotale += taille;
+            }
+            evincer();
+            LOGGER.info(String.format("Cache des rapports chargé: %d fichier(s), %d octets", INDEX.size(), tailleTotale));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Erreur lors du chargement du cache des rapports", e);
+        }
+    }
+
+    private static FileTime dateAcces(Path fichier) {
+        try {
+            return Files.getLastModifiedTime(fichier);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String empreinte(String texte) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(texte.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
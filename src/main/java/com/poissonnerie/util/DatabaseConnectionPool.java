@@ -1,44 +1,167 @@
-
 package com.poissonnerie.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
 import org.sqlite.SQLiteOpenMode;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
+// Connexions SQLite. Les PRAGMA sont portés par la SQLiteConfig et ne sont appliqués
+// qu'une fois, à l'ouverture de chaque connexion physique. Les lectures passent par un
+// pool HikariCP qui ouvre la base en READONLY + query_only : en WAL, ses lecteurs
+// travaillent en parallèle de la transaction d'écriture sans jamais prendre le verrou.
+// Les écritures n'utilisent pas de pool : DatabaseWriter garde une connexion dédiée.
 public class DatabaseConnectionPool {
     private static final Logger LOGGER = Logger.getLogger(DatabaseConnectionPool.class.getName());
     private static final String DB_FILE = "poissonnerie.db";
-    private static SQLiteConfig config;
+    private static final String READ_POOL_NAME = "poissonnerie-lecture";
 
-    static {
-        try {
-            config = new SQLiteConfig();
-            config.setOpenMode(SQLiteOpenMode.READWRITE);
-            config.setBusyTimeout(30000);
-            config.enforceForeignKeys(true);
-            config.setTempStore(SQLiteConfig.TempStore.MEMORY);
-            config.setCacheSize(2000);
-            config.setPageSize(4096);
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Erreur lors de l'initialisation de la configuration SQLite", e);
-            throw new RuntimeException("Échec de l'initialisation de la configuration SQLite", e);
-        }
+    // Paramètres du pool, surchargeables par propriétés système
+    private static final int MIN_IDLE = Integer.getInteger("poissonnerie.db.pool.minIdle", 1);
+    private static final int READ_MAX_POOL_SIZE = Integer.getInteger("poissonnerie.db.readPool.max", 4);
+    private static final int READ_CACHE_SIZE_KB = Integer.getInteger("poissonnerie.db.readPool.cacheSizeKb", 16384);
+    private static final long READ_MMAP_SIZE = Long.getLong("poissonnerie.db.readPool.mmapSize", 268435456L);
+    private static final long CONNECTION_TIMEOUT_MS = Long.getLong("poissonnerie.db.pool.connectionTimeoutMs", 30000L);
+    private static final long VALIDATION_TIMEOUT_MS = Long.getLong("poissonnerie.db.pool.validationTimeoutMs", 3000L);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("poissonnerie.db.pool.idleTimeoutMs", 600000L);
+    private static final long MAX_LIFETIME_MS = Long.getLong("poissonnerie.db.pool.maxLifetimeMs", 1800000L);
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    private static final Object POOL_LOCK = new Object();
+    private static volatile HikariDataSource readDataSource;
+
+    private DatabaseConnectionPool() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    public static Connection getReadConnection() throws SQLException {
+        return StatementCache.wrap(checkConnection(getReadDataSource().getConnection()));
     }
 
-    public static Connection getConnection() throws SQLException {
-        String url = "jdbc:sqlite:" + DB_FILE;
-        Connection conn = DriverManager.getConnection(url, config.toProperties());
+    private static Connection checkConnection(Connection conn) throws SQLException {
         if (conn == null) {
             throw new SQLException("Impossible de créer une connexion à la base de données");
         }
         return conn;
     }
 
-    private DatabaseConnectionPool() {
-        // Constructeur privé pour empêcher l'instanciation
+    // Connexion hors pool en lecture/écriture (DatabaseWriter, migrations)
+    static Connection createDedicatedConnection() throws SQLException {
+        return StatementCache.wrap(createSQLiteDataSource(createSQLiteConfig()).getConnection());
+    }
+
+    private static HikariDataSource getReadDataSource() {
+        HikariDataSource ds = readDataSource;
+        if (ds == null) {
+            synchronized (POOL_LOCK) {
+                ds = readDataSource;
+                if (ds == null) {
+                    ds = createDataSource(READ_POOL_NAME, createReadOnlySQLiteConfig(), READ_MAX_POOL_SIZE,
+                        true, "PRAGMA query_only = true");
+                    readDataSource = ds;
+                }
+            }
+        }
+        return ds;
+    }
+
+    private static HikariDataSource createDataSource(String poolName, SQLiteConfig config, int maxPoolSize,
+                                                     boolean readOnly, String initSql) {
+        try {
+            HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setPoolName(poolName);
+            hikariConfig.setDataSource(createSQLiteDataSource(config));
+            hikariConfig.setMaximumPoolSize(maxPoolSize);
+            hikariConfig.setMinimumIdle(Math.min(MIN_IDLE, maxPoolSize));
+            hikariConfig.setConnectionTimeout(CONNECTION_TIMEOUT_MS);
+            hikariConfig.setValidationTimeout(VALIDATION_TIMEOUT_MS);
+            hikariConfig.setIdleTimeout(IDLE_TIMEOUT_MS);
+            hikariConfig.setMaxLifetime(MAX_LIFETIME_MS);
+            hikariConfig.setAutoCommit(true);
+            // Doit correspondre au mode d'ouverture : SQLite refuse de le changer après coup
+            hikariConfig.setReadOnly(readOnly);
+            if (initSql != null) {
+                hikariConfig.setConnectionInitSql(initSql);
+            }
+
+            HikariDataSource ds = new HikariDataSource(hikariConfig);
+            LOGGER.info(String.format("Pool de connexions %s initialisé (max: %d, minIdle: %d)",
+                poolName, maxPoolSize, hikariConfig.getMinimumIdle()));
+            return ds;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'initialisation du pool de connexions " + poolName, e);
+            throw new RuntimeException("Échec de l'initialisation du pool de connexions", e);
+        }
+    }
+
+    private static SQLiteDataSource createSQLiteDataSource(SQLiteConfig config) {
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource(config);
+        sqliteDataSource.setUrl("jdbc:sqlite:" + DB_FILE);
+        return sqliteDataSource;
+    }
+
+    private static SQLiteConfig createSQLiteConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setOpenMode(SQLiteOpenMode.READWRITE);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+
+        // Configuration de sécurité
+        config.enforceForeignKeys(true);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        config.setCacheSize(2000);
+        config.setPageSize(4096);
+        return config;
+    }
+
+    private static SQLiteConfig createReadOnlySQLiteConfig() {
+        SQLiteConfig config = new SQLiteConfig();
+        // Le mode WAL est persistant dans le fichier : inutile de le redéfinir en lecture seule
+        config.setReadOnly(true);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        config.setCacheSize(-READ_CACHE_SIZE_KB);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(READ_MMAP_SIZE));
+        return config;
+    }
+
+    // Métriques instantanées du pool de lecture
+    public static Map<String, Integer> getPoolStats() {
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        ajouterStats(stats, "Lecture - ", readDataSource, READ_MAX_POOL_SIZE);
+        return stats;
+    }
+
+    private static void ajouterStats(Map<String, Integer> stats, String prefixe, HikariDataSource ds, int maxPoolSize) {
+        if (ds == null || ds.isClosed()) {
+            return;
+        }
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        if (pool == null) {
+            return;
+        }
+        stats.put(prefixe + "Connexions actives", pool.getActiveConnections());
+        stats.put(prefixe + "Connexions inactives", pool.getIdleConnections());
+        stats.put(prefixe + "Connexions totales", pool.getTotalConnections());
+        stats.put(prefixe + "Threads en attente", pool.getThreadsAwaitingConnection());
+        stats.put(prefixe + "Taille maximale", maxPoolSize);
+    }
+
+    public static void shutdown() {
+        synchronized (POOL_LOCK) {
+            if (readDataSource != null && !readDataSource.isClosed()) {
+                readDataSource.close();
+            }
+            readDataSource = null;
+            LOGGER.info("Pool de connexions fermé");
+        }
     }
 }
@@ -0,0 +1,264 @@
+package com.poissonnerie.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+
+// Écrivain unique : toutes les écritures passent par une seule connexion longue
+// durée alimentée par une file. Les tâches présentes dans la file au même moment
+// sont regroupées dans un seul BEGIN IMMEDIATE ... COMMIT (group commit), chacune
+// isolée par un SAVEPOINT pour qu'un échec n'annule que sa propre tâche.
+public class DatabaseWriter {
+    private static final Logger LOGGER = Logger.getLogger(DatabaseWriter.class.getName());
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("poissonnerie.db.writer.maxBatch", 32);
+    private static final String THREAD_NAME = "poissonnerie-writer";
+
+    private static final BlockingQueue<PendingTask<?>> QUEUE = new LinkedBlockingQueue<>();
+    private static final Object WRITER_LOCK = new Object();
+    private static final AtomicLong transactionsCount = new AtomicLong();
+    private static final AtomicLong tasksCount = new AtomicLong();
+    private static volatile Thread writerThread;
+    private static volatile boolean running;
+    // Positionné par shutdown() : l'écrivain n'est pas relancé, les soumissions sont refusées
+    private static boolean stopped;
+    private static Connection writeConnection;
+
+    // Unité de travail exécutée dans la transaction d'écriture.
+    // Elle ne doit ni valider ni annuler la transaction elle-même.
+    @FunctionalInterface
+    public interface WriteTask<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+
+    private static final class PendingTask<T> {
+        private final WriteTask<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Throwable error;
+
+        PendingTask(WriteTask<T> task) {
+            this.task = task;
+        }
+
+        void run(Connection conn) {
+            try {
+                result = task.execute(conn);
+            } catch (Throwable t) {
+                error = t;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        void fail(Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    private DatabaseWriter() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    public static <T> CompletableFuture<T> submit(WriteTask<T> task) {
+        if (task == null) {
+            throw new IllegalArgumentException("La tâche d'écriture ne peut pas être null");
+        }
+
+        // Appel imbriqué depuis une tâche en cours : exécution dans la même transaction
+        if (isWriterThread()) {
+            try {
+                return CompletableFuture.completedFuture(task.execute(writeConnection));
+            } catch (Throwable t) {
+                return CompletableFuture.failedFuture(t);
+            }
+        }
+
+        PendingTask<T> pending = new PendingTask<>(task);
+        // Sous le verrou : une tâche ne peut pas entrer dans la file après que la boucle
+        // de l'écrivain l'a vidée pour s'arrêter
+        synchronized (WRITER_LOCK) {
+            if (stopped) {
+                return CompletableFuture.failedFuture(
+                    new SQLException("L'écrivain de base de données est arrêté"));
+            }
+            ensureStarted();
+            QUEUE.add(pending);
+        }
+        return pending.future;
+    }
+
+    // Vrai pendant l'exécution d'une tâche, sur le thread de l'écrivain
+    public static boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    public static <T> T execute(WriteTask<T> task) throws SQLException {
+        try {
+            return submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interruption pendant l'attente de l'écriture", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException("Erreur lors de l'écriture: " + cause.getMessage(), cause);
+        }
+    }
+
+    // Appelé sous WRITER_LOCK
+    private static void ensureStarted() {
+        if (!running) {
+            running = true;
+            Thread thread = new Thread(DatabaseWriter::processQueue, THREAD_NAME);
+            thread.setDaemon(true);
+            writerThread = thread;
+            thread.start();
+            LOGGER.info("Écrivain de base de données démarré");
+        }
+    }
+
+    private static void processQueue() {
+        List<PendingTask<?>> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !QUEUE.isEmpty()) {
+            try {
+                PendingTask<?> first = QUEUE.take();
+                batch.add(first);
+                QUEUE.drainTo(batch, MAX_BATCH_SIZE - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                // Réveil par shutdown() : la boucle vide la file avant de s'arrêter
+            } catch (Throwable t) {
+                // Erreur imprévue (migration, pilote...) : le lot échoue mais l'écrivain
+                // continue, sans quoi toutes les écritures suivantes attendraient indéfiniment.
+                // La connexion, dans un état inconnu, est rouverte au lot suivant.
+                LOGGER.log(Level.SEVERE, "Erreur inattendue dans l'écrivain de base de données", t);
+                batch.forEach(p -> p.fail(t));
+                closeConnection();
+            } finally {
+                batch.clear();
+            }
+        }
+        closeConnection();
+    }
+
+    private static void processBatch(List<PendingTask<?>> batch) {
+        Connection conn;
+        try {
+            conn = getWriteConnection();
+            executeSql(conn, "BEGIN IMMEDIATE");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Impossible de démarrer la transaction d'écriture", e);
+            batch.forEach(p -> p.fail(e));
+            return;
+        }
+
+        try {
+            for (PendingTask<?> pending : batch) {
+                executeSql(conn, "SAVEPOINT tache");
+                pending.run(conn);
+                if (pending.error != null) {
+                    executeSql(conn, "ROLLBACK TO tache");
+                }
+                executeSql(conn, "RELEASE tache");
+            }
+            executeSql(conn, "COMMIT");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la validation du lot d'écritures", e);
+            try {
+                executeSql(conn, "ROLLBACK");
+            } catch (SQLException re) {
+                LOGGER.log(Level.SEVERE, "Erreur lors du rollback", re);
+            }
+            batch.forEach(p -> p.fail(e));
+            return;
+        }
+
+        transactionsCount.incrementAndGet();
+        tasksCount.addAndGet(batch.size());
+        if (batch.size() > 1) {
+            LOGGER.fine("Group commit: " + batch.size() + " tâches validées en une transaction");
+        }
+        batch.forEach(PendingTask::complete);
+    }
+
+    private static void executeSql(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static Connection getWriteConnection() throws SQLException {
+        if (writeConnection == null || writeConnection.isClosed()) {
+            DatabaseManager.initializeDatabase();
+            writeConnection = DatabaseConnectionPool.createDedicatedConnection();
+            writeConnection.setAutoCommit(true);
+            LOGGER.info("Connexion d'écriture ouverte");
+        }
+        return writeConnection;
+    }
+
+    private static void closeConnection() {
+        if (writeConnection != null) {
+            StatementCache.release(writeConnection);
+            try {
+                writeConnection.close();
+                LOGGER.info("Connexion d'écriture fermée");
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Erreur lors de la fermeture de la connexion d'écriture", e);
+            }
+            writeConnection = null;
+        }
+    }
+
+    public static long getTransactionsCount() {
+        return transactionsCount.get();
+    }
+
+    public static long getTasksCount() {
+        return tasksCount.get();
+    }
+
+    public static void shutdown() {
+        Thread thread;
+        synchronized (WRITER_LOCK) {
+            stopped = true;
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = writerThread;
+        }
+        thread.interrupt();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+        LOGGER.info(String.format("Écrivain de base de données arrêté (%d tâches, %d transactions)",
+            tasksCount.get(), transactionsCount.get()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.poissonnerie.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+// Traduction d'un ticket en commandes ESC/POS, envoyées telles quelles à l'imprimante
+// thermique : pas de rastérisation, l'imprimante utilise sa police interne. Le texte est
+// encodé en Windows-1252 (table de caractères 16), qui couvre les accents et le symbole €.
+public final class EscPosEncoder {
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte LF = 0x0A;
+    private static final int TABLE_WPC1252 = 16;
+    private static final Charset ENCODAGE = Charset.forName("windows-1252");
+    // Avance avant la coupe, pour que la dernière ligne dépasse la lame
+    private static final int LIGNES_AVANT_COUPE = Integer.getInteger("poissonnerie.ticket.feedLines", 4);
+
+    private final ByteArrayOutputStream octets = new ByteArrayOutputStream(1024);
+    private boolean gras;
+
+    public EscPosEncoder() {
+        // ESC @ : réinitialisation, puis sélection de la table de caractères
+        commande(ESC, '@');
+        commande(ESC, 't', TABLE_WPC1252);
+    }
+
+    public EscPosEncoder texte(String texte) {
+        byte[] encode = texte.getBytes(ENCODAGE);
+        octets.write(encode, 0, encode.length);
+        return this;
+    }
+
+    public EscPosEncoder ligne(String texte) {
+        texte(texte);
+        octets.write(LF);
+        return this;
+    }
+
+    public EscPosEncoder gras(boolean actif) {
+        if (actif != gras) {
+            commande(ESC, 'E', actif ? 1 : 0);
+            gras = actif;
+        }
+        return this;
+    }
+
+    public EscPosEncoder avancer(int lignes) {
+        commande(ESC, 'd', Math.max(0, Math.min(lignes, 255)));
+        return this;
+    }
+
+    // GS V 66 n : avance de n points puis coupe partielle
+    public EscPosEncoder couper() {
+        avancer(LIGNES_AVANT_COUPE);
+        commande(GS, 'V', 66, 0);
+        return this;
+    }
+
+    // ESC p 0 t1 t2 : impulsion sur la broche 2 du tiroir-caisse (t1 × 2 ms, t2 × 2 ms)
+    public EscPosEncoder ouvrirTiroir() {
+        commande(ESC, 'p', 0, 25, 250);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return octets.toByteArray();
+    }
+
+    private void commande(byte prefixe, int... parametres) {
+        octets.write(prefixe);
+        for (int parametre : parametres) {
+            octets.write(parametre);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.poissonnerie.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+// Bus d'événements métier en mémoire. Les contrôleurs publient après la validation de
+// leur transaction ; chaque abonné reçoit les événements du type demandé (ou de ses
+// sous-types) sur son propre exécuteur, l'EDT pour les écrans. Les événements arrivés
+// pendant qu'une livraison est en attente sont regroupés : l'abonné reçoit la rafale
+// entière en une seule fois et ne se met à jour qu'une fois.
+public final class EventBus {
+    private static final Logger LOGGER = Logger.getLogger(EventBus.class.getName());
+    private static volatile EventBus instance;
+
+    private final List<Abonnement<?>> abonnements = new CopyOnWriteArrayList<>();
+    private final AtomicLong publies = new AtomicLong();
+    private final AtomicLong livraisons = new AtomicLong();
+
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    // Exécuteur à un seul thread (démon) pour un abonné hors écran : la livraison ne bloque
+    // pas l'éditeur et ses handlers ne s'exécutent jamais en parallèle
+    public static Executor executeurDedie(String nom) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, nom);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private EventBus() {
+    }
+
+    public static EventBus getInstance() {
+        if (instance == null) {
+            synchronized (EventBus.class) {
+                if (instance == null) {
+                    instance = new EventBus();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public final class Abonnement<E> {
+        private final Class<E> type;
+        private final Executor executeur;
+        private final Consumer<List<E>> handler;
+        private final Queue<E> enAttente = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean livraisonPlanifiee = new AtomicBoolean();
+        private volatile boolean actif = true;
+
+        private Abonnement(Class<E> type, Executor executeur, Consumer<List<E>> handler) {
+            this.type = type;
+            this.executeur = executeur;
+            this.handler = handler;
+        }
+
+        private void recevoir(Object evenement) {
+            enAttente.add(type.cast(evenement));
+            if (livraisonPlanifiee.compareAndSet(false, true)) {
+                executeur.execute(this::livrer);
+            }
+        }
+
+        private void livrer() {
+            // Réarmé avant de vider la file : un événement publié pendant la livraison
+            // planifie la suivante au lieu d'être oublié
+            livraisonPlanifiee.set(false);
+            List<E> rafale = new ArrayList<>();
+            E evenement;
+            while ((evenement = enAttente.poll()) != null) {
+                rafale.add(evenement);
+            }
+            if (rafale.isEmpty() || !actif) {
+                return;
+            }
+            livraisons.incrementAndGet();
+            try {
+                handler.accept(rafale);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Erreur dans un abonné à " + type.getSimpleName(), e);
+            }
+        }
+
+        public void annuler() {
+            actif = false;
+            abonnements.remove(this);
+            enAttente.clear();
+        }
+    }
+
+    // Le handler reçoit les événements regroupés, dans l'ordre de publication
+    public <E> Abonnement<E> abonner(Class<E> type, Executor executeur, Consumer<List<E>> handler) {
+        Abonnement<E> abonnement = new Abonnement<>(type, executeur, handler);
+        abonnements.add(abonnement);
+        return abonnement;
+    }
+
+    public void publier(Object evenement) {
+        if (evenement == null) {
+            throw new IllegalArgumentException("L'événement ne peut pas être null");
+        }
+        publies.incrementAndGet();
+        for (Abonnement<?> abonnement : abonnements) {
+            if (abonnement.type.isInstance(evenement)) {
+                try {
+                    abonnement.recevoir(evenement);
+                } catch (RuntimeException e) {
+                    // Exécuteur arrêté ou saturé : l'éditeur n'a pas à en pâtir
+                    abonnement.livraisonPlanifiee.set(false);
+                    LOGGER.log(Level.WARNING, "Livraison impossible de " + evenement.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+
+    public long getNombrePublies() {
+        return publies.get();
+    }
+
+    public long getNombreLivraisons() {
+        return livraisons.get();
+    }
+}
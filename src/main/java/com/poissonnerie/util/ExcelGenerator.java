@@ -1,6 +1,8 @@
 package com.poissonnerie.util;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import com.poissonnerie.model.*;
@@ -20,6 +22,8 @@ public class ExcelGenerator {
     private static final String OUTPUT_DIR = "generated_excel";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    // Lignes gardées en mémoire par feuille d'un classeur en flux
+    private static final int FENETRE_LIGNES = Integer.getInteger("poissonnerie.excel.rowWindow", 100);
 
     // Codes de permission pour les rapports
     public static final String PERM_RAPPORT_STOCKS = "RAPPORT_STOCKS";
@@ -42,36 +46,80 @@ public class ExcelGenerator {
         }
     }
 
-    private static void applyHeaderStyle(XSSFWorkbook workbook, XSSFCell cell) {
-        XSSFCellStyle style = workbook.createCellStyle();
-        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
-        style.setAlignment(HorizontalAlignment.CENTER);
-
-        XSSFFont font = workbook.createFont();
-        font.setBold(true);
-        style.setFont(font);
-
-        cell.setCellStyle(style);
+    // Styles créés une seule fois par classeur et partagés par toutes les cellules : un
+    // classeur ne peut pas dépasser 64 000 styles, quel que soit le nombre de lignes
+    private static final class Styles {
+        private final CellStyle entete;
+        private final CellStyle monetaire;
+        private final CellStyle pourcentage;
+
+        private Styles(Workbook workbook) {
+            entete = workbook.createCellStyle();
+            entete.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            entete.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            entete.setBorderBottom(BorderStyle.THIN);
+            entete.setBorderTop(BorderStyle.THIN);
+            entete.setBorderLeft(BorderStyle.THIN);
+            entete.setBorderRight(BorderStyle.THIN);
+            entete.setAlignment(HorizontalAlignment.CENTER);
+            Font font = workbook.createFont();
+            font.setBold(true);
+            entete.setFont(font);
+
+            DataFormat formats = workbook.createDataFormat();
+            monetaire = workbook.createCellStyle();
+            monetaire.setDataFormat(formats.getFormat("#,##0.00€"));
+            pourcentage = workbook.createCellStyle();
+            pourcentage.setDataFormat(formats.getFormat("0.00%"));
+        }
     }
 
-    private static void applyCurrencyStyle(XSSFWorkbook workbook, XSSFCell cell) {
-        XSSFCellStyle style = workbook.createCellStyle();
-        style.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00€"));
-        cell.setCellStyle(style);
+    // Feuille dont les colonnes seront ajustées : un classeur en flux doit suivre la
+    // largeur des cellules avant qu'elles ne quittent la mémoire
+    private static Sheet creerFeuilleAjustable(Workbook workbook, String nom) {
+        Sheet sheet = workbook.createSheet(nom);
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+        }
+        return sheet;
+    }
+
+    // Classeur copié depuis le cache des rapports quand les données lues n'ont pas changé
+    private static void produire(CacheRapports.Cle cle, String cheminFichier, CacheRapports.Generation generation) {
+        try {
+            CacheRapports.produire(cle, Paths.get(cheminFichier), generation);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport Excel", e);
+            throw new RuntimeException("Erreur lors de la génération du rapport Excel", e);
+        }
+    }
+
+    private static void applyHeaderStyle(Styles styles, Cell cell) {
+        cell.setCellStyle(styles.entete);
+    }
+
+    private static void applyCurrencyStyle(Styles styles, Cell cell) {
+        cell.setCellStyle(styles.monetaire);
     }
 
     public static void genererRapportStocks(String username, List<Produit> produits, Map<String, Double> statistiques, String cheminFichier) {
+        genererRapportStocks(username, produits, statistiques, cheminFichier, null);
+    }
+
+    public static void genererRapportStocks(String username, List<Produit> produits, Map<String, Double> statistiques, String cheminFichier, CacheRapports.Cle cle) {
         if (!authController.hasPermission(username, PERM_RAPPORT_STOCKS)) {
             LOGGER.warning("Tentative d'accès non autorisé au rapport des stocks par: " + username);
             throw new SecurityException("Accès non autorisé au rapport des stocks");
         }
 
+        produire(cle, cheminFichier, fichier -> ecrireRapportStocks(produits, statistiques, fichier.toString()));
+    }
+
+    private static void ecrireRapportStocks(List<Produit> produits, Map<String, Double> statistiques, String cheminFichier) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Styles styles = new Styles(workbook);
             XSSFSheet stockSheet = workbook.createSheet("État des Stocks");
 
             // En-tête avec analyses
@@ -81,7 +129,7 @@ public class ExcelGenerator {
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
-                applyHeaderStyle(workbook, (XSSFCell)cell);
+                applyHeaderStyle(styles, cell);
                 stockSheet.setColumnWidth(i, 256 * 15);
             }
 
@@ -97,11 +145,11 @@ public class ExcelGenerator {
 
                 Cell prixAchatCell = row.createCell(3);
                 prixAchatCell.setCellValue(p.getPrixAchat());
-                applyCurrencyStyle(workbook, (XSSFCell)prixAchatCell);
+                applyCurrencyStyle(styles, prixAchatCell);
 
                 Cell prixVenteCell = row.createCell(4);
                 prixVenteCell.setCellValue(p.getPrixVente());
-                applyCurrencyStyle(workbook, (XSSFCell)prixVenteCell);
+                applyCurrencyStyle(styles, prixVenteCell);
 
                 row.createCell(5).setCellValue(p.getStock());
                 row.createCell(6).setCellValue(p.getSeuilAlerte());
@@ -110,7 +158,7 @@ public class ExcelGenerator {
                 double valeurStock = p.getStock() * p.getPrixAchat();
                 Cell valeurStockCell = row.createCell(8);
                 valeurStockCell.setCellValue(valeurStock);
-                applyCurrencyStyle(workbook, (XSSFCell)valeurStockCell);
+                applyCurrencyStyle(styles, valeurStockCell);
 
                 valeurTotaleStock += valeurStock;
                 produitsParCategorie.merge(p.getCategorie(), 1, Integer::sum);
@@ -124,20 +172,20 @@ public class ExcelGenerator {
             Row titleRow = analyseSheet.createRow(rowNum++);
             Cell titleCell = titleRow.createCell(0);
             titleCell.setCellValue("Analyses des Stocks");
-            applyHeaderStyle(workbook, (XSSFCell)titleCell);
+            applyHeaderStyle(styles, titleCell);
 
             // Valeur totale du stock
             Row totalRow = analyseSheet.createRow(rowNum++);
             totalRow.createCell(0).setCellValue("Valeur totale du stock");
             Cell totalValueCell = totalRow.createCell(1);
             totalValueCell.setCellValue(valeurTotaleStock);
-            applyCurrencyStyle(workbook, (XSSFCell)totalValueCell);
+            applyCurrencyStyle(styles, totalValueCell);
 
             // Distribution par catégorie
             rowNum++;
             Row catTitle = analyseSheet.createRow(rowNum++);
             catTitle.createCell(0).setCellValue("Distribution par catégorie");
-            applyHeaderStyle(workbook, (XSSFCell)catTitle.getCell(0));
+            applyHeaderStyle(styles, catTitle.getCell(0));
 
             for (Map.Entry<String, Integer> entry : produitsParCategorie.entrySet()) {
                 Row row = analyseSheet.createRow(rowNum++);
@@ -150,14 +198,14 @@ public class ExcelGenerator {
                 rowNum += 2;
                 Row statsTitle = analyseSheet.createRow(rowNum++);
                 statsTitle.createCell(0).setCellValue("Statistiques complémentaires");
-                applyHeaderStyle(workbook, (XSSFCell)statsTitle.getCell(0));
+                applyHeaderStyle(styles, statsTitle.getCell(0));
 
                 for (Map.Entry<String, Double> stat : statistiques.entrySet()) {
                     Row row = analyseSheet.createRow(rowNum++);
                     row.createCell(0).setCellValue(stat.getKey());
                     Cell valueCell = row.createCell(1);
                     valueCell.setCellValue(stat.getValue());
-                    applyCurrencyStyle(workbook, (XSSFCell)valueCell);
+                    applyCurrencyStyle(styles, valueCell);
                 }
             }
 
@@ -173,12 +221,21 @@ public class ExcelGenerator {
     }
 
     public static void genererRapportCreances(String username, List<Client> clients, String cheminFichier) {
+        genererRapportCreances(username, clients, cheminFichier, null);
+    }
+
+    public static void genererRapportCreances(String username, List<Client> clients, String cheminFichier, CacheRapports.Cle cle) {
         if (!authController.hasPermission(username, PERM_RAPPORT_CREANCES)) {
             LOGGER.warning("Tentative d'accès non autorisé au rapport des créances par: " + username);
             throw new SecurityException("Accès non autorisé au rapport des créances");
         }
 
+        produire(cle, cheminFichier, fichier -> ecrireRapportCreances(clients, fichier.toString()));
+    }
+
+    private static void ecrireRapportCreances(List<Client> clients, String cheminFichier) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Styles styles = new Styles(workbook);
             XSSFSheet sheet = workbook.createSheet("Créances");
 
             // En-tête
@@ -188,7 +245,7 @@ public class ExcelGenerator {
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
-                applyHeaderStyle(workbook, (XSSFCell)cell);
+                applyHeaderStyle(styles, cell);
                 sheet.setColumnWidth(i, 256 * 15);
             }
 
@@ -206,7 +263,7 @@ public class ExcelGenerator {
 
                     Cell soldeCell = row.createCell(2);
                     soldeCell.setCellValue(c.getSolde());
-                    applyCurrencyStyle(workbook, (XSSFCell)soldeCell);
+                    applyCurrencyStyle(styles, soldeCell);
 
                     LocalDateTime derniereVente = c.getDerniereVente();
                     row.createCell(3).setCellValue(derniereVente != null ?
@@ -240,20 +297,20 @@ public class ExcelGenerator {
             Row titleRow = analyseSheet.createRow(rowNum++);
             Cell titleCell = titleRow.createCell(0);
             titleCell.setCellValue("Analyse des Créances");
-            applyHeaderStyle(workbook, (XSSFCell)titleCell);
+            applyHeaderStyle(styles, titleCell);
 
             // Total des créances
             Row totalRow = analyseSheet.createRow(rowNum++);
             totalRow.createCell(0).setCellValue("Total des créances");
             Cell totalCell = totalRow.createCell(1);
             totalCell.setCellValue(totalCreances);
-            applyCurrencyStyle(workbook, (XSSFCell)totalCell);
+            applyCurrencyStyle(styles, totalCell);
 
             // Statistiques des statuts
             rowNum++;
             Row statusTitle = analyseSheet.createRow(rowNum++);
             statusTitle.createCell(0).setCellValue("Répartition par statut");
-            applyHeaderStyle(workbook, (XSSFCell)statusTitle.getCell(0));
+            applyHeaderStyle(styles, statusTitle.getCell(0));
 
             Row enRetardRow = analyseSheet.createRow(rowNum++);
             enRetardRow.createCell(0).setCellValue("Clients en retard");
@@ -276,16 +333,36 @@ public class ExcelGenerator {
 
     public static void genererRapportVentes(
             String username,
-            List<Vente> ventes,
+            ParcoursVentes ventes,
             Map<String, Double> analyses,
             String cheminFichier) {
+        genererRapportVentes(username, ventes, analyses, cheminFichier, null);
+    }
+
+    public static void genererRapportVentes(
+            String username,
+            ParcoursVentes ventes,
+            Map<String, Double> analyses,
+            String cheminFichier,
+            CacheRapports.Cle cle) {
         if (!authController.hasPermission(username, PERM_RAPPORT_VENTES)) {
             LOGGER.warning("Tentative d'accès non autorisé au rapport des ventes par: " + username);
             throw new SecurityException("Accès non autorisé au rapport des ventes");
         }
 
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            XSSFSheet venteSheet = workbook.createSheet("Ventes");
+        produire(cle, cheminFichier, fichier -> ecrireRapportVentes(ventes, analyses, fichier.toString()));
+    }
+
+    private static void ecrireRapportVentes(
+            ParcoursVentes ventes,
+            Map<String, Double> analyses,
+            String cheminFichier) {
+        // Classeur en flux : seules les dernières lignes restent en mémoire, les autres
+        // sont écrites dans un fichier temporaire au fil du parcours
+        SXSSFWorkbook workbook = new SXSSFWorkbook(FENETRE_LIGNES);
+        try {
+            Styles styles = new Styles(workbook);
+            Sheet venteSheet = workbook.createSheet("Ventes");
 
             // En-tête amélioré
             Row headerRow = venteSheet.createRow(0);
@@ -297,34 +374,34 @@ public class ExcelGenerator {
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
-                applyHeaderStyle(workbook, (XSSFCell)cell);
+                applyHeaderStyle(styles, cell);
                 venteSheet.setColumnWidth(i, 256 * 15);
             }
 
-            // Données détaillées des ventes
-            int rowNum = 1;
+            // Données détaillées des ventes, lues en base page par page et écrites au fur et à mesure
+            int[] rowNum = {1};
             Map<String, Double> ventesParJour = new TreeMap<>();
             Map<Vente.ModePaiement, Double> ventesParMode = new EnumMap<>(Vente.ModePaiement.class);
             Map<String, Double> ventesParCategorie = new HashMap<>();
-            double totalMarge = 0.0;
+            double[] totalMarge = {0.0};
 
-            for (Vente v : ventes) {
-                Row row = venteSheet.createRow(rowNum++);
+            ventes.parcourir(v -> {
+                Row row = venteSheet.createRow(rowNum[0]++);
                 row.createCell(0).setCellValue(v.getDate().format(DATE_TIME_FORMATTER));
                 row.createCell(1).setCellValue(v.getClient() != null ? v.getClient().getNom() : "Vente comptant");
                 row.createCell(2).setCellValue(v.getLignes().size());
 
                 Cell htCell = row.createCell(3);
                 htCell.setCellValue(v.getTotalHT());
-                applyCurrencyStyle(workbook, (XSSFCell)htCell);
+                applyCurrencyStyle(styles, htCell);
 
                 Cell tvaCell = row.createCell(4);
                 tvaCell.setCellValue(v.getMontantTVA());
-                applyCurrencyStyle(workbook, (XSSFCell)tvaCell);
+                applyCurrencyStyle(styles, tvaCell);
 
                 Cell ttcCell = row.createCell(5);
                 ttcCell.setCellValue(v.getTotal());
-                applyCurrencyStyle(workbook, (XSSFCell)ttcCell);
+                applyCurrencyStyle(styles, ttcCell);
 
                 row.createCell(6).setCellValue(v.getModePaiement().getLibelle());
 
@@ -332,9 +409,9 @@ public class ExcelGenerator {
                 double margeVente = calculerMargeVente(v);
                 Cell margeCell = row.createCell(7);
                 margeCell.setCellValue(margeVente);
-                applyCurrencyStyle(workbook, (XSSFCell)margeCell);
+                applyCurrencyStyle(styles, margeCell);
 
-                totalMarge += margeVente;
+                totalMarge[0] += margeVente;
 
                 // Agrégations
                 String dateKey = v.getDate().format(DATE_FORMATTER);
@@ -347,30 +424,41 @@ public class ExcelGenerator {
                         ligne.getPrixUnitaire() * ligne.getQuantite(),
                         Double::sum);
                 }
-            }
+            });
 
             // Création des feuilles d'analyse
-            creerFeuilleAnalysesVentes(workbook, ventesParJour, ventesParMode, ventesParCategorie, totalMarge);
-            creerFeuilleAnalysesTendances(workbook, analyses);
+            creerFeuilleAnalysesVentes(workbook, styles, ventesParJour, ventesParMode, ventesParCategorie, totalMarge[0]);
+            creerFeuilleAnalysesTendances(workbook, styles, analyses);
 
             try (FileOutputStream fileOut = new FileOutputStream(cheminFichier)) {
                 workbook.write(fileOut);
             }
 
-            LOGGER.info("Rapport Excel des ventes généré avec succès: " + cheminFichier);
+            LOGGER.info("Rapport Excel des ventes généré avec succès: " + cheminFichier + " (" + (rowNum[0] - 1) + " ventes)");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport Excel des ventes", e);
             throw new RuntimeException("Erreur lors de la génération du rapport Excel", e);
+        } finally {
+            workbook.dispose();
         }
     }
 
     public static void genererRapportFournisseurs(String username, List<Fournisseur> fournisseurs, String cheminFichier) {
+        genererRapportFournisseurs(username, fournisseurs, cheminFichier, null);
+    }
+
+    public static void genererRapportFournisseurs(String username, List<Fournisseur> fournisseurs, String cheminFichier, CacheRapports.Cle cle) {
         if (!authController.hasPermission(username, PERM_RAPPORT_FOURNISSEURS)) {
             LOGGER.warning("Tentative d'accès non autorisé au rapport des fournisseurs par: " + username);
             throw new SecurityException("Accès non autorisé au rapport des fournisseurs");
         }
 
+        produire(cle, cheminFichier, fichier -> ecrireRapportFournisseurs(fournisseurs, fichier.toString()));
+    }
+
+    private static void ecrireRapportFournisseurs(List<Fournisseur> fournisseurs, String cheminFichier) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Styles styles = new Styles(workbook);
             XSSFSheet sheet = workbook.createSheet("Fournisseurs");
 
             Row headerRow = sheet.createRow(0);
@@ -379,7 +467,7 @@ public class ExcelGenerator {
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
-                applyHeaderStyle(workbook, (XSSFCell)cell);
+                applyHeaderStyle(styles, cell);
                 sheet.setColumnWidth(i, 256 * 15);
             }
 
@@ -415,23 +503,44 @@ public class ExcelGenerator {
             Map<String, Double> benefices,
             Map<String, Double> marges,
             String cheminFichier) {
+        genererRapportFinancier(username, chiffreAffaires, couts, benefices, marges, cheminFichier, null);
+    }
+
+    public static void genererRapportFinancier(
+            String username,
+            Map<String, Double> chiffreAffaires,
+            Map<String, Double> couts,
+            Map<String, Double> benefices,
+            Map<String, Double> marges,
+            String cheminFichier,
+            CacheRapports.Cle cle) {
         if (!authController.hasPermission(username, PERM_RAPPORT_FINANCIER)) {
             LOGGER.warning("Tentative d'accès non autorisé au rapport financier par: " + username);
             throw new SecurityException("Accès non autorisé au rapport financier");
         }
 
+        produire(cle, cheminFichier, fichier -> ecrireRapportFinancier(chiffreAffaires, couts, benefices, marges, fichier.toString()));
+    }
+
+    private static void ecrireRapportFinancier(
+            Map<String, Double> chiffreAffaires,
+            Map<String, Double> couts,
+            Map<String, Double> benefices,
+            Map<String, Double> marges,
+            String cheminFichier) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Styles styles = new Styles(workbook);
             XSSFSheet caSheet = workbook.createSheet("Chiffre d'Affaires");
-            creerFeuilleFinanciere(workbook, caSheet, "Évolution du Chiffre d'Affaires", chiffreAffaires);
+            creerFeuilleFinanciere(styles, caSheet, "Évolution du Chiffre d'Affaires", chiffreAffaires);
 
             XSSFSheet coutsSheet = workbook.createSheet("Coûts");
-            creerFeuilleFinanciere(workbook, coutsSheet, "Détail des Coûts", couts);
+            creerFeuilleFinanciere(styles, coutsSheet, "Détail des Coûts", couts);
 
             XSSFSheet beneficesSheet = workbook.createSheet("Bénéfices");
-            creerFeuilleFinanciere(workbook, beneficesSheet, "Analyse des Bénéfices", benefices);
+            creerFeuilleFinanciere(styles, beneficesSheet, "Analyse des Bénéfices", benefices);
 
             XSSFSheet margesSheet = workbook.createSheet("Marges");
-            creerFeuilleFinanciere(workbook, margesSheet, "Analyse des Marges", marges);
+            creerFeuilleFinanciere(styles, margesSheet, "Analyse des Marges", marges);
 
             try (FileOutputStream fileOut = new FileOutputStream(cheminFichier)) {
                 workbook.write(fileOut);
@@ -444,18 +553,18 @@ public class ExcelGenerator {
         }
     }
 
-    private static void creerFeuilleFinanciere(XSSFWorkbook workbook, XSSFSheet sheet, String titre, Map<String, Double> donnees) {
+    private static void creerFeuilleFinanciere(Styles styles, Sheet sheet, String titre, Map<String, Double> donnees) {
         Row titleRow = sheet.createRow(0);
         Cell titleCell = titleRow.createCell(0);
         titleCell.setCellValue(titre);
-        applyHeaderStyle(workbook, (XSSFCell)titleCell);
+        applyHeaderStyle(styles, titleCell);
 
         Row headerRow = sheet.createRow(1);
         String[] headers = {"Période", "Montant"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
-            applyHeaderStyle(workbook, (XSSFCell)cell);
+            applyHeaderStyle(styles, cell);
         }
 
         int rowNum = 2;
@@ -464,7 +573,7 @@ public class ExcelGenerator {
             row.createCell(0).setCellValue(entry.getKey());
             Cell valueCell = row.createCell(1);
             valueCell.setCellValue(entry.getValue());
-            applyCurrencyStyle(workbook, (XSSFCell)valueCell);
+            applyCurrencyStyle(styles, valueCell);
         }
 
         for (int i = 0; i < headers.length; i++) {
@@ -479,6 +588,7 @@ public class ExcelGenerator {
         }
 
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Styles styles = new Styles(workbook);
             XSSFSheet sheet = workbook.createSheet("Achats Fournisseurs");
 
             // En-tête
@@ -488,7 +598,7 @@ public class ExcelGenerator {
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
-                applyHeaderStyle(workbook, (XSSFCell)cell);
+                applyHeaderStyle(styles, cell);
                 sheet.setColumnWidth(i, 256 * 20);
             }
 
@@ -502,7 +612,7 @@ public class ExcelGenerator {
 
                 Cell montantCell = row.createCell(1);
                 montantCell.setCellValue(entry.getValue());
-                applyCurrencyStyle(workbook, (XSSFCell)montantCell);
+                applyCurrencyStyle(styles, montantCell);
 
                 totalAchats += entry.getValue();
             }
@@ -511,11 +621,11 @@ public class ExcelGenerator {
             Row totalRow = sheet.createRow(rowNum++);
             Cell totalLabelCell = totalRow.createCell(0);
             totalLabelCell.setCellValue("TOTAL");
-            applyHeaderStyle(workbook, (XSSFCell)totalLabelCell);
+            applyHeaderStyle(styles, totalLabelCell);
 
             Cell totalValueCell = totalRow.createCell(1);
             totalValueCell.setCellValue(totalAchats);
-            applyCurrencyStyle(workbook, (XSSFCell)totalValueCell);
+            applyCurrencyStyle(styles, totalValueCell);
 
             // Analyses
             rowNum += 2;
@@ -524,7 +634,7 @@ public class ExcelGenerator {
             Row analyseTitleRow = analyseSheet.createRow(0);
             Cell analyseTitleCell = analyseTitleRow.createCell(0);
             analyseTitleCell.setCellValue("Analyse des Achats");
-            applyHeaderStyle(workbook, (XSSFCell)analyseTitleCell);
+            applyHeaderStyle(styles, analyseTitleCell);
 
             // Statistiques
             double moyenneAchats = totalAchats / achatsFournisseurs.size();
@@ -536,13 +646,13 @@ public class ExcelGenerator {
             moyenneRow.createCell(0).setCellValue("Moyenne des achats par fournisseur");
             Cell moyenneCell = moyenneRow.createCell(1);
             moyenneCell.setCellValue(moyenneAchats);
-            applyCurrencyStyle(workbook, (XSSFCell)moyenneCell);
+            applyCurrencyStyle(styles, moyenneCell);
 
             Row maxRow = analyseSheet.createRow(rowNum++);
             maxRow.createCell(0).setCellValue("Achat le plus important");
             Cell maxCell = maxRow.createCell(1);
             maxCell.setCellValue(maxAchat);
-            applyCurrencyStyle(workbook, (XSSFCell)maxCell);
+            applyCurrencyStyle(styles, maxCell);
 
             // Ajustement des colonnes
             for (int i = 0; i < 2; i++) {
@@ -571,55 +681,56 @@ public class ExcelGenerator {
     }
 
     private static void creerFeuilleAnalysesVentes(
-            XSSFWorkbook workbook,
+            Workbook workbook,
+            Styles styles,
             Map<String, Double> ventesParJour,
             Map<Vente.ModePaiement, Double> ventesParMode,
             Map<String, Double> ventesParCategorie,
             double totalMarge) {
 
-        XSSFSheet analyseSheet = workbook.createSheet("Analyses");
+        Sheet analyseSheet = workbook.createSheet("Analyses");
         int rowNum = 0;
 
         // Section 1: Ventes par jour
         Row titleRow = analyseSheet.createRow(rowNum++);
         Cell titleCell = titleRow.createCell(0);
         titleCell.setCellValue("Ventes par jour");
-        applyHeaderStyle(workbook, (XSSFCell)titleCell);
+        applyHeaderStyle(styles, titleCell);
 
         for (Map.Entry<String, Double> entry : ventesParJour.entrySet()) {
             Row row = analyseSheet.createRow(rowNum++);
             row.createCell(0).setCellValue(entry.getKey());
             Cell valueCell = row.createCell(1);
             valueCell.setCellValue(entry.getValue());
-            applyCurrencyStyle(workbook, (XSSFCell)valueCell);
+            applyCurrencyStyle(styles, valueCell);
         }
 
         // Section 2: Ventes par mode de paiement
         rowNum += 2;
         Row modeTitle = analyseSheet.createRow(rowNum++);
         modeTitle.createCell(0).setCellValue("Ventes par mode de paiement");
-        applyHeaderStyle(workbook, (XSSFCell)modeTitle.getCell(0));
+        applyHeaderStyle(styles, modeTitle.getCell(0));
 
         for (Map.Entry<Vente.ModePaiement, Double> entry : ventesParMode.entrySet()) {
             Row row = analyseSheet.createRow(rowNum++);
             row.createCell(0).setCellValue(entry.getKey().getLibelle());
             Cell valueCell = row.createCell(1);
             valueCell.setCellValue(entry.getValue());
-            applyCurrencyStyle(workbook, (XSSFCell)valueCell);
+            applyCurrencyStyle(styles, valueCell);
         }
 
         // Section 3: Ventes par catégorie
         rowNum += 2;
         Row catTitle = analyseSheet.createRow(rowNum++);
         catTitle.createCell(0).setCellValue("Ventes par catégorie");
-        applyHeaderStyle(workbook, (XSSFCell)catTitle.getCell(0));
+        applyHeaderStyle(styles, catTitle.getCell(0));
 
         for (Map.Entry<String, Double> entry : ventesParCategorie.entrySet()) {
             Row row = analyseSheet.createRow(rowNum++);
             row.createCell(0).setCellValue(entry.getKey());
             Cell valueCell = row.createCell(1);
             valueCell.setCellValue(entry.getValue());
-            applyCurrencyStyle(workbook, (XSSFCell)valueCell);
+            applyCurrencyStyle(styles, valueCell);
         }
 
         // Section 4: Marge totale
@@ -628,22 +739,23 @@ public class ExcelGenerator {
         margeTitle.createCell(0).setCellValue("Marge totale");
         Cell margeTotaleCell = margeTitle.createCell(1);
         margeTotaleCell.setCellValue(totalMarge);
-        applyCurrencyStyle(workbook, (XSSFCell)margeTotaleCell);
+        applyCurrencyStyle(styles, margeTotaleCell);
     }
 
     private static void creerFeuilleAnalysesTendances(
-            XSSFWorkbook workbook,
+            Workbook workbook,
+            Styles styles,
             Map<String, Double> analyses) {
         if (analyses == null || analyses.isEmpty()) return;
 
-        XSSFSheet tendanceSheet = workbook.createSheet("Tendances");
+        Sheet tendanceSheet = creerFeuilleAjustable(workbook, "Tendances");
         int rowNum = 0;
 
         // Titre principal
         Row titleRow = tendanceSheet.createRow(rowNum++);
         Cell titleCell = titleRow.createCell(0);
         titleCell.setCellValue("Analyse des Tendances");
-        applyHeaderStyle(workbook, (XSSFCell)titleCell);
+        applyHeaderStyle(styles, titleCell);
 
         // En-têtes
         Row headerRow = tendanceSheet.createRow(rowNum++);
@@ -651,7 +763,7 @@ public class ExcelGenerator {
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
-            applyHeaderStyle(workbook, (XSSFCell)cell);
+            applyHeaderStyle(styles, cell);
         }
 
         // Données de tendance
@@ -662,12 +774,10 @@ public class ExcelGenerator {
 
             // Appliquer le style monétaire ou pourcentage selon le type d'indicateur
             if (entry.getKey().startsWith("Croissance") || entry.getKey().startsWith("Rentabilité")) {
-                XSSFCellStyle percentStyle = workbook.createCellStyle();
-                percentStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00%"));
-                valueCell.setCellStyle(percentStyle);
+                valueCell.setCellStyle(styles.pourcentage);
                 valueCell.setCellValue(entry.getValue() / 100);
             } else {
-                applyCurrencyStyle(workbook, (XSSFCell)valueCell);
+                applyCurrencyStyle(styles, valueCell);
                 valueCell.setCellValue(entry.getValue());
             }
         }
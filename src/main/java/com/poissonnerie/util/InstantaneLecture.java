@@ -0,0 +1,136 @@
+package com.poissonnerie.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Instantané de lecture partagé par plusieurs threads : les connexions sont empruntées
+// au pool de lecture par l'appelant, puis leur première lecture est faite sur le thread
+// de l'écrivain, qu'aucun COMMIT ne peut donc séparer. En WAL, toutes voient alors exactement le même état de la base,
+// aussi longtemps que l'instantané reste ouvert (les points de contrôle ne peuvent pas
+// recycler le WAL au-delà de cet état pendant ce temps).
+// Un thread emprunte une connexion avec lier() : DatabaseManager.getReadConnection()
+// la lui renvoie alors, et sa fermeture par l'appelant est sans effet.
+public final class InstantaneLecture implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(InstantaneLecture.class.getName());
+    private static final String SQL_OUVERTURE = "SELECT COUNT(*) FROM sqlite_master";
+
+    private final List<Connection> connexions;
+    private final BlockingQueue<Connection> libres;
+
+    // Connexion empruntée par le thread courant, rendue à la fermeture
+    public final class Liaison implements AutoCloseable {
+        private final Connection connexion;
+
+        private Liaison(Connection connexion) {
+            this.connexion = connexion;
+        }
+
+        @Override
+        public void close() {
+            DatabaseManager.delierLecture();
+            libres.add(connexion);
+        }
+    }
+
+    private InstantaneLecture(List<Connection> connexions) {
+        this.connexions = connexions;
+        this.libres = new ArrayBlockingQueue<>(connexions.size(), false, connexions);
+    }
+
+    // Ouvre un instantané pour au plus 'nombre' threads simultanés
+    public static InstantaneLecture ouvrir(int nombre) throws SQLException {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("Au moins une connexion est nécessaire");
+        }
+        // Emprunt au pool hors du thread de l'écrivain : si le pool est occupé, seul
+        // l'appelant attend, jamais les écritures en file derrière la transaction en cours
+        List<Connection> connexions = new ArrayList<>();
+        try {
+            for (int i = 0; i < nombre; i++) {
+                Connection conn = DatabaseManager.getReadConnection();
+                connexions.add(conn);
+                conn.setAutoCommit(false);
+            }
+            // L'écrivain n'exécute que la première lecture de chaque connexion : la transaction
+            // différée prend alors son instantané, sans COMMIT possible entre deux connexions
+            DatabaseWriter.execute(ecriture -> {
+                for (Connection conn : connexions) {
+                    try (Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery(SQL_OUVERTURE)) {
+                        rs.next();
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            connexions.forEach(InstantaneLecture::fermer);
+            throw e;
+        }
+        LOGGER.fine("Instantané de lecture ouvert sur " + nombre + " connexion(s)");
+        return new InstantaneLecture(connexions);
+    }
+
+    // Attribue une connexion de l'instantané au thread courant
+    public Liaison lier() {
+        Connection connexion;
+        try {
+            connexion = libres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interruption pendant l'attente d'une connexion de l'instantané", e);
+        }
+        DatabaseManager.lierLecture(sansFermeture(connexion));
+        return new Liaison(connexion);
+    }
+
+    @Override
+    public void close() {
+        connexions.forEach(InstantaneLecture::fermer);
+        LOGGER.fine("Instantané de lecture fermé");
+    }
+
+    private static void fermer(Connection conn) {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Erreur lors de la fin de la transaction de lecture", e);
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Erreur lors de la fermeture d'une connexion de l'instantané", e);
+        }
+    }
+
+    // Les appelants ferment leurs connexions : celles de l'instantané restent ouvertes
+    private static Connection sansFermeture(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        return null;
+                    case "isClosed":
+                        return false;
+                    default:
+                        try {
+                            return method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            });
+    }
+}
@@ -3,10 +3,12 @@ package com.poissonnerie.util;
 import org.apache.pdfbox.pdmodel.*;
 import org.apache.pdfbox.pdmodel.font.*;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import com.poissonnerie.model.*;
-import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.logging.Level;
@@ -28,6 +30,13 @@ public class PDFGenerator {
     private static final Color PRIMARY_COLOR = new Color(41, 128, 185);
     private static final Color TEXT_COLOR = new Color(44, 62, 80);
 
+    // Au-delà de ce volume, les flux du document sont placés dans un fichier temporaire
+    private static final long MEMOIRE_PDF = Long.getLong("poissonnerie.pdf.memoryBytes", 4L * 1024 * 1024);
+
+    private static PDDocument nouveauDocument() {
+        return new PDDocument(MemoryUsageSetting.setupMixed(MEMOIRE_PDF));
+    }
+
     private static void createHeader(PDPageContentStream stream, PDPage page, String title) throws IOException {
         float pageHeight = page.getMediaBox().getHeight();
 
@@ -56,7 +65,7 @@ public class PDFGenerator {
             Map<String, Double> couts,
             Map<String, Double> benefices,
             Map<String, Double> marges,
-            ByteArrayOutputStream outputStream) {
+            OutputStream outputStream) {
         try (PDDocument document = new PDDocument()) {
             PDPage page = new PDPage(PDRectangle.A4);
             document.addPage(page);
@@ -104,47 +113,18 @@ public class PDFGenerator {
         }
     }
 
-    public static void genererRapportCreances(List<Client> clients, ByteArrayOutputStream outputStream) {
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
-                createHeader(stream, page, "État des Créances");
-
-                float y = page.getMediaBox().getHeight() - TABLE_START_Y;
-                float[] columnWidths = {150, 100, 100, 100};
-                String[] headers = {"Client", "Téléphone", "Solde", "Dernière Échéance"};
-
-                stream.setNonStrokingColor(TEXT_COLOR);
-                stream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                float xPosition = MARGIN;
-                for(int i = 0; i < headers.length; i++){
-                    stream.beginText();
-                    stream.newLineAtOffset(xPosition, y);
-                    stream.showText(headers[i]);
-                    stream.endText();
-                    xPosition += columnWidths[i];
-                }
-
-                y -= ROW_HEIGHT;
-                stream.setFont(PDType1Font.HELVETICA, 10);
+    public static void genererRapportCreances(List<Client> clients, OutputStream outputStream) {
+        try (PDDocument document = nouveauDocument()) {
+            try (TableauPDF tableau = new TableauPDF(document, "État des Créances",
+                    new String[] {"Client", "Téléphone", "Solde", "Dernière Échéance"},
+                    new float[] {150, 100, 100, 100})) {
                 for (Client client : clients) {
                     if (client.getSolde() > 0) {
-                        String[] row = {
+                        tableau.ajouterLigne(
                                 client.getNom(),
                                 client.getTelephone(),
                                 String.format("%.2f €", client.getSolde()),
-                                "-"
-                        };
-                        xPosition = MARGIN;
-                        for(int i = 0; i < row.length; i++){
-                            stream.beginText();
-                            stream.newLineAtOffset(xPosition, y);
-                            stream.showText(row[i]);
-                            stream.endText();
-                            xPosition += columnWidths[i];
-                        }
-                        y -= ROW_HEIGHT;
+                                "-");
                     }
                 }
             }
@@ -157,62 +137,23 @@ public class PDFGenerator {
     }
 
     public static void genererRapportStocks(List<Produit> produits, Map<String, Double> statistiques,
-                                          ByteArrayOutputStream outputStream) {
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
-                createHeader(stream, page, "État des Stocks");
-
-                float y = page.getMediaBox().getHeight() - TABLE_START_Y;
-                float[] columnWidths = {80, 150, 80, 100, 100};
-                String[] headers = {"Référence", "Nom", "Stock", "Prix", "Valeur"};
-
-                stream.setNonStrokingColor(TEXT_COLOR);
-                stream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                float xPosition = MARGIN;
-
-                for(int i = 0; i < headers.length; i++){
-                    stream.beginText();
-                    stream.newLineAtOffset(xPosition, y);
-                    stream.showText(headers[i]);
-                    stream.endText();
-                    xPosition += columnWidths[i];
-                }
-
-                y -= ROW_HEIGHT;
-                stream.setFont(PDType1Font.HELVETICA, 10);
+                                          OutputStream outputStream) {
+        try (PDDocument document = nouveauDocument()) {
+            try (TableauPDF tableau = new TableauPDF(document, "État des Stocks",
+                    new String[] {"Référence", "Nom", "Stock", "Prix", "Valeur"},
+                    new float[] {80, 150, 80, 100, 100})) {
                 double totalValue = 0;
-
                 for (Produit produit : produits) {
                     double valeur = produit.getStock() * produit.getPrixAchat();
                     totalValue += valeur;
-
-                    String[] rowData = {
+                    tableau.ajouterLigne(
                             String.valueOf(produit.getId()),
                             produit.getNom(),
                             String.valueOf(produit.getStock()),
                             String.format("%.2f €", produit.getPrixVente()),
-                            String.format("%.2f €", valeur)
-                    };
-
-                    xPosition = MARGIN;
-                    for(int i = 0; i < rowData.length; i++){
-                        stream.beginText();
-                        stream.newLineAtOffset(xPosition, y);
-                        stream.showText(rowData[i]);
-                        stream.endText();
-                        xPosition += columnWidths[i];
-                    }
-                    y -= ROW_HEIGHT;
+                            String.format("%.2f €", valeur));
                 }
-
-                stream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                stream.beginText();
-                stream.newLineAtOffset(MARGIN, y - ROW_HEIGHT);
-                stream.showText(String.format("Valeur totale du stock: %.2f €", totalValue));
-                stream.endText();
+                tableau.ajouterTotal(String.format("Valeur totale du stock: %.2f €", totalValue));
             }
 
             document.save(outputStream);
@@ -224,65 +165,38 @@ public class PDFGenerator {
         }
     }
 
-    public static void genererRapportVentes(List<Vente> ventes, ByteArrayOutputStream outputStream) {
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-
-            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
-                createHeader(stream, page, "Rapport des Ventes");
-
-                float y = page.getMediaBox().getHeight() - TABLE_START_Y;
-                float[] columnWidths = {120, 120, 80, 100, 100};
-                String[] headers = {"Date", "Client", "Produits", "Total", "Mode"};
-
-                stream.setNonStrokingColor(TEXT_COLOR);
-                stream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                float xPosition = MARGIN;
-
-                for(int i = 0; i < headers.length; i++){
-                    stream.beginText();
-                    stream.newLineAtOffset(xPosition, y);
-                    stream.showText(headers[i]);
-                    stream.endText();
-                    xPosition += columnWidths[i];
-                }
-
-                y -= ROW_HEIGHT;
-                stream.setFont(PDType1Font.HELVETICA, 10);
-                double totalVentes = 0;
-
-                for (Vente vente : ventes) {
-                    totalVentes += vente.getTotal();
-
-                    String[] rowData = {
-                            vente.getDate().format(DATE_FORMATTER),
-                            vente.getClient() != null ? vente.getClient().getNom() : "Vente comptant",
-                            String.valueOf(vente.getLignes().size()),
-                            String.format("%.2f €", vente.getTotal()),
-                            vente.getModePaiement().getLibelle()
-                    };
-
-                    xPosition = MARGIN;
-                    for(int i = 0; i < rowData.length; i++){
-                        stream.beginText();
-                        stream.newLineAtOffset(xPosition, y);
-                        stream.showText(rowData[i]);
-                        stream.endText();
-                        xPosition += columnWidths[i];
+    // Les ventes sont dessinées au fil du parcours : seules la page en cours et les ventes
+    // de la page de résultats en cours de lecture sont en mémoire
+    public static void genererRapportVentes(ParcoursVentes ventes, OutputStream outputStream) {
+        try (PDDocument document = nouveauDocument()) {
+            TableauPDF tableau = new TableauPDF(document, "Rapport des Ventes",
+                    new String[] {"Date", "Client", "Produits", "Total", "Mode"},
+                    new float[] {120, 120, 80, 100, 100});
+            double[] totalVentes = {0};
+            try {
+                ventes.parcourir(vente -> {
+                    totalVentes[0] += vente.getTotal();
+                    try {
+                        tableau.ajouterLigne(
+                                vente.getDate().format(DATE_FORMATTER),
+                                vente.getClient() != null ? vente.getClient().getNom() : "Vente comptant",
+                                String.valueOf(vente.getLignes().size()),
+                                String.format("%.2f €", vente.getTotal()),
+                                vente.getModePaiement().getLibelle());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                    y -= ROW_HEIGHT;
-                }
-
-                stream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                stream.beginText();
-                stream.newLineAtOffset(MARGIN, y - ROW_HEIGHT);
-                stream.showText(String.format("Total des ventes: %.2f €", totalVentes));
-                stream.endText();
+                });
+                tableau.ajouterTotal(String.format("Total des ventes: %.2f €", totalVentes[0]));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                tableau.close();
             }
 
             document.save(outputStream);
-            LOGGER.info("Rapport des ventes généré avec succès");
+            LOGGER.info(String.format("Rapport des ventes généré avec succès: %d ventes, %d pages",
+                tableau.getNombreLignes(), tableau.getNombrePages()));
 
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Erreur lors de la génération du rapport des ventes", e);
@@ -426,50 +340,18 @@ public class PDFGenerator {
             throw e;
         }
     }
-    public static void genererRapportFournisseurs(List<Fournisseur> fournisseurs, ByteArrayOutputStream outputStream) {
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
-                createHeader(stream, page, "Rapport des Fournisseurs");
-
-                float y = page.getMediaBox().getHeight() - TABLE_START_Y;
-                float[] columnWidths = {150, 150, 100, 150};
-                String[] headers = {"Nom", "Contact", "Téléphone", "Email"};
-
-                stream.setNonStrokingColor(TEXT_COLOR);
-                stream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-                float xPosition = MARGIN;
-
-                for(int i = 0; i < headers.length; i++){
-                    stream.beginText();
-                    stream.newLineAtOffset(xPosition, y);
-                    stream.showText(headers[i]);
-                    stream.endText();
-                    xPosition += columnWidths[i];
-                }
-
-                y -= ROW_HEIGHT;
-                stream.setFont(PDType1Font.HELVETICA, 10);
-
+    public static void genererRapportFournisseurs(List<Fournisseur> fournisseurs, OutputStream outputStream) {
+        try (PDDocument document = nouveauDocument()) {
+            try (TableauPDF tableau = new TableauPDF(document, "Rapport des Fournisseurs",
+                    new String[] {"Nom", "Contact", "Téléphone", "Email"},
+                    new float[] {150, 150, 100, 150})) {
                 for (Fournisseur f : fournisseurs) {
-                    String[] rowData = {
+                    tableau.ajouterLigne(
                             f.getNom() != null ? f.getNom() : "",
                             f.getContact() != null ? f.getContact() : "",
                             f.getTelephone() != null ? f.getTelephone() : "",
-                            f.getEmail() != null ? f.getEmail() : ""
-                    };
-                    xPosition = MARGIN;
-                    for(int i = 0; i < rowData.length; i++){
-                        stream.beginText();
-                        stream.newLineAtOffset(xPosition, y);
-                        stream.showText(rowData[i]);
-                        stream.endText();
-                        xPosition += columnWidths[i];
-                    }
-                    y -= ROW_HEIGHT;
+                            f.getEmail() != null ? f.getEmail() : "");
                 }
-
             }
             document.save(outputStream);
             LOGGER.info("Rapport des fournisseurs généré avec succès");
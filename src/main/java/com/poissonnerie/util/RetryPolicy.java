@@ -0,0 +1,71 @@
+package com.poissonnerie.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Politique de nouvelle tentative pour les erreurs de verrouillage SQLite : backoff
+// exponentiel plafonné avec gigue, pour que des écrivains concurrents ne se
+// représentent pas tous au même instant. Valeurs par défaut réglables par les
+// propriétés système poissonnerie.db.retry.*.
+public final class RetryPolicy {
+    private static final RetryPolicy DEFAUT = new RetryPolicy(
+        Integer.getInteger("poissonnerie.db.retry.maxAttempts", 5),
+        Long.getLong("poissonnerie.db.retry.initialDelayMs", 50L),
+        Long.getLong("poissonnerie.db.retry.maxDelayMs", 2000L),
+        Double.parseDouble(System.getProperty("poissonnerie.db.retry.multiplier", "2.0")),
+        Double.parseDouble(System.getProperty("poissonnerie.db.retry.jitter", "0.5")));
+
+    private final int maxTentatives;
+    private final long delaiInitialMs;
+    private final long delaiMaxMs;
+    private final double multiplicateur;
+    private final double gigue;
+
+    // gigue : part du délai tirée au hasard (0 = délai fixe, 1 = entre 0 et le délai)
+    public RetryPolicy(int maxTentatives, long delaiInitialMs, long delaiMaxMs,
+                       double multiplicateur, double gigue) {
+        if (maxTentatives < 1) {
+            throw new IllegalArgumentException("Au moins une tentative est requise");
+        }
+        if (delaiInitialMs < 0 || delaiMaxMs < delaiInitialMs) {
+            throw new IllegalArgumentException("Délais de nouvelle tentative invalides");
+        }
+        if (multiplicateur < 1.0 || gigue < 0.0 || gigue > 1.0) {
+            throw new IllegalArgumentException("Multiplicateur ou gigue invalide");
+        }
+        this.maxTentatives = maxTentatives;
+        this.delaiInitialMs = delaiInitialMs;
+        this.delaiMaxMs = delaiMaxMs;
+        this.multiplicateur = multiplicateur;
+        this.gigue = gigue;
+    }
+
+    public static RetryPolicy defaut() {
+        return DEFAUT;
+    }
+
+    // Une seule tentative : l'erreur est remontée immédiatement
+    public static RetryPolicy aucune() {
+        return new RetryPolicy(1, 0, 0, 1.0, 0.0);
+    }
+
+    public boolean peutReessayer(int tentative) {
+        return tentative < maxTentatives;
+    }
+
+    // Délai avant la tentative suivant la tentative n (à partir de 1)
+    public long delai(int tentative) {
+        double plafond = Math.min(delaiMaxMs, delaiInitialMs * Math.pow(multiplicateur, tentative - 1));
+        double fixe = plafond * (1.0 - gigue);
+        return Math.round(fixe + ThreadLocalRandom.current().nextDouble() * (plafond - fixe));
+    }
+
+    public int getMaxTentatives() {
+        return maxTentatives;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RetryPolicy{tentatives=%d, initial=%dms, max=%dms, x%.1f, gigue=%.2f}",
+            maxTentatives, delaiInitialMs, delaiMaxMs, multiplicateur, gigue);
+    }
+}
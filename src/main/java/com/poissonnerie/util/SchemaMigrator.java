@@ -0,0 +1,152 @@
+package com.poissonnerie.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+// Migrations de schéma versionnées. La version courante est lue dans PRAGMA user_version :
+// si elle est à jour, aucun DDL n'est exécuté au démarrage. Sinon, seules les migrations
+// en attente sont appliquées, chacune dans sa propre transaction, et tracées dans
+// schema_migrations. Les scripts sont dans src/main/resources/db/migrations.
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final String MIGRATIONS_PATH = "db/migrations/";
+
+    // Ne jamais modifier une migration publiée : en ajouter une nouvelle à la fin
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+        new Migration(1, "Schéma initial", "001_schema_initial.sql"),
+        new Migration(2, "Rôles et permissions", "002_roles_permissions.sql"),
+        new Migration(3, "Index des ventes", "003_index_ventes.sql"),
+        new Migration(4, "Historique de stock et journal des actions", "004_historique_journal.sql"),
+        new Migration(5, "Pagination des ventes", "005_pagination_ventes.sql"),
+        new Migration(6, "Révision des produits", "006_revision_produits.sql"),
+        new Migration(7, "Agrégats des ventes", "007_agregats_ventes.sql"),
+        new Migration(8, "Versions des tables", "008_versions_tables.sql"),
+        new Migration(9, "File d'impression", "009_file_impression.sql"),
+        new Migration(10, "Mode de paiement des ventes", "010_mode_paiement_ventes.sql")
+    ));
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String script;
+
+        Migration(int version, String description, String script) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+        }
+    }
+
+    private SchemaMigrator() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    public static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Applique les migrations en attente et retourne le nombre de migrations appliquées
+    public static int migrate(Connection conn) throws SQLException {
+        int currentVersion = getCurrentVersion(conn);
+        if (currentVersion >= getLatestVersion()) {
+            LOGGER.fine("Schéma à jour (version " + currentVersion + ")");
+            return 0;
+        }
+
+        LOGGER.info(String.format("Migration du schéma de la version %d vers la version %d",
+            currentVersion, getLatestVersion()));
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(true);
+        int applied = 0;
+        try (Statement stmt = conn.createStatement()) {
+            // Hors transaction : PRAGMA foreign_keys est sans effet une fois BEGIN exécuté
+            stmt.execute("PRAGMA foreign_keys = OFF");
+            createMigrationsTable(stmt);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version > currentVersion) {
+                    apply(conn, stmt, migration);
+                    applied++;
+                }
+            }
+        } finally {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = ON");
+            }
+            conn.setAutoCommit(autoCommit);
+        }
+        LOGGER.info(applied + " migration(s) appliquée(s), schéma en version " + getLatestVersion());
+        return applied;
+    }
+
+    private static void createMigrationsTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INTEGER PRIMARY KEY," +
+            "description TEXT NOT NULL," +
+            "applied_at INTEGER NOT NULL DEFAULT (strftime('%s','now') * 1000))");
+    }
+
+    private static void apply(Connection conn, Statement stmt, Migration migration) throws SQLException {
+        String script = loadScript(migration.script);
+        long debut = System.currentTimeMillis();
+        stmt.execute("BEGIN IMMEDIATE");
+        try {
+            // sqlite-jdbc exécute toutes les instructions du script en un seul appel
+            stmt.executeUpdate(script);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT OR REPLACE INTO schema_migrations (version, description) VALUES (?, ?)")) {
+                pstmt.setInt(1, migration.version);
+                pstmt.setString(2, migration.description);
+                pstmt.executeUpdate();
+            }
+            stmt.execute("PRAGMA user_version = " + migration.version);
+
+            stmt.execute("COMMIT");
+            LOGGER.info(String.format("Migration %03d appliquée: %s (%d ms)",
+                migration.version, migration.description, System.currentTimeMillis() - debut));
+        } catch (SQLException e) {
+            try {
+                stmt.execute("ROLLBACK");
+            } catch (SQLException re) {
+                LOGGER.log(Level.SEVERE, "Erreur lors du rollback", re);
+            }
+            LOGGER.log(Level.SEVERE, "Échec de la migration " + migration.version, e);
+            throw new SQLException("Erreur lors de la migration " + migration.version +
+                " (" + migration.description + "): " + e.getMessage(), e);
+        }
+    }
+
+    private static String loadScript(String script) throws SQLException {
+        try (InputStream is = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATIONS_PATH + script)) {
+            if (is == null) {
+                throw new SQLException("Script de migration introuvable: " + script);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+                return reader.lines().collect(Collectors.joining("\n"));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Erreur lors de la lecture du script de migration " + script, e);
+        }
+    }
+}
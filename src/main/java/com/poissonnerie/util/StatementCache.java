@@ -0,0 +1,243 @@
+package com.poissonnerie.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+import org.sqlite.SQLiteConnection;
+
+// Cache LRU de PreparedStatement par connexion physique, indexé par le texte SQL.
+// Les connexions renvoyées par les pools sont enveloppées : prepareStatement(sql)
+// réutilise l'instruction déjà compilée et close() la remet dans le cache au lieu
+// de la finaliser. Les contrôleurs n'ont donc rien à changer.
+public class StatementCache {
+    private static final Logger LOGGER = Logger.getLogger(StatementCache.class.getName());
+    private static final int CACHE_SIZE = Integer.getInteger("poissonnerie.db.statementCache.size", 64);
+
+    private static final Map<Connection, StatementCache> CACHES = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private final Map<String, CachedStatement> statements;
+
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private ResultSet resultSet;
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    private StatementCache() {
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= CACHE_SIZE || eldest.getValue().inUse) {
+                    return false;
+                }
+                evictions.incrementAndGet();
+                closeQuietly(eldest.getValue().statement);
+                return true;
+            }
+        };
+    }
+
+    // Enveloppe une connexion (éventuellement issue du pool) avec le cache de sa connexion physique
+    public static Connection wrap(Connection conn) throws SQLException {
+        if (CACHE_SIZE <= 0 || conn == null || !conn.isWrapperFor(SQLiteConnection.class)) {
+            return conn;
+        }
+        Connection physical = conn.unwrap(SQLiteConnection.class);
+        purgeClosedConnections();
+        StatementCache cache = CACHES.computeIfAbsent(physical, c -> new StatementCache());
+        return (Connection) Proxy.newProxyInstance(
+            StatementCache.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new ConnectionHandler(conn, physical, cache));
+    }
+
+    // Ferme les instructions en cache d'une connexion avant sa fermeture définitive
+    public static void release(Connection conn) {
+        try {
+            if (conn == null || !conn.isWrapperFor(SQLiteConnection.class)) {
+                return;
+            }
+            StatementCache cache = CACHES.remove(conn.unwrap(SQLiteConnection.class));
+            if (cache != null) {
+                cache.clear();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Erreur lors de la libération du cache d'instructions", e);
+        }
+    }
+
+    private static void purgeClosedConnections() {
+        Iterator<Map.Entry<Connection, StatementCache>> it = CACHES.entrySet().iterator();
+        while (it.hasNext()) {
+            try {
+                if (it.next().getKey().isClosed()) {
+                    it.remove();
+                }
+            } catch (SQLException e) {
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized PreparedStatement acquire(Connection physical, String sql, Connection owner)
+            throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse && !cached.statement.isClosed()) {
+            hits.incrementAndGet();
+        } else if (cached != null && cached.inUse) {
+            // Même requête déjà ouverte sur cette connexion (appel imbriqué) : instruction hors cache
+            misses.incrementAndGet();
+            return physical.prepareStatement(sql);
+        } else {
+            misses.incrementAndGet();
+            cached = new CachedStatement(physical.prepareStatement(sql));
+            statements.put(sql, cached);
+        }
+        cached.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+            StatementCache.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class },
+            new StatementHandler(this, cached, owner));
+    }
+
+    private synchronized void giveBack(CachedStatement cached) {
+        try {
+            // Réinitialise l'instruction pour ne pas garder d'instantané de lecture ouvert
+            if (cached.resultSet != null) {
+                cached.resultSet.close();
+                cached.resultSet = null;
+            }
+            cached.statement.clearParameters();
+            cached.statement.clearBatch();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Instruction retirée du cache après une erreur de réinitialisation", e);
+            statements.values().remove(cached);
+            closeQuietly(cached.statement);
+        } finally {
+            cached.inUse = false;
+        }
+    }
+
+    private synchronized void clear() {
+        statements.values().forEach(c -> closeQuietly(c.statement));
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Erreur lors de la fermeture d'une instruction", e);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection delegate;
+        private final Connection physical;
+        private final StatementCache cache;
+
+        ConnectionHandler(Connection delegate, Connection physical, StatementCache cache) {
+            this.delegate = delegate;
+            this.physical = physical;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("prepareStatement".equals(method.getName()) && args != null && args.length == 1) {
+                if (delegate.isClosed()) {
+                    throw new SQLException("Connexion fermée");
+                }
+                return cache.acquire(physical, (String) args[0], (Connection) proxy);
+            }
+            return StatementCache.invoke(delegate, method, args);
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final StatementCache cache;
+        private final CachedStatement cached;
+        private final Connection owner;
+        private boolean closed;
+
+        StatementHandler(StatementCache cache, CachedStatement cached, Connection owner) {
+            this.cache = cache;
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cache.giveBack(cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                default:
+                    if (closed) {
+                        throw new SQLException("Instruction fermée");
+                    }
+                    Object result = StatementCache.invoke(cached.statement, method, args);
+                    if (result instanceof ResultSet && "executeQuery".equals(method.getName())) {
+                        cached.resultSet = (ResultSet) result;
+                    }
+                    return result;
+            }
+        }
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    // Compteurs cumulés du cache d'instructions
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("Succès", hits.get());
+        stats.put("Échecs", misses.get());
+        stats.put("Évictions", evictions.get());
+        stats.put("Taille maximale", (long) CACHE_SIZE);
+        return stats;
+    }
+}
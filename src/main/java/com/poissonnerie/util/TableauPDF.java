@@ -0,0 +1,162 @@
+package com.poissonnerie.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.IOException;
+
+// Tableau de rapport réparti automatiquement sur autant de pages A4 que nécessaire :
+// chaque page reçoit le bandeau du rapport, la ligne d'en-tête des colonnes et un numéro
+// de page. Le flux de contenu d'une page est fermé dès qu'elle est pleine ; avec un
+// document créé sur un fichier temporaire (PDFGenerator.nouveauDocument), les pages déjà
+// remplies ne restent pas en mémoire.
+final class TableauPDF implements Closeable {
+    private static final float MARGIN = 50;
+    private static final float ROW_HEIGHT = 20;
+    private static final float HEADER_HEIGHT = 100;
+    private static final float TABLE_START_Y = HEADER_HEIGHT + 50;
+    private static final float BAS_DE_PAGE = MARGIN + ROW_HEIGHT;
+    private static final float TAILLE_ENTETE = 12;
+    private static final float TAILLE_LIGNE = 10;
+    private static final Color PRIMARY_COLOR = new Color(41, 128, 185);
+    private static final Color TEXT_COLOR = new Color(44, 62, 80);
+
+    private final PDDocument document;
+    private final String titre;
+    private final String[] entetes;
+    private final float[] largeurs;
+    private PDPageContentStream stream;
+    private float y;
+    private int pages;
+    private long lignes;
+
+    TableauPDF(PDDocument document, String titre, String[] entetes, float[] largeurs) {
+        if (entetes.length != largeurs.length) {
+            throw new IllegalArgumentException("Une largeur est attendue par colonne");
+        }
+        this.document = document;
+        this.titre = titre;
+        this.entetes = entetes;
+        this.largeurs = largeurs;
+    }
+
+    // Une ligne du tableau ; une nouvelle page est ouverte si la page courante est pleine
+    void ajouterLigne(String... cellules) throws IOException {
+        reserver(ROW_HEIGHT);
+        stream.setFont(PDType1Font.HELVETICA, TAILLE_LIGNE);
+        ecrireCellules(cellules, PDType1Font.HELVETICA, TAILLE_LIGNE);
+        y -= ROW_HEIGHT;
+        lignes++;
+    }
+
+    // Texte en gras sous le tableau (totaux), précédé d'une ligne vide
+    void ajouterTotal(String texte) throws IOException {
+        reserver(2 * ROW_HEIGHT);
+        y -= ROW_HEIGHT;
+        stream.setFont(PDType1Font.HELVETICA_BOLD, TAILLE_ENTETE);
+        stream.beginText();
+        stream.newLineAtOffset(MARGIN, y);
+        stream.showText(texte);
+        stream.endText();
+        y -= ROW_HEIGHT;
+    }
+
+    long getNombreLignes() {
+        return lignes;
+    }
+
+    int getNombrePages() {
+        return pages;
+    }
+
+    // Ferme la dernière page ; un tableau vide produit tout de même une page d'en-tête
+    @Override
+    public void close() throws IOException {
+        if (stream == null) {
+            nouvellePage();
+        }
+        stream.close();
+        stream = null;
+    }
+
+    private void reserver(float hauteur) throws IOException {
+        if (stream == null || y - hauteur < BAS_DE_PAGE) {
+            nouvellePage();
+        }
+    }
+
+    private void nouvellePage() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
+        pages++;
+        stream = new PDPageContentStream(document, page);
+        float hauteurPage = page.getMediaBox().getHeight();
+
+        // Bandeau
+        stream.setNonStrokingColor(PRIMARY_COLOR);
+        stream.addRect(0, hauteurPage - HEADER_HEIGHT, page.getMediaBox().getWidth(), HEADER_HEIGHT);
+        stream.fill();
+        stream.setNonStrokingColor(Color.WHITE);
+        stream.beginText();
+        stream.setFont(PDType1Font.HELVETICA_BOLD, 24);
+        stream.newLineAtOffset(MARGIN, hauteurPage - 50);
+        stream.showText("MA POISSONNERIE");
+        stream.endText();
+        stream.beginText();
+        stream.setFont(PDType1Font.HELVETICA_BOLD, 16);
+        stream.newLineAtOffset(MARGIN, hauteurPage - 80);
+        stream.showText(titre);
+        stream.endText();
+
+        // Numéro de page
+        stream.setNonStrokingColor(TEXT_COLOR);
+        stream.beginText();
+        stream.setFont(PDType1Font.HELVETICA, 8);
+        stream.newLineAtOffset(page.getMediaBox().getWidth() - MARGIN - 40, MARGIN / 2);
+        stream.showText("Page " + pages);
+        stream.endText();
+
+        // En-tête des colonnes, répété sur chaque page
+        y = hauteurPage - TABLE_START_Y;
+        stream.setFont(PDType1Font.HELVETICA_BOLD, TAILLE_ENTETE);
+        ecrireCellules(entetes, PDType1Font.HELVETICA_BOLD, TAILLE_ENTETE);
+        y -= ROW_HEIGHT;
+    }
+
+    private void ecrireCellules(String[] cellules, PDFont police, float taille) throws IOException {
+        float x = MARGIN;
+        for (int i = 0; i < largeurs.length; i++) {
+            String texte = i < cellules.length && cellules[i] != null ? cellules[i] : "";
+            stream.beginText();
+            stream.newLineAtOffset(x, y);
+            stream.showText(ajuster(texte, police, taille, largeurs[i] - 5));
+            stream.endText();
+            x += largeurs[i];
+        }
+    }
+
+    // Tronque le texte qui déborderait sur la colonne suivante
+    private static String ajuster(String texte, PDFont police, float taille, float largeurMax) throws IOException {
+        if (largeur(texte, police, taille) <= largeurMax) {
+            return texte;
+        }
+        String suffixe = "...";
+        int fin = texte.length();
+        while (fin > 0 && largeur(texte.substring(0, fin) + suffixe, police, taille) > largeurMax) {
+            fin--;
+        }
+        return texte.substring(0, fin) + suffixe;
+    }
+
+    private static float largeur(String texte, PDFont police, float taille) throws IOException {
+        return police.getStringWidth(texte) / 1000 * taille;
+    }
+}
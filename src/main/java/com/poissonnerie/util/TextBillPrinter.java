@@ -6,8 +6,11 @@ import java.awt.*;
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.event.*;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -19,6 +22,10 @@ public class TextBillPrinter implements Printable {
     private static final Color BACKGROUND_COLOR = new Color(252, 252, 252);
     private static final Color BORDER_COLOR = new Color(224, 224, 224);
     private final StringBuilder bill;
+    // Lignes imprimées en gras sur une imprimante ESC/POS (indices dans bill)
+    private final Set<Integer> lignesEnGras = new HashSet<>();
+    private int nombreLignes;
+    private boolean gras;
     private JDialog previewDialog;
 
     // Variables pour le reçu de règlement
@@ -58,10 +65,12 @@ public class TextBillPrinter implements Printable {
     }
 
     private void generateVenteBillContent() {
-        bill.setLength(0);
+        reinitialiser();
 
         // En-tête avec bordure
+        gras = true;
         appendCentered("MA POISSONNERIE");
+        gras = false;
         appendCentered("123 Rue de la Mer");
         appendCentered("75001 PARIS");
         appendCentered("Tél: +33 1 23 45 67 89");
@@ -101,7 +110,9 @@ public class TextBillPrinter implements Printable {
         appendAlignedRight(String.format("TVA %.1f%%: %8.2f €", 
             vente.getTauxTVA(), vente.getMontantTVA()));
         appendSeparator();
+        gras = true;
         appendAlignedRight(String.format("TOTAL TTC: %8.2f €", vente.getTotal()));
+        gras = false;
 
         // Pied de ticket
         appendSeparator();
@@ -124,17 +135,21 @@ public class TextBillPrinter implements Printable {
     }
 
     private void generateReglementBillContent() {
-        bill.setLength(0);
+        reinitialiser();
 
         // En-tête
+        gras = true;
         appendCentered("MA POISSONNERIE");
+        gras = false;
         appendCentered("123 Rue de la Mer");
         appendCentered("75001 PARIS");
         appendCentered("Tél: +33 1 23 45 67 89");
         appendSeparator();
 
         // Type de document et date
+        gras = true;
         appendCentered(type.toUpperCase());
+        gras = false;
         appendLine(String.format("Date: %s", DATE_FORMATTER.format(date)));
         appendSeparator();
 
@@ -151,7 +166,9 @@ public class TextBillPrinter implements Printable {
         appendAlignedRight(String.format("Solde précédent: %8.2f €", montantRegle + nouveauSolde));
         appendAlignedRight(String.format("Montant réglé:   %8.2f €", montantRegle));
         appendSeparator();
+        gras = true;
         appendAlignedRight(String.format("Nouveau solde:   %8.2f €", nouveauSolde));
+        gras = false;
 
         // Pied de reçu
         appendSeparator();
@@ -159,27 +176,60 @@ public class TextBillPrinter implements Printable {
         appendSeparator();
     }
 
+    private void reinitialiser() {
+        bill.setLength(0);
+        lignesEnGras.clear();
+        nombreLignes = 0;
+    }
+
     private void appendLine(String text) {
+        if (gras) {
+            lignesEnGras.add(nombreLignes);
+        }
         bill.append(text).append("\n");
+        nombreLignes++;
     }
 
     private void appendSeparator() {
-        bill.append("-".repeat(TICKET_WIDTH)).append("\n");
+        appendLine("-".repeat(TICKET_WIDTH));
     }
 
     private void appendCentered(String text) {
-        int padding = (TICKET_WIDTH - text.length()) / 2;
-        bill.append(" ".repeat(padding))
-            .append(text)
-            .append("\n");
+        int padding = Math.max(0, (TICKET_WIDTH - text.length()) / 2);
+        appendLine(" ".repeat(padding) + text);
     }
 
     private void appendAlignedRight(String text) {
         int padding = TICKET_WIDTH - text.length();
-        if (padding > 0) {
-            bill.append(" ".repeat(padding));
+        appendLine(padding > 0 ? " ".repeat(padding) + text : text);
+    }
+
+    // Même mise en page que l'aperçu, en commandes ESC/POS : gras, coupe du papier et,
+    // pour une vente en espèces, ouverture du tiroir-caisse
+    public byte[] genererEscPos() {
+        EscPosEncoder encoder = new EscPosEncoder();
+        String[] lignes = bill.toString().split("\n");
+        for (int i = 0; i < lignes.length; i++) {
+            encoder.gras(lignesEnGras.contains(i)).ligne(lignes[i]);
+        }
+        encoder.gras(false).couper();
+        if (vente != null && vente.getModePaiement() == Vente.ModePaiement.ESPECES) {
+            encoder.ouvrirTiroir();
+        }
+        return encoder.toByteArray();
+    }
+
+    // Impression brute, sans boîte de dialogue ni pilote d'impression
+    public void imprimerEscPos(TransportTicket transport) {
+        long debut = System.nanoTime();
+        try {
+            transport.envoyer(genererEscPos());
+            LOGGER.info(String.format("Ticket envoyé (%s) en %d ms",
+                transport.description(), (System.nanoTime() - debut) / 1_000_000));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'envoi du ticket", e);
+            throw new RuntimeException("Erreur d'impression: " + e.getMessage(), e);
         }
-        bill.append(text).append("\n");
     }
 
     public void imprimer() {
@@ -288,6 +338,11 @@ public class TextBillPrinter implements Printable {
     }
 
     private void doPrint() {
+        TransportTicket transport = TransportTicket.depuisConfiguration();
+        if (transport != null) {
+            imprimerEscPos(transport);
+            return;
+        }
         try {
             PrinterJob job = PrinterJob.getPrinterJob();
             job.setPrintable(this);
@@ -0,0 +1,129 @@
+package com.poissonnerie.util;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.sqlite.SQLiteException;
+
+// Point d'entrée unique des transactions d'écriture. La tâche est exécutée par
+// DatabaseWriter (BEGIN IMMEDIATE, donc le verrou d'écriture est pris dès le début et
+// jamais en cours de transaction). Si le verrou ne peut être obtenu (SQLITE_BUSY ou
+// SQLITE_LOCKED, reconnus par leur code et non par le message), la tâche, annulée par
+// son SAVEPOINT, est rejouée selon la RetryPolicy. Les tentatives et les attentes sont
+// comptabilisées.
+public final class TransactionTemplate {
+    private static final Logger LOGGER = Logger.getLogger(TransactionTemplate.class.getName());
+
+    // Codes de résultat primaires SQLite
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    private static final AtomicLong transactions = new AtomicLong();
+    private static final AtomicLong nouvellesTentatives = new AtomicLong();
+    private static final AtomicLong abandons = new AtomicLong();
+    private static final AtomicLong attenteTotaleMs = new AtomicLong();
+    private static final AtomicLong attenteMaxMs = new AtomicLong();
+
+    public enum TypeErreur {
+        VERROU,      // Transitoire : une nouvelle tentative peut réussir
+        CONTRAINTE,  // Violation de contrainte : rejouer ne changerait rien
+        AUTRE
+    }
+
+    private TransactionTemplate() {
+        // Constructeur privé pour empêcher l'instanciation
+    }
+
+    public static <T> T execute(DatabaseWriter.WriteTask<T> task) throws SQLException {
+        return execute(RetryPolicy.defaut(), task);
+    }
+
+    public static <T> T execute(RetryPolicy policy, DatabaseWriter.WriteTask<T> task) throws SQLException {
+        // Appel imbriqué : même transaction, c'est la transaction englobante qui sera rejouée
+        if (DatabaseWriter.isWriterThread()) {
+            return DatabaseWriter.execute(task);
+        }
+
+        transactions.incrementAndGet();
+        int tentative = 1;
+        while (true) {
+            try {
+                return DatabaseWriter.execute(task);
+            } catch (SQLException | RuntimeException e) {
+                if (classer(e) != TypeErreur.VERROU) {
+                    throw e;
+                }
+                if (!policy.peutReessayer(tentative)) {
+                    abandons.incrementAndGet();
+                    LOGGER.warning(String.format("Base verrouillée, abandon après %d tentative(s)", tentative));
+                    throw e;
+                }
+                attendre(policy.delai(tentative), tentative);
+                tentative++;
+            }
+        }
+    }
+
+    private static void attendre(long delaiMs, int tentative) throws SQLException {
+        nouvellesTentatives.incrementAndGet();
+        attenteTotaleMs.addAndGet(delaiMs);
+        attenteMaxMs.accumulateAndGet(delaiMs, Math::max);
+        LOGGER.fine(String.format("Base verrouillée, tentative %d échouée, nouvel essai dans %d ms",
+            tentative, delaiMs));
+        try {
+            Thread.sleep(delaiMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interruption pendant l'attente d'une nouvelle tentative", ie);
+        }
+    }
+
+    // Classe une erreur d'après le code SQLite trouvé dans la chaîne des causes
+    public static TypeErreur classer(Throwable erreur) {
+        for (Throwable t = erreur; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                int code = codePrimaire((SQLException) t);
+                if (code == SQLITE_BUSY || code == SQLITE_LOCKED) {
+                    return TypeErreur.VERROU;
+                }
+                if (code == SQLITE_CONSTRAINT) {
+                    return TypeErreur.CONTRAINTE;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return TypeErreur.AUTRE;
+    }
+
+    private static int codePrimaire(SQLException e) {
+        // Les codes étendus (ex. SQLITE_BUSY_SNAPSHOT = 517) portent le code primaire dans l'octet de poids faible
+        if (e instanceof SQLiteException) {
+            return ((SQLiteException) e).getResultCode().code & 0xFF;
+        }
+        return e.getErrorCode() & 0xFF;
+    }
+
+    public static long getNouvellesTentatives() {
+        return nouvellesTentatives.get();
+    }
+
+    public static long getAttenteTotaleMs() {
+        return attenteTotaleMs.get();
+    }
+
+    // Compteurs cumulés des transactions d'écriture
+    public static Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("Transactions", transactions.get());
+        stats.put("Nouvelles tentatives", nouvellesTentatives.get());
+        stats.put("Abandons", abandons.get());
+        stats.put("Attente totale (ms)", attenteTotaleMs.get());
+        stats.put("Attente maximale (ms)", attenteMaxMs.get());
+        return stats;
+    }
+}
@@ -0,0 +1,150 @@
+package com.poissonnerie.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Destination des octets ESC/POS d'un ticket. La propriété poissonnerie.ticket.transport
+// choisit l'imprimante :
+//   fichier:/dev/usb/lp0      périphérique ou fichier (imprimante USB/série, partage)
+//   tube:ticket               tube nommé (\\.\pipe\ticket sous Windows, chemin sinon)
+//   socket:192.168.1.50:9100  port brut d'une imprimante réseau
+//   capture                   conservation en mémoire, sans imprimante (tests)
+// Sans propriété, les tickets passent par l'impression Java2D habituelle.
+public interface TransportTicket {
+
+    void envoyer(byte[] donnees) throws IOException;
+
+    String description();
+
+    // null si aucun transport brut n'est configuré
+    static TransportTicket depuisConfiguration() {
+        String configuration = System.getProperty("poissonnerie.ticket.transport");
+        if (configuration == null || configuration.isBlank()) {
+            return null;
+        }
+        return depuis(configuration.trim());
+    }
+
+    static TransportTicket depuis(String configuration) {
+        int separateur = configuration.indexOf(':');
+        String type = separateur < 0 ? configuration : configuration.substring(0, separateur);
+        String cible = separateur < 0 ? "" : configuration.substring(separateur + 1);
+        switch (type) {
+            case "fichier":
+                return fichier(Paths.get(cible));
+            case "tube":
+                return tubeNomme(cible);
+            case "socket": {
+                int port = cible.lastIndexOf(':');
+                if (port < 0) {
+                    throw new IllegalArgumentException("Port manquant pour le transport socket: " + configuration);
+                }
+                return socket(cible.substring(0, port), Integer.parseInt(cible.substring(port + 1)));
+            }
+            case "capture":
+                return Capture.PARTAGEE;
+            default:
+                throw new IllegalArgumentException("Transport de ticket inconnu: " + configuration);
+        }
+    }
+
+    // Ajout en fin de fichier : un périphérique ne se tronque pas, un fichier garde l'historique
+    static TransportTicket fichier(Path chemin) {
+        return new TransportTicket() {
+            @Override
+            public void envoyer(byte[] donnees) throws IOException {
+                try (OutputStream out = Files.newOutputStream(chemin,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    out.write(donnees);
+                }
+            }
+
+            @Override
+            public String description() {
+                return "fichier " + chemin;
+            }
+        };
+    }
+
+    static TransportTicket tubeNomme(String nom) {
+        boolean windows = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+        String chemin = windows && !nom.startsWith("\\\\") ? "\\\\.\\pipe\\" + nom : nom;
+        return new TransportTicket() {
+            @Override
+            public void envoyer(byte[] donnees) throws IOException {
+                // Un tube ne s'ouvre ni en création ni en ajout
+                try (OutputStream out = Files.newOutputStream(Paths.get(chemin), StandardOpenOption.WRITE)) {
+                    out.write(donnees);
+                }
+            }
+
+            @Override
+            public String description() {
+                return "tube " + chemin;
+            }
+        };
+    }
+
+    static TransportTicket socket(String hote, int port) {
+        int delai = Integer.getInteger("poissonnerie.ticket.timeoutMs", 3000);
+        return new TransportTicket() {
+            @Override
+            public void envoyer(byte[] donnees) throws IOException {
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress(hote, port), delai);
+                    socket.setSoTimeout(delai);
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    out.write(donnees);
+                    out.flush();
+                    socket.shutdownOutput();
+                }
+            }
+
+            @Override
+            public String description() {
+                return "socket " + hote + ":" + port;
+            }
+        };
+    }
+
+    static Capture capture() {
+        return Capture.PARTAGEE;
+    }
+
+    // Imprimante de substitution : garde les tickets reçus en mémoire
+    final class Capture implements TransportTicket {
+        private static final Capture PARTAGEE = new Capture();
+        private final List<byte[]> tickets = new ArrayList<>();
+
+        @Override
+        public synchronized void envoyer(byte[] donnees) {
+            tickets.add(donnees.clone());
+        }
+
+        @Override
+        public String description() {
+            return "capture";
+        }
+
+        public synchronized List<byte[]> getTickets() {
+            return new ArrayList<>(tickets);
+        }
+
+        public synchronized byte[] getDernierTicket() {
+            return tickets.isEmpty() ? null : tickets.get(tickets.size() - 1);
+        }
+
+        public synchronized void vider() {
+            tickets.clear();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.poissonnerie.view;
 
 import com.poissonnerie.controller.*;
 import com.poissonnerie.model.*;
+import com.poissonnerie.util.EventBus;
 import javax.swing.*;
 import java.awt.*;
 import java.time.LocalDate;
@@ -21,7 +22,8 @@ public class AccueilViewSwing {
     private final VenteController venteController;
     private final ProduitController produitController;
     private final CaisseController caisseController;
-    private final Timer refreshTimer;
+    private final TableauDeBordController tableauDeBordController;
+    private final EventBus.Abonnement<Evenements.IndicateursModifies> abonnement;
     private boolean isDisposed = false;
 
     // Labels pour les KPIs
@@ -47,9 +49,11 @@ public class AccueilViewSwing {
         mainPanel.setBackground(BACKGROUND_COLOR);
 
         // Initialisation des contrôleurs
-        venteController = new VenteController();
-        produitController = new ProduitController();
-        caisseController = new CaisseController();
+        ApplicationContext context = ApplicationContext.getInstance();
+        venteController = context.getVenteController();
+        produitController = context.getProduitController();
+        caisseController = context.getCaisseController();
+        tableauDeBordController = context.getTableauDeBordController();
 
         // Initialisation des composants
         initializeComponents();
@@ -57,13 +61,14 @@ public class AccueilViewSwing {
         // Chargement initial des données
         SwingUtilities.invokeLater(this::loadData);
 
-        // Mise à jour automatique toutes les 30 secondes
-        refreshTimer = new Timer(30000, e -> {
+        // Les indicateurs sont tenus à jour par TableauDeBordController : seul le dernier
+        // instantané d'une rafale est affiché, sans accès à la base
+        abonnement = EventBus.getInstance().abonner(Evenements.IndicateursModifies.class, EventBus.EDT, evenements -> {
             if (!isDisposed) {
-                loadData();
+                afficherIndicateurs(evenements.get(evenements.size() - 1).getIndicateurs());
             }
         });
-        refreshTimer.start();
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
     }
 
     private void initializeComponents() {
@@ -126,6 +131,8 @@ public class AccueilViewSwing {
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    // Chargement initial et bouton Actualiser : relit les données des contrôleurs et
+    // recalcule les indicateurs par la requête d'agrégation
     private void loadData() {
         if (isDisposed) {
             return;
@@ -136,39 +143,19 @@ public class AccueilViewSwing {
         // Désactiver les composants pendant le chargement
         setComponentsEnabled(false);
 
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            private double ventesJour = 0;
-            private int produitsRupture = 0;
-            private double encaissementsJour = 0;
-            private double chiffreAffaires = 0;
-            private boolean success = true;
-
+        SwingWorker<Indicateurs, Void> worker = new SwingWorker<>() {
             @Override
-            protected Void doInBackground() {
-                try {
-                    // Chargement initial des données depuis les contrôleurs
-                    LOGGER.log(Level.INFO, "Chargement des ventes...");
-                    venteController.chargerVentes();
-                    LOGGER.log(Level.INFO, "Nombre de ventes chargées: {0}", venteController.getVentes().size());
-
-                    LOGGER.log(Level.INFO, "Chargement des produits...");
-                    produitController.chargerProduits();
-                    LOGGER.log(Level.INFO, "Nombre de produits chargés: {0}", produitController.getProduits().size());
-
-                    LOGGER.log(Level.INFO, "Chargement des mouvements de caisse...");
-                    caisseController.chargerMouvements();
-                    LOGGER.log(Level.INFO, "Nombre de mouvements chargés: {0}", caisseController.getMouvements().size());
-
-                    // Calcul des KPIs
-                    ventesJour = calculerVentesJour();
-                    produitsRupture = calculerProduitsRupture();
-                    encaissementsJour = calculerEncaissementsJour();
-                    chiffreAffaires = calculerChiffreAffaires();
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors du chargement des données", e);
-                    success = false;
-                }
-                return null;
+            protected Indicateurs doInBackground() {
+                LOGGER.log(Level.INFO, "Chargement des ventes...");
+                venteController.chargerVentes();
+
+                LOGGER.log(Level.INFO, "Chargement des produits...");
+                produitController.chargerProduits();
+
+                LOGGER.log(Level.INFO, "Chargement des mouvements de caisse...");
+                caisseController.chargerMouvements();
+
+                return tableauDeBordController.recalculer();
             }
 
             @Override
@@ -178,39 +165,19 @@ public class AccueilViewSwing {
                 }
 
                 try {
-                    NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.FRANCE);
-                    if (success) {
-                        LOGGER.log(Level.INFO, "Mise à jour de l'interface avec les nouvelles valeurs...");
-                        LOGGER.log(Level.INFO, "Ventes du jour: {0,number,currency}", ventesJour);
-                        LOGGER.log(Level.INFO, "Produits en rupture: {0}", produitsRupture);
-                        LOGGER.log(Level.INFO, "Encaissements du jour: {0,number,currency}", encaissementsJour);
-                        LOGGER.log(Level.INFO, "Chiffre d'affaires: {0,number,currency}", chiffreAffaires);
-
-                        updateLabelWithAnimation(ventesJourLabel, ventesJour, currencyFormat);
-                        updateLabelWithAnimation(produitsRuptureLabel, produitsRupture, null);
-                        updateLabelWithAnimation(encaissementsJourLabel, encaissementsJour, currencyFormat);
-                        updateLabelWithAnimation(chiffreAffairesLabel, chiffreAffaires, currencyFormat);
-
-                        LOGGER.log(Level.INFO, "Mise à jour de l'interface terminée");
-                    } else {
-                        ventesJourLabel.setText("Erreur");
-                        produitsRuptureLabel.setText("Erreur");
-                        encaissementsJourLabel.setText("Erreur");
-                        chiffreAffairesLabel.setText("Erreur");
-
-                        JOptionPane.showMessageDialog(mainPanel,
-                            "Erreur lors du chargement des données. Veuillez réessayer.",
-                            "Erreur",
-                            JOptionPane.ERROR_MESSAGE);
-                    }
+                    // Les valeurs sont affichées à la réception de l'événement publié par recalculer()
+                    get();
                 } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Erreur lors de la mise à jour de l'interface", e);
-                    if (!isDisposed) {
-                        JOptionPane.showMessageDialog(mainPanel,
-                            "Erreur lors de la mise à jour des données : " + e.getMessage(),
-                            "Erreur",
-                            JOptionPane.ERROR_MESSAGE);
-                    }
+                    LOGGER.log(Level.SEVERE, "Erreur lors du chargement des données", e);
+                    ventesJourLabel.setText("Erreur");
+                    produitsRuptureLabel.setText("Erreur");
+                    encaissementsJourLabel.setText("Erreur");
+                    chiffreAffairesLabel.setText("Erreur");
+
+                    JOptionPane.showMessageDialog(mainPanel,
+                        "Erreur lors du chargement des données. Veuillez réessayer.",
+                        "Erreur",
+                        JOptionPane.ERROR_MESSAGE);
                 } finally {
                     if (!isDisposed) {
                         setComponentsEnabled(true);
@@ -221,6 +188,15 @@ public class AccueilViewSwing {
         worker.execute();
     }
 
+    private void afficherIndicateurs(Indicateurs indicateurs) {
+        LOGGER.log(Level.FINE, "Mise à jour des indicateurs : {0}", indicateurs);
+        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.FRANCE);
+        updateLabelWithAnimation(ventesJourLabel, indicateurs.getVentesJour(), currencyFormat);
+        updateLabelWithAnimation(produitsRuptureLabel, indicateurs.getProduitsRupture(), null);
+        updateLabelWithAnimation(encaissementsJourLabel, indicateurs.getEncaissementsJour(), currencyFormat);
+        updateLabelWithAnimation(chiffreAffairesLabel, indicateurs.getChiffreAffaires(), currencyFormat);
+    }
+
     private void setComponentsEnabled(boolean enabled) {
         ventesJourLabel.setEnabled(enabled);
         produitsRuptureLabel.setEnabled(enabled);
@@ -360,56 +336,13 @@ public class AccueilViewSwing {
         timer.start();
     }
 
-    private double calculerVentesJour() {
-        LOGGER.log(Level.INFO, "Calcul des ventes du jour...");
-        LocalDate today = LocalDate.now();
-        double total = venteController.getVentes().stream()
-            .filter(v -> v.getDate().toLocalDate().equals(today))
-            .mapToDouble(Vente::getTotal)
-            .sum();
-        LOGGER.log(Level.INFO, "Total des ventes du jour: {0,number,currency}", total);
-        return total;
-    }
-
-    private int calculerProduitsRupture() {
-        LOGGER.log(Level.INFO, "Calcul des produits en rupture...");
-        int count = (int) produitController.getProduits().stream()
-            .filter(p -> p.getStock() <= 0)
-            .count();
-        LOGGER.log(Level.INFO, "Nombre de produits en rupture: {0}", count);
-        return count;
-    }
-
-    private double calculerEncaissementsJour() {
-        LOGGER.log(Level.INFO, "Calcul des encaissements du jour...");
-        LocalDate today = LocalDate.now();
-        double total = caisseController.getMouvements().stream()
-            .filter(m -> m.getDate().toLocalDate().equals(today))
-            .filter(m -> m.getType() == MouvementCaisse.TypeMouvement.ENTREE)
-            .mapToDouble(MouvementCaisse::getMontant)
-            .sum();
-        LOGGER.log(Level.INFO, "Total des encaissements du jour: {0,number,currency}", total);
-        return total;
-    }
-
-    private double calculerChiffreAffaires() {
-        LOGGER.log(Level.INFO, "Calcul du chiffre d'affaires total...");
-        double total = venteController.getVentes().stream()
-            .mapToDouble(Vente::getTotal)
-            .sum();
-        LOGGER.log(Level.INFO, "Chiffre d'affaires total: {0,number,currency}", total);
-        return total;
-    }
-
     public JPanel getMainPanel() {
         return mainPanel;
     }
 
     public void dispose() {
         isDisposed = true;
-        if (refreshTimer != null) {
-            refreshTimer.stop();
-        }
+        abonnement.annuler();
         LOGGER.info("AccueilViewSwing disposed");
     }
 }
\ No newline at end of file
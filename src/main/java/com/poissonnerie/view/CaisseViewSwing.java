@@ -1,10 +1,12 @@
 package com.poissonnerie.view;
 
 import com.poissonnerie.controller.CaisseController;
+import com.poissonnerie.controller.ApplicationContext;
+import com.poissonnerie.model.Evenements;
 import com.poissonnerie.model.MouvementCaisse;
+import com.poissonnerie.util.EventBus;
 import org.jdesktop.swingx.JXDatePicker;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -16,6 +18,7 @@ import java.io.FileWriter;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -24,6 +27,7 @@ import java.util.logging.Logger;
 
 public class CaisseViewSwing {
     private static final Logger LOGGER = Logger.getLogger(CaisseViewSwing.class.getName());
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
     private static final String MSG_ERREUR_MONTANT = "Le montant doit être un nombre positif";
     private static final String MSG_ERREUR_DESCRIPTION = "La description est obligatoire";
     private static final String MSG_ERREUR_CAISSE_FERMEE = "La caisse doit être ouverte pour effectuer des mouvements";
@@ -32,7 +36,10 @@ public class CaisseViewSwing {
     private final JPanel mainPanel;
     private final CaisseController controller;
     private final JTable tableMouvements;
-    private final DefaultTableModel tableModel;
+    private final LazyTableModel<MouvementCaisse> tableModel;
+    private final LazyTableModel.PagedSource<MouvementCaisse> mouvementsDuJour;
+    private final List<EventBus.Abonnement<?>> abonnements = new ArrayList<>();
+    private boolean rechercheAffichee;
     private final JLabel soldeLabel;
     private JButton ouvrirBtn;
     private JButton cloturerBtn;
@@ -44,7 +51,7 @@ public class CaisseViewSwing {
         mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBackground(new Color(245, 245, 245));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        controller = new CaisseController();
+        controller = ApplicationContext.getInstance().getCaisseController();
 
         // Initialisation du label de solde avec style moderne
         soldeLabel = new JLabel("Solde: 0.00 €");
@@ -54,17 +61,27 @@ public class CaisseViewSwing {
 
         // Création du modèle de table
         String[] columnNames = {"Date", "Type", "Montant", "Description"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        mouvementsDuJour = LazyTableModel.fromList(() -> controller.getMouvementsDuJour(LocalDateTime.now()));
+        tableModel = new LazyTableModel<>("caisse", columnNames, this::valeurColonne, mouvementsDuJour);
         tableMouvements = new JTable(tableModel);
         setupTableStyle();
         initializeComponents();
         loadData();
         updateCaisseState();
+
+        // Mouvements ajoutés depuis un autre écran (règlement de créance...) : mise à jour en mémoire
+        abonnements.add(EventBus.getInstance().abonner(Evenements.MouvementCaisseAjoute.class, EventBus.EDT,
+            mouvements -> appliquerMouvements()));
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
+    }
+
+    private void appliquerMouvements() {
+        if (!rechercheAffichee) {
+            tableModel.refresh();
+        }
+        soldeLabel.setText(String.format("Solde: %,.2f €", controller.getSoldeCaisse()));
+        updateCaisseState();
+        updateCurrentDayInfo();
     }
 
     private void setupTableStyle() {
@@ -588,48 +605,36 @@ public class CaisseViewSwing {
     }
 
     private void refreshTable() {
-        tableModel.setRowCount(0);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        LocalDateTime now = LocalDateTime.now();
-
         // Filtrer pour n'afficher que les mouvements du jour
-        List<MouvementCaisse> mouvementsDuJour = controller.getMouvementsDuJour(now);
-
-        for (MouvementCaisse mouvement : mouvementsDuJour) {
-            // Style conditionnel selon le type de mouvement
-            String montantFormate = String.format("%,.2f €", mouvement.getMontant());
-            if (mouvement.getType() == MouvementCaisse.TypeMouvement.SORTIE) {
-                montantFormate = "-" + montantFormate;
-            }
-
-            tableModel.addRow(new Object[]{
-                mouvement.getDate().format(formatter),
-                mouvement.getType().toString(),
-                montantFormate,
-                mouvement.getDescription()
-            });
+        if (rechercheAffichee) {
+            rechercheAffichee = false;
+            tableModel.setSource(mouvementsDuJour, null);
+        } else {
+            tableModel.refresh();
         }
 
         // Mettre à jour le solde avec le même format monétaire
         soldeLabel.setText(String.format("Solde: %,.2f €", controller.getSoldeCaisse()));
         updateCaisseState();
     }
-    private void refreshTableWithMovements(List<MouvementCaisse> mouvements) {
-        tableModel.setRowCount(0);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-        for (MouvementCaisse mouvement : mouvements) {
-            String montantFormate = String.format("%,.2f €", mouvement.getMontant());
-            if (mouvement.getType() == MouvementCaisse.TypeMouvement.SORTIE) {
-                montantFormate = "-" + montantFormate;
-            }
+    private void refreshTableWithMovements(List<MouvementCaisse> mouvements) {
+        rechercheAffichee = true;
+        tableModel.setSource(LazyTableModel.fromList(() -> mouvements), null);
+    }
 
-            tableModel.addRow(new Object[]{
-                mouvement.getDate().format(formatter),
-                mouvement.getType().toString(),
-                montantFormate,
-                mouvement.getDescription()
-            });
+    private Object valeurColonne(MouvementCaisse mouvement, int colonne) {
+        switch (colonne) {
+            case 0:
+                return mouvement.getDate().format(DATE_FORMATTER);
+            case 1:
+                return mouvement.getType().toString();
+            case 2:
+                // Style conditionnel selon le type de mouvement
+                String montantFormate = String.format("%,.2f €", mouvement.getMontant());
+                return mouvement.getType() == MouvementCaisse.TypeMouvement.SORTIE ? "-" + montantFormate : montantFormate;
+            default:
+                return mouvement.getDescription();
         }
     }
 
@@ -656,6 +661,12 @@ public class CaisseViewSwing {
     }
 
 
+    public void dispose() {
+        abonnements.forEach(EventBus.Abonnement::annuler);
+        abonnements.clear();
+        tableModel.dispose();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
@@ -1,14 +1,18 @@
 package com.poissonnerie.view;
 
 import com.poissonnerie.controller.ClientController;
+import com.poissonnerie.controller.ApplicationContext;
 import com.poissonnerie.model.Client;
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.util.EventBus;
 import com.poissonnerie.util.PDFGenerator;
 import com.poissonnerie.util.TextBillPrinter;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 import org.kordamp.ikonli.materialdesign.MaterialDesign;
 import org.kordamp.ikonli.swing.FontIcon;
 
@@ -28,20 +32,23 @@ public class ClientViewSwing {
     private final JPanel mainPanel;
     private final ClientController controller;
     private final JTable tableClients;
-    private final DefaultTableModel tableModel;
+    private final LazyTableModel<Client> tableModel;
+    private final List<EventBus.Abonnement<?>> abonnements = new ArrayList<>();
 
     public ClientViewSwing() {
         mainPanel = new JPanel(new BorderLayout(15, 15));
-        controller = new ClientController();
+        controller = ApplicationContext.getInstance().getClientController();
 
         // Configuration du modèle de table
         String[] columnNames = {"Nom", "Téléphone", "Adresse", "Solde"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        tableModel = new LazyTableModel<>("clients", columnNames, (client, colonne) -> {
+            switch (colonne) {
+                case 0: return client.getNom();
+                case 1: return client.getTelephone();
+                case 2: return client.getAdresse();
+                default: return String.format("%.2f €", client.getSolde());
             }
-        };
+        }, LazyTableModel.fromList(controller::getClients));
 
         // Configuration de la table avec style moderne
         tableClients = new JTable(tableModel);
@@ -56,6 +63,17 @@ public class ClientViewSwing {
 
         initializeComponents();
         loadData();
+
+        // Soldes et fiches modifiés ailleurs : la liste est déjà à jour en mémoire
+        EventBus bus = EventBus.getInstance();
+        abonnements.add(bus.abonner(Evenements.ClientModifie.class, EventBus.EDT, evenements -> refreshTable()));
+        abonnements.add(bus.abonner(Evenements.CreanceReglee.class, EventBus.EDT, evenements -> refreshTable()));
+        abonnements.add(bus.abonner(Evenements.VenteEnregistree.class, EventBus.EDT, evenements -> {
+            if (evenements.stream().anyMatch(e -> e.getVente().isCredit())) {
+                refreshTable();
+            }
+        }));
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
     }
 
     private JButton createStyledButton(String text, Color color) {
@@ -198,9 +216,9 @@ public class ClientViewSwing {
         // Gestionnaires d'événements
         ajouterBtn.addActionListener(e -> showClientDialog(null));
         modifierBtn.addActionListener(e -> {
-            int selectedRow = tableClients.getSelectedRow();
-            if (selectedRow >= 0) {
-                showClientDialog(controller.getClients().get(selectedRow));
+            Client selection = tableModel.getRow(tableClients.getSelectedRow());
+            if (selection != null) {
+                showClientDialog(selection);
             } else {
                 JOptionPane.showMessageDialog(mainPanel,
                     "Veuillez sélectionner un client à modifier",
@@ -210,9 +228,8 @@ public class ClientViewSwing {
         });
 
         supprimerBtn.addActionListener(e -> {
-            int selectedRow = tableClients.getSelectedRow();
-            if (selectedRow >= 0) {
-                Client client = controller.getClients().get(selectedRow);
+            Client client = tableModel.getRow(tableClients.getSelectedRow());
+            if (client != null) {
                 if (client.getSolde() > 0) {
                     JOptionPane.showMessageDialog(mainPanel,
                         "Impossible de supprimer un client ayant une créance en cours",
@@ -262,9 +279,8 @@ public class ClientViewSwing {
         });
 
         reglerCreanceBtn.addActionListener(e -> {
-            int selectedRow = tableClients.getSelectedRow();
-            if (selectedRow >= 0) {
-                Client client = controller.getClients().get(selectedRow);
+            Client client = tableModel.getRow(tableClients.getSelectedRow());
+            if (client != null) {
                 if (client.getSolde() > 0) {
                     showReglerCreanceDialog(client);
                 } else {
@@ -283,15 +299,7 @@ public class ClientViewSwing {
     }
 
     private void refreshTable() {
-        tableModel.setRowCount(0);
-        for (Client client : controller.getClients()) {
-            tableModel.addRow(new Object[]{
-                client.getNom(),
-                client.getTelephone(),
-                client.getAdresse(),
-                String.format("%.2f €", client.getSolde())
-            });
-        }
+        tableModel.refresh();
     }
 
     private void showClientDialog(Client client) {
@@ -471,7 +479,7 @@ public class ClientViewSwing {
 
                 // Tentative de règlement
                 double ancienSolde = client.getSolde();
-                controller.reglerCreance(client, montant);
+                int mouvementId = controller.reglerCreance(client, montant);
 
                 // Générer et afficher le reçu
                 TextBillPrinter printer = new TextBillPrinter(
@@ -484,8 +492,11 @@ public class ClientViewSwing {
                 // Fermer le dialogue de règlement
                 dialog.dispose();
 
-                // Afficher la prévisualisation du reçu
-                printer.imprimer();
+                // Reçu mis en file d'impression, ou prévisualisation sans imprimante de tickets
+                if (!ApplicationContext.getInstance().getSpoolerImpression()
+                        .imprimer("reglement:" + mouvementId, printer)) {
+                    printer.imprimer();
+                }
 
                 // Rafraîchir l'affichage
                 refreshTable();
@@ -552,6 +563,12 @@ public class ClientViewSwing {
         }
     }
 
+    public void dispose() {
+        abonnements.forEach(EventBus.Abonnement::annuler);
+        abonnements.clear();
+        tableModel.dispose();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
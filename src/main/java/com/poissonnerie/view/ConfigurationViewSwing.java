@@ -4,6 +4,7 @@ package com.poissonnerie.view;
 import javax.swing.*;
 import java.awt.*;
 import com.poissonnerie.controller.ConfigurationController;
+import com.poissonnerie.controller.ApplicationContext;
 import com.poissonnerie.model.ConfigurationParam;
 import java.util.Map;
 
@@ -13,7 +14,7 @@ public class ConfigurationViewSwing {
 
     public ConfigurationViewSwing() {
         this.mainPanel = new JPanel(new BorderLayout());
-        this.configController = new ConfigurationController();
+        this.configController = ApplicationContext.getInstance().getConfigurationController();
         initializeComponents();
     }
 
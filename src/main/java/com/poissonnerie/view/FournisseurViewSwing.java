@@ -1,14 +1,16 @@
 package com.poissonnerie.view;
 
 import com.poissonnerie.controller.FournisseurController;
+import com.poissonnerie.controller.ApplicationContext;
 import com.poissonnerie.model.Fournisseur;
 import com.poissonnerie.util.PDFGenerator;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -18,26 +20,35 @@ public class FournisseurViewSwing {
     private final JPanel mainPanel;
     private final FournisseurController controller;
     private final JTable tableFournisseurs;
-    private final DefaultTableModel tableModel;
+    private final LazyTableModel<Fournisseur> tableModel;
+    private final LazyTableModel.PagedSource<Fournisseur> tousLesFournisseurs;
+    private boolean rechercheAffichee;
     private JTextField searchField;
 
     public FournisseurViewSwing() {
         mainPanel = new JPanel(new BorderLayout(10, 10));
-        controller = new FournisseurController();
+        controller = ApplicationContext.getInstance().getFournisseurController();
 
         // Création du modèle de table
         String[] columnNames = {"ID", "Nom", "Contact", "Téléphone", "Email", "Adresse", "Statut"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        tousLesFournisseurs = LazyTableModel.fromList(controller::getFournisseurs);
+        tableModel = new LazyTableModel<>("fournisseurs", columnNames, (fournisseur, colonne) -> {
+            switch (colonne) {
+                case 0: return fournisseur.getId();
+                case 1: return fournisseur.getNom();
+                case 2: return fournisseur.getContact();
+                case 3: return fournisseur.getTelephone();
+                case 4: return fournisseur.getEmail();
+                case 5: return fournisseur.getAdresse();
+                default: return fournisseur.getStatut();
             }
-        };
+        }, tousLesFournisseurs);
         tableFournisseurs = new JTable(tableModel);
         setupTableStyle();
 
         initializeComponents();
         loadData();
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
     }
 
     private void setupTableStyle() {
@@ -232,20 +243,20 @@ public class FournisseurViewSwing {
     }
 
     private void modifierFournisseurSelectionne() {
-        int selectedRow = tableFournisseurs.getSelectedRow();
-        if (selectedRow >= 0) {
-            showFournisseurDialog(controller.getFournisseurs().get(selectedRow));
+        Fournisseur selection = tableModel.getRow(tableFournisseurs.getSelectedRow());
+        if (selection != null) {
+            showFournisseurDialog(selection);
         } else {
             showWarningMessage("Veuillez sélectionner un fournisseur à modifier");
         }
     }
 
     private void supprimerFournisseurSelectionne() {
-        int selectedRow = tableFournisseurs.getSelectedRow();
-        if (selectedRow >= 0) {
+        Fournisseur selection = tableModel.getRow(tableFournisseurs.getSelectedRow());
+        if (selection != null) {
             if (showConfirmDialog("Êtes-vous sûr de vouloir supprimer ce fournisseur ?")) {
                 try {
-                    controller.supprimerFournisseur(controller.getFournisseurs().get(selectedRow));
+                    controller.supprimerFournisseur(selection);
                     refreshTable();
                     showSuccessMessage("Fournisseur supprimé avec succès");
                 } catch (Exception ex) {
@@ -400,17 +411,11 @@ public class FournisseurViewSwing {
     }
 
     private void refreshTable() {
-        tableModel.setRowCount(0);
-        for (Fournisseur fournisseur : controller.getFournisseurs()) {
-            tableModel.addRow(new Object[]{
-                    fournisseur.getId(),
-                    fournisseur.getNom(),
-                    fournisseur.getContact(),
-                    fournisseur.getTelephone(),
-                    fournisseur.getEmail(),
-                    fournisseur.getAdresse(),
-                    fournisseur.getStatut()
-            });
+        if (rechercheAffichee) {
+            rechercheAffichee = false;
+            tableModel.setSource(tousLesFournisseurs, null);
+        } else {
+            tableModel.refresh();
         }
     }
 
@@ -424,18 +429,8 @@ public class FournisseurViewSwing {
     }
 
     private void refreshTable(List<Fournisseur> fournisseurs) {
-        tableModel.setRowCount(0);
-        for (Fournisseur fournisseur : fournisseurs) {
-            tableModel.addRow(new Object[]{
-                    fournisseur.getId(),
-                    fournisseur.getNom(),
-                    fournisseur.getContact(),
-                    fournisseur.getTelephone(),
-                    fournisseur.getEmail(),
-                    fournisseur.getAdresse(),
-                    fournisseur.getStatut()
-            });
-        }
+        rechercheAffichee = true;
+        tableModel.setSource(LazyTableModel.fromList(() -> fournisseurs), null);
     }
 
     private void loadData() {
@@ -449,10 +444,10 @@ public class FournisseurViewSwing {
 
     private void genererRapport() {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             String nomFichier = "rapport_fournisseurs_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".pdf";
-            PDFGenerator.genererRapportFournisseurs(controller.getFournisseurs(), outputStream);
-            PDFGenerator.sauvegarderPDF(outputStream.toByteArray(), nomFichier);
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(nomFichier))) {
+                PDFGenerator.genererRapportFournisseurs(controller.getFournisseurs(), outputStream);
+            }
             showSuccessMessage("Rapport généré avec succès :\n" + nomFichier);
 
             try {
@@ -468,6 +463,10 @@ public class FournisseurViewSwing {
         }
     }
 
+    public void dispose() {
+        tableModel.dispose();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
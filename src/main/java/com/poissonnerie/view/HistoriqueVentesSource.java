@@ -0,0 +1,61 @@
+package com.poissonnerie.view;
+
+import com.poissonnerie.controller.VenteController;
+import com.poissonnerie.model.PageVentes;
+import com.poissonnerie.model.Vente;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Source paginée de l'historique des ventes pour LazyTableModel. Les positions demandées
+// par la table sont traduites en curseurs (date, id) : chaque fin de page chargée est
+// mémorisée, si bien que le défilement continu n'enchaîne que des pages par curseur.
+// Un saut de l'ascenseur part de la borne connue la plus proche : court, il ne parcourt que
+// l'index ; long, il est estimé entre les bornes qui encadrent la position visée.
+public class HistoriqueVentesSource implements LazyTableModel.PagedSource<Vente> {
+    private final VenteController controller;
+    private final PageVentes.Filtre filtre;
+    // Position -> curseur de la vente qui la précède (null pour la position 0)
+    private final TreeMap<Integer, PageVentes.Curseur> bornes = new TreeMap<>();
+    private int nombre;
+
+    public HistoriqueVentesSource(VenteController controller, PageVentes.Filtre filtre) {
+        this.controller = controller;
+        this.filtre = filtre;
+        bornes.put(0, null);
+    }
+
+    // Appelé à chaque rafraîchissement : de nouvelles ventes décalent toutes les positions
+    @Override
+    public synchronized int count() {
+        bornes.clear();
+        bornes.put(0, null);
+        nombre = controller.compterVentes(filtre);
+        return nombre;
+    }
+
+    @Override
+    public synchronized List<Vente> fetch(int offset, int limit) {
+        Map.Entry<Integer, PageVentes.Curseur> borne = bornes.floorEntry(offset);
+        PageVentes.Curseur curseur = borne.getValue();
+        if (borne.getKey() < offset) {
+            // Première borne connue au-delà de la position, ou la fin de l'historique
+            Map.Entry<Integer, PageVentes.Curseur> plafond = bornes.higherEntry(offset);
+            int fin = plafond != null ? plafond.getKey() : nombre;
+            curseur = controller.localiserCurseur(filtre, curseur, plafond != null ? plafond.getValue() : null,
+                offset - borne.getKey() - 1, fin - borne.getKey());
+            if (curseur == null) {
+                return new ArrayList<>();
+            }
+            bornes.put(offset, curseur);
+        }
+
+        PageVentes page = controller.chargerPageVentes(filtre, curseur, limit, PageVentes.Direction.SUIVANTE);
+        if (!page.isEmpty()) {
+            bornes.put(offset + page.getVentes().size(), page.getDernier());
+        }
+        return page.getVentes();
+    }
+}
@@ -1,10 +1,13 @@
 package com.poissonnerie.view;
 
 import com.poissonnerie.controller.ProduitController;
+import com.poissonnerie.controller.ApplicationContext;
+import com.poissonnerie.model.Evenements;
 import com.poissonnerie.model.Produit;
 import com.poissonnerie.model.InventaireManager;
 import com.poissonnerie.model.InventaireManager.InventaireObserver;
 import com.poissonnerie.model.InventaireManager.AjustementStock;
+import com.poissonnerie.util.EventBus;
 import com.poissonnerie.view.NotificationStockView;
 
 import javax.swing.*;
@@ -34,6 +37,7 @@ public class InventaireViewSwing {
     private final InventaireManager inventaireManager;
     private final JTable tableInventaire;
     private final DefaultTableModel tableModel;
+    private final List<EventBus.Abonnement<?>> abonnements = new ArrayList<>();
     private JLabel statusLabel;
     private JTextField searchField;
     private JComboBox<String> categoryFilter;
@@ -48,7 +52,7 @@ public class InventaireViewSwing {
 
     public InventaireViewSwing() {
         mainPanel = new JPanel(new BorderLayout(10, 10));
-        produitController = new ProduitController();
+        produitController = ApplicationContext.getInstance().getProduitController();
         inventaireManager = new InventaireManager();
         LOGGER.info("Initialisation de InventaireViewSwing");
 
@@ -77,6 +81,13 @@ public class InventaireViewSwing {
 
         initializeComponents();
         loadData();
+
+        // Nouvel instantané du catalogue (vente, ajustement, autre écran) : reconstruit sans relecture
+        abonnements.add(EventBus.getInstance().abonner(Evenements.CatalogueModifie.class, EventBus.EDT, versions -> {
+            refreshTable();
+            updateStatistiques();
+        }));
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
     }
 
     private void configureTable() {
@@ -698,6 +709,11 @@ public class InventaireViewSwing {
         }
     }
 
+    public void dispose() {
+        abonnements.forEach(EventBus.Abonnement::annuler);
+        abonnements.clear();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
@@ -0,0 +1,250 @@
+package com.poissonnerie.view;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+
+// Modèle de table virtuel : seules les pages de lignes demandées par la JTable (donc
+// autour de la zone visible) sont chargées, en arrière-plan, puis gardées dans un cache
+// LRU borné. La mémoire ne dépend plus de la taille de l'historique et un rafraîchissement
+// ne recharge que les pages en cache, signalées par fireTableRowsUpdated.
+// Tout l'état est confiné à l'EDT ; seuls count() et fetch() s'exécutent en arrière-plan.
+public class LazyTableModel<T> extends AbstractTableModel {
+    private static final Logger LOGGER = Logger.getLogger(LazyTableModel.class.getName());
+    private static final int PAGE_SIZE = Integer.getInteger("poissonnerie.table.pageSize", 100);
+    private static final int MAX_PAGES = Integer.getInteger("poissonnerie.table.maxPages", 20);
+    private static final String EN_CHARGEMENT = "Chargement...";
+
+    // Source de lignes paginée, appelée hors de l'EDT
+    public interface PagedSource<T> {
+        int count();
+        List<T> fetch(int offset, int limit);
+    }
+
+    // Valeur affichée dans une colonne pour une ligne
+    public interface ColumnMapper<T> {
+        Object getValue(T row, int column);
+    }
+
+    private final String[] columnNames;
+    private final ColumnMapper<T> mapper;
+    private final ExecutorService executor;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> pagesEnCours = new HashSet<>();
+    private PagedSource<T> source;
+    private int rowCount;
+    private int generation;
+
+    public LazyTableModel(String name, String[] columnNames, ColumnMapper<T> mapper, PagedSource<T> source) {
+        this.columnNames = columnNames.clone();
+        this.mapper = mapper;
+        this.source = source;
+        this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "table-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Change de source (nouveau filtre) et recharge la table ; à appeler depuis l'EDT
+    public void setSource(PagedSource<T> source, IntConsumer apresComptage) {
+        this.source = source;
+        generation++;
+        pagesEnCours.clear();
+        pages.clear();
+        int ancien = rowCount;
+        rowCount = 0;
+        if (ancien > 0) {
+            fireTableRowsDeleted(0, ancien - 1);
+        }
+        refresh(apresComptage);
+    }
+
+    public void refresh() {
+        refresh(null);
+    }
+
+    // Recompte les lignes et recharge uniquement les pages en cache ; l'ancien contenu
+    // reste affiché jusqu'à l'arrivée des nouvelles données. À appeler depuis l'EDT.
+    public void refresh(IntConsumer apresComptage) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        int gen = ++generation;
+        pagesEnCours.clear();
+        List<Integer> aRecharger = new ArrayList<>(pages.keySet());
+        PagedSource<T> src = source;
+        executor.submit(() -> {
+            try {
+                int count = src.count();
+                Map<Integer, List<T>> recharges = new HashMap<>();
+                for (Integer page : aRecharger) {
+                    if (page * PAGE_SIZE < count) {
+                        recharges.put(page, src.fetch(page * PAGE_SIZE, PAGE_SIZE));
+                    }
+                }
+                SwingUtilities.invokeLater(() -> appliquerRafraichissement(gen, count, aRecharger, recharges, apresComptage));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Erreur lors du rafraîchissement de la table", e);
+            }
+        });
+    }
+
+    private void appliquerRafraichissement(int gen, int count, List<Integer> anciennes,
+                                           Map<Integer, List<T>> recharges, IntConsumer apresComptage) {
+        if (gen != generation) {
+            return;
+        }
+        anciennes.forEach(pages::remove);
+        pages.keySet().removeIf(page -> page * PAGE_SIZE >= count);
+        pages.putAll(recharges);
+
+        int ancien = rowCount;
+        rowCount = count;
+        if (count > ancien) {
+            fireTableRowsInserted(ancien, count - 1);
+        } else if (count < ancien) {
+            fireTableRowsDeleted(count, ancien - 1);
+        }
+        for (Integer page : recharges.keySet()) {
+            signalerPage(page);
+        }
+        if (apresComptage != null) {
+            apresComptage.accept(count);
+        }
+    }
+
+    // Ligne déjà chargée, ou null si sa page n'est pas (encore) en cache
+    public T getRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        List<T> rows = pages.get(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        return rows != null && index < rows.size() ? rows.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            demanderPage(page);
+            return column == 0 ? EN_CHARGEMENT : null;
+        }
+
+        // Préchargement de la page voisine quand la zone visible approche d'un bord
+        int index = row % PAGE_SIZE;
+        if (index >= PAGE_SIZE * 3 / 4) {
+            demanderPage(page + 1);
+        } else if (index < PAGE_SIZE / 4) {
+            demanderPage(page - 1);
+        }
+        return index < rows.size() ? mapper.getValue(rows.get(index), column) : null;
+    }
+
+    private void demanderPage(int page) {
+        if (executor.isShutdown() || page < 0 || page * PAGE_SIZE >= rowCount
+                || pages.containsKey(page) || !pagesEnCours.add(page)) {
+            return;
+        }
+        int gen = generation;
+        PagedSource<T> src = source;
+        executor.submit(() -> {
+            try {
+                List<T> rows = src.fetch(page * PAGE_SIZE, PAGE_SIZE);
+                SwingUtilities.invokeLater(() -> pageChargee(gen, page, rows));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Erreur lors du chargement de la page " + page, e);
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation) {
+                        pagesEnCours.remove(page);
+                    }
+                });
+            }
+        });
+    }
+
+    // Arrête le thread de chargement et libère le cache ; à appeler depuis l'EDT quand
+    // l'écran est libéré. Les chargements encore en cours sont ignorés à leur arrivée.
+    public void dispose() {
+        generation++;
+        pagesEnCours.clear();
+        pages.clear();
+        executor.shutdownNow();
+    }
+
+    private void pageChargee(int gen, int page, List<T> rows) {
+        if (gen != generation) {
+            return;
+        }
+        pagesEnCours.remove(page);
+        pages.put(page, rows);
+        signalerPage(page);
+    }
+
+    private void signalerPage(int page) {
+        int first = page * PAGE_SIZE;
+        int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    // Source sur une liste déjà en mémoire (données de référence peu volumineuses)
+    public static <T> PagedSource<T> fromList(Supplier<List<T>> liste) {
+        return new PagedSource<T>() {
+            private List<T> instantane = new ArrayList<>();
+
+            @Override
+            public synchronized int count() {
+                instantane = liste.get();
+                return instantane.size();
+            }
+
+            @Override
+            public synchronized List<T> fetch(int offset, int limit) {
+                int fin = Math.min(offset + limit, instantane.size());
+                return offset < fin ? new ArrayList<>(instantane.subList(offset, fin)) : new ArrayList<>();
+            }
+        };
+    }
+}
@@ -2,8 +2,6 @@ package com.poissonnerie.view;
 
 import javax.swing.*;
 import java.awt.*;
-import com.poissonnerie.controller.*;
-import com.poissonnerie.model.*;
 import java.io.File;
 import org.kordamp.ikonli.materialdesign.MaterialDesign;
 import org.kordamp.ikonli.swing.FontIcon;
@@ -12,10 +10,7 @@ public class MainViewSwing {
     private final JPanel mainPanel;
     private final CardLayout cardLayout;
     private final JPanel contentPanel;
-    private final VenteController venteController;
-    private final ProduitController produitController;
-    private final ClientController clientController;
-    private final CaisseController caisseController;
+    private final ScreenRegistry screens;
     private JLabel titleLabel;
     private String currentTitle = "ACCUEIL";
     private final String username;
@@ -25,10 +20,7 @@ public class MainViewSwing {
         mainPanel = new JPanel(new BorderLayout());
         cardLayout = new CardLayout();
         contentPanel = new JPanel(cardLayout);
-        venteController = new VenteController();
-        produitController = new ProduitController();
-        clientController = new ClientController();
-        caisseController = new CaisseController();
+        screens = new ScreenRegistry(contentPanel, cardLayout);
 
         initializeComponents();
     }
@@ -96,10 +88,7 @@ public class MainViewSwing {
             final String cardName = text;
 
             if (i < menuItems.length - 1) {
-                navButton.addActionListener(e -> {
-                    cardLayout.show(contentPanel, cardName);
-                    updateTitle(cardName.toUpperCase());
-                });
+                navButton.addActionListener(e -> showScreen(cardName));
             } else {
                 navButton.addActionListener(e -> handleLogout());
             }
@@ -157,15 +146,29 @@ public class MainViewSwing {
     }
 
     private void addViews() {
-        contentPanel.add(new AccueilViewSwing().getMainPanel(), "Accueil");
-        contentPanel.add(new ProduitViewSwing().getMainPanel(), "Produits");
-        contentPanel.add(new VenteViewSwing().getMainPanel(), "Ventes");
-        contentPanel.add(new ClientViewSwing().getMainPanel(), "Clients");
-        contentPanel.add(new CaisseViewSwing().getMainPanel(), "Caisse");
-        contentPanel.add(new InventaireViewSwing().getMainPanel(), "Inventaire");
-        contentPanel.add(new FournisseurViewSwing().getMainPanel(), "Fournisseurs");
-        contentPanel.add(new ReportViewSwing(username).getMainPanel(), "Rapport");
-        contentPanel.add(new ConfigurationViewSwing().getMainPanel(), "Réglages");
+        // Les écrans sont construits au premier affichage : seul l'accueil l'est au login
+        screens.register("Accueil", () -> new AccueilViewSwing().getMainPanel());
+        screens.register("Produits", () -> new ProduitViewSwing().getMainPanel());
+        screens.register("Ventes", () -> new VenteViewSwing().getMainPanel());
+        screens.register("Clients", () -> new ClientViewSwing().getMainPanel());
+        screens.register("Caisse", () -> new CaisseViewSwing().getMainPanel());
+        screens.register("Inventaire", () -> new InventaireViewSwing().getMainPanel());
+        screens.register("Fournisseurs", () -> new FournisseurViewSwing().getMainPanel());
+        screens.register("Rapport", () -> new ReportViewSwing(username).getMainPanel());
+        screens.register("Réglages", () -> new ConfigurationViewSwing().getMainPanel());
+        screens.show("Accueil");
+    }
+
+    private void showScreen(String name) {
+        try {
+            screens.show(name);
+            updateTitle(name.toUpperCase());
+        } catch (RuntimeException e) {
+            JOptionPane.showMessageDialog(mainPanel,
+                "Erreur lors de l'ouverture de l'écran " + name + " : " + e.getMessage(),
+                "Erreur",
+                JOptionPane.ERROR_MESSAGE);
+        }
     }
 
     private void handleLogout() {
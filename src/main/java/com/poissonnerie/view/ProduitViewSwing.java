@@ -4,10 +4,14 @@ import com.poissonnerie.controller.ProduitController;
 import com.poissonnerie.model.Produit;
 import com.poissonnerie.model.Fournisseur;
 import com.poissonnerie.controller.FournisseurController;
+import com.poissonnerie.controller.ApplicationContext;
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.util.EventBus;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class ProduitViewSwing {
@@ -16,12 +20,14 @@ public class ProduitViewSwing {
     private final FournisseurController fournisseurController;
     private final JTable tableProduits;
     private final DefaultTableModel tableModel;
+    private final List<EventBus.Abonnement<?>> abonnements = new ArrayList<>();
     private JTextField searchField;
 
     public ProduitViewSwing() {
         mainPanel = new JPanel(new BorderLayout(10, 10));
-        controller = new ProduitController();
-        fournisseurController = new FournisseurController();
+        ApplicationContext context = ApplicationContext.getInstance();
+        controller = context.getProduitController();
+        fournisseurController = context.getFournisseurController();
 
         // Charger les fournisseurs immédiatement
         try {
@@ -47,6 +53,11 @@ public class ProduitViewSwing {
 
         initializeComponents();
         loadData();
+
+        // Nouvel instantané du catalogue (vente, ajustement, autre écran) : reconstruit sans relecture
+        abonnements.add(EventBus.getInstance().abonner(Evenements.CatalogueModifie.class, EventBus.EDT,
+            versions -> refreshTable()));
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
     }
 
     private void setupTableStyle() {
@@ -498,6 +509,11 @@ public class ProduitViewSwing {
         }
     }
 
+    public void dispose() {
+        abonnements.forEach(EventBus.Abonnement::annuler);
+        abonnements.clear();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
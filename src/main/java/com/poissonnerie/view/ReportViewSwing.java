@@ -4,30 +4,48 @@ package com.poissonnerie.view;
 import javax.swing.*;
 import java.awt.*;
 import com.poissonnerie.controller.ReportController;
-import com.poissonnerie.model.Produit;
-import java.io.ByteArrayOutputStream;
+import com.poissonnerie.controller.ApplicationContext;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableCellRenderer;
+import com.poissonnerie.controller.FileRapports;
+import com.poissonnerie.model.Evenements;
+import com.poissonnerie.model.SuiviRapport;
+import com.poissonnerie.model.TacheRapport;
+import com.poissonnerie.util.EventBus;
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 public class ReportViewSwing {
     private final JPanel mainPanel;
     private final ReportController reportController;
     private final String username;
+    private final FileRapports fileRapports;
+    private final ModeleTaches modeleTaches = new ModeleTaches();
+    private final List<EventBus.Abonnement<?>> abonnements = new ArrayList<>();
 
     public ReportViewSwing(String username) {
         this.username = username;
         this.mainPanel = new JPanel(new BorderLayout());
-        this.reportController = new ReportController();
+        this.reportController = ApplicationContext.getInstance().getReportController();
+        this.fileRapports = ApplicationContext.getInstance().getFileRapports();
         initializeComponents();
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
     }
 
     private void initializeComponents() {
-        mainPanel.add(createReportPanel(), BorderLayout.CENTER);
+        mainPanel.add(createReportPanel(), BorderLayout.NORTH);
+        mainPanel.add(createFilePanel(), BorderLayout.CENTER);
     }
 
     private JPanel createReportPanel() {
@@ -40,10 +58,12 @@ public class ReportViewSwing {
         JButton stockButton = new JButton("Rapport des Stocks");
         JButton ventesButton = new JButton("Rapport des Ventes");
         JButton fournisseursButton = new JButton("Rapport Fournisseurs");
+        JButton clotureButton = new JButton("Clôture du mois précédent");
 
         stockButton.addActionListener(e -> genererRapportStocks());
         ventesButton.addActionListener(e -> genererRapportVentes());
         fournisseursButton.addActionListener(e -> genererRapportFournisseurs());
+        clotureButton.addActionListener(e -> genererClotureMensuelle());
 
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -55,76 +75,181 @@ public class ReportViewSwing {
         gbc.gridy = 2;
         panel.add(fournisseursButton, gbc);
 
+        gbc.gridy = 3;
+        panel.add(clotureButton, gbc);
+
         return panel;
     }
 
-    private void genererRapportStocks() {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            List<Produit> produits = reportController.getProduits();
-            Map<String, Double> stats = reportController.calculerStatistiquesStocks(produits);
-            reportController.genererRapportStocksPDF(username, produits, stats, outputStream);
-            
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String fileName = "rapport_stocks_" + timestamp + ".pdf";
-            try (FileOutputStream fos = new FileOutputStream(fileName)) {
-                fos.write(outputStream.toByteArray());
+    // Panneau de suivi des rapports en arrière-plan, alimenté par les événements de la file
+    private JPanel createFilePanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createTitledBorder("Rapports en cours"));
+
+        JTable table = new JTable(modeleTaches);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setMaxWidth(50);
+        table.getColumnModel().getColumn(3).setCellRenderer(new ProgressionRenderer());
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton annulerButton = new JButton("Annuler");
+        annulerButton.addActionListener(e -> {
+            int ligne = table.getSelectedRow();
+            if (ligne >= 0) {
+                fileRapports.annuler(modeleTaches.getTache(table.convertRowIndexToModel(ligne)).getId());
             }
-            
-            JOptionPane.showMessageDialog(mainPanel, 
-                "Rapport des stocks généré avec succès : " + fileName,
-                "Succès", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(mainPanel,
-                "Erreur lors de la génération du rapport : " + e.getMessage(),
-                "Erreur", JOptionPane.ERROR_MESSAGE);
-        }
+        });
+        JPanel boutons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        boutons.add(annulerButton);
+        panel.add(boutons, BorderLayout.SOUTH);
+
+        modeleTaches.mettreAJour(fileRapports.getTaches());
+        abonnements.add(EventBus.getInstance().abonner(Evenements.TacheRapportModifiee.class, EventBus.EDT, evenements ->
+            modeleTaches.mettreAJour(evenements.stream()
+                .map(Evenements.TacheRapportModifiee::getTache)
+                .collect(Collectors.toList()))));
+        return panel;
+    }
+
+    private void genererRapportStocks() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String fileName = "rapport_stocks_" + timestamp + ".pdf";
+        soumettre("Stocks (PDF)", fileName, (outputStream, suivi) ->
+            reportController.genererRapportStocksPDF(username, outputStream));
     }
 
     private void genererRapportVentes() {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            LocalDateTime fin = LocalDateTime.now();
-            LocalDateTime debut = fin.minus(30, ChronoUnit.DAYS);
-            reportController.genererRapportVentesPDF(username, debut, fin, outputStream);
-            
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String fileName = "rapport_ventes_" + timestamp + ".pdf";
-            try (FileOutputStream fos = new FileOutputStream(fileName)) {
-                fos.write(outputStream.toByteArray());
+        // Jours entiers : le même rapport redemandé dans la journée peut venir du cache
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDateTime debut = aujourdhui.minusDays(30).atStartOfDay();
+        LocalDateTime fin = aujourdhui.atTime(LocalTime.MAX);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String fileName = "rapport_ventes_" + timestamp + ".pdf";
+        soumettre("Ventes 30 jours (PDF)", fileName, (outputStream, suivi) ->
+            reportController.genererRapportVentesPDF(username, debut, fin, outputStream, suivi));
+    }
+
+    private void genererRapportFournisseurs() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String fileName = "rapport_fournisseurs_" + timestamp + ".pdf";
+        soumettre("Fournisseurs (PDF)", fileName, (outputStream, suivi) ->
+            reportController.genererRapportFournisseursPDF(username, outputStream));
+    }
+
+    // Tous les rapports du mois précédent, générés en parallèle
+    private void genererClotureMensuelle() {
+        YearMonth mois = YearMonth.now().minusMonths(1);
+        signalerEchecs(fileRapports.soumettreLot(reportController.demandesClotureMensuelle(username, mois, ".")));
+    }
+
+    // Le rapport est écrit directement dans le fichier, en arrière-plan
+    private void soumettre(String libelle, String fileName, BiConsumer<OutputStream, SuiviRapport> generation) {
+        signalerEchecs(fileRapports.soumettre(new FileRapports.Demande(libelle, fileName, suivi -> {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(fileName))) {
+                generation.accept(outputStream, suivi);
+            }
+        })));
+    }
+
+    private void signalerEchecs(CompletableFuture<List<TacheRapport>> resultats) {
+        resultats.thenAccept(taches -> {
+            String erreurs = taches.stream()
+                .filter(tache -> tache.getEtat() == TacheRapport.Etat.ECHEC)
+                .map(tache -> tache.getLibelle() + " : " + tache.getMessage())
+                .collect(Collectors.joining("\n"));
+            if (!erreurs.isEmpty()) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(mainPanel,
+                    "Erreur lors de la génération du rapport :\n" + erreurs,
+                    "Erreur", JOptionPane.ERROR_MESSAGE));
+            }
+        });
+    }
+
+    private static class ModeleTaches extends AbstractTableModel {
+        private static final String[] COLONNES = {"N°", "Rapport", "État", "Avancement", "Fichier / message"};
+        private final List<TacheRapport> taches = new ArrayList<>();
+
+        // Remplace ou ajoute chaque tâche ; l'ordre d'arrivée des événements est conservé
+        void mettreAJour(List<TacheRapport> modifiees) {
+            for (TacheRapport tache : modifiees) {
+                int index = indexDe(tache.getId());
+                if (index >= 0) {
+                    taches.set(index, tache);
+                    fireTableRowsUpdated(index, index);
+                } else {
+                    taches.add(tache);
+                    fireTableRowsInserted(taches.size() - 1, taches.size() - 1);
+                }
+            }
+        }
+
+        TacheRapport getTache(int ligne) {
+            return taches.get(ligne);
+        }
+
+        private int indexDe(long id) {
+            for (int i = taches.size() - 1; i >= 0; i--) {
+                if (taches.get(i).getId() == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int getRowCount() {
+            return taches.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLONNES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLONNES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            TacheRapport tache = taches.get(row);
+            switch (column) {
+                case 0: return tache.getId();
+                case 1: return tache.getLibelle();
+                case 2: return tache.getEtat().getLibelle();
+                case 3: return tache;
+                default: return tache.getMessage() != null ? tache.getMessage() : "";
             }
-            
-            JOptionPane.showMessageDialog(mainPanel,
-                "Rapport des ventes généré avec succès : " + fileName,
-                "Succès", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(mainPanel,
-                "Erreur lors de la génération du rapport : " + e.getMessage(),
-                "Erreur", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    private void genererRapportFournisseurs() {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            reportController.genererRapportFournisseursPDF(username, outputStream);
-            
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String fileName = "rapport_fournisseurs_" + timestamp + ".pdf";
-            try (FileOutputStream fos = new FileOutputStream(fileName)) {
-                fos.write(outputStream.toByteArray());
+    private static class ProgressionRenderer extends JProgressBar implements TableCellRenderer {
+        ProgressionRenderer() {
+            super(0, 100);
+            setStringPainted(true);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            TacheRapport tache = (TacheRapport) value;
+            int progression = tache.getProgression();
+            setValue(Math.max(progression, 0));
+            if (progression >= 0) {
+                setString(progression + " %");
+            } else {
+                setString(tache.getLignesTraitees() > 0 ? tache.getLignesTraitees() + " lignes" : "");
             }
-            
-            JOptionPane.showMessageDialog(mainPanel,
-                "Rapport des fournisseurs généré avec succès : " + fileName,
-                "Succès", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(mainPanel,
-                "Erreur lors de la génération du rapport : " + e.getMessage(),
-                "Erreur", JOptionPane.ERROR_MESSAGE);
+            return this;
         }
     }
 
+    public void dispose() {
+        abonnements.forEach(EventBus.Abonnement::annuler);
+        abonnements.clear();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
@@ -0,0 +1,75 @@
+package com.poissonnerie.view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.logging.Level;
+
+// Registre des écrans du CardLayout : chaque écran est déclaré par une fabrique et
+// n'est construit (et ne charge ses données) qu'à son premier affichage.
+public class ScreenRegistry {
+    private static final Logger LOGGER = Logger.getLogger(ScreenRegistry.class.getName());
+
+    private final JPanel contentPanel;
+    private final CardLayout cardLayout;
+    private final Map<String, Supplier<JPanel>> factories = new LinkedHashMap<>();
+    private final Set<String> builtScreens = new HashSet<>();
+
+    public ScreenRegistry(JPanel contentPanel, CardLayout cardLayout) {
+        this.contentPanel = contentPanel;
+        this.cardLayout = cardLayout;
+    }
+
+    public void register(String name, Supplier<JPanel> factory) {
+        factories.put(name, factory);
+    }
+
+    public boolean isBuilt(String name) {
+        return builtScreens.contains(name);
+    }
+
+    // Libère un écran (abonnements au bus...) quand son panneau cesse d'être affichable :
+    // fermeture de la fenêtre ou retrait du panneau. Un écran masqué par le CardLayout
+    // reste affichable et garde ses abonnements.
+    public static void onDispose(JComponent panel, Runnable dispose) {
+        panel.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !panel.isDisplayable()) {
+                dispose.run();
+            }
+        });
+    }
+
+    // À appeler depuis l'EDT
+    public void show(String name) {
+        if (!builtScreens.contains(name)) {
+            Supplier<JPanel> factory = factories.get(name);
+            if (factory == null) {
+                throw new IllegalArgumentException("Écran inconnu: " + name);
+            }
+            build(name, factory);
+        }
+        cardLayout.show(contentPanel, name);
+    }
+
+    private void build(String name, Supplier<JPanel> factory) {
+        Cursor previousCursor = contentPanel.getCursor();
+        contentPanel.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        long debut = System.currentTimeMillis();
+        try {
+            contentPanel.add(factory.get(), name);
+            builtScreens.add(name);
+            LOGGER.info(String.format("Écran %s construit en %d ms", name, System.currentTimeMillis() - debut));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la construction de l'écran " + name, e);
+            throw e;
+        } finally {
+            contentPanel.setCursor(previousCursor);
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.poissonnerie.view;
 import com.poissonnerie.controller.VenteController;
 import com.poissonnerie.controller.ProduitController;
 import com.poissonnerie.controller.ClientController;
+import com.poissonnerie.controller.ApplicationContext;
+import com.poissonnerie.controller.SpoolerImpression;
 import com.poissonnerie.model.*;
+import com.poissonnerie.util.EventBus;
 import com.poissonnerie.util.PDFGenerator;
 import com.poissonnerie.util.TextBillPrinter;
 
@@ -14,6 +17,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -31,15 +35,19 @@ public class VenteViewSwing {
     private final VenteController venteController;
     private final ProduitController produitController;
     private final ClientController clientController;
+    private final SpoolerImpression spooler;
     private final JTable tableVentes;
     private final JTable tablePanier;
     private final DefaultTableModel panierModel;
-    private final DefaultTableModel ventesModel;
+    private final LazyTableModel<Vente> ventesModel;
     private final List<Vente.LigneVente> panier;
+    private final List<EventBus.Abonnement<?>> abonnements = new ArrayList<>();
     private JComboBox<Object> clientCombo;
     private JComboBox<Object> produitCombo;
     private JCheckBox creditCheck;
     private JLabel totalLabel;
+    private JLabel imprimanteLabel;
+    private JButton relancerImpressionBtn;
     private static final int MAX_QUANTITE = 9999;
     private static final double MAX_PRIX_UNITAIRE = 99999.99;
     private volatile boolean isProcessingOperation = false;
@@ -50,9 +58,11 @@ public class VenteViewSwing {
 
     public VenteViewSwing() {
         mainPanel = new JPanel(new BorderLayout(10, 10));
-        venteController = new VenteController();
-        produitController = new ProduitController();
-        clientController = new ClientController();
+        ApplicationContext context = ApplicationContext.getInstance();
+        venteController = context.getVenteController();
+        produitController = context.getProduitController();
+        clientController = context.getClientController();
+        spooler = context.getSpoolerImpression();
         panier = Collections.synchronizedList(new ArrayList<>());
         previewText = new StringBuilder();
         previewDialog = new JDialog((Frame) null, "Aperçu de la vente", true);
@@ -68,16 +78,48 @@ public class VenteViewSwing {
         tablePanier = new JTable(panierModel);
 
         String[] ventesColumns = {"Date", "Client", "Type", "Total"};
-        ventesModel = new DefaultTableModel(ventesColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        ventesModel = new LazyTableModel<>("ventes", ventesColumns, this::valeurColonneVente,
+                new HistoriqueVentesSource(venteController, PageVentes.Filtre.aucun()));
         tableVentes = new JTable(ventesModel);
 
         initializeComponents();
         loadData();
+
+        // Une rafale d'événements ne provoque qu'une mise à jour de chaque élément
+        EventBus bus = EventBus.getInstance();
+        abonnements.add(bus.abonner(Evenements.VenteEnregistree.class, EventBus.EDT, ventes -> refreshVentesTable()));
+        abonnements.add(bus.abonner(Evenements.CatalogueModifie.class, EventBus.EDT, versions -> refreshComboBoxes()));
+        abonnements.add(bus.abonner(Evenements.ClientModifie.class, EventBus.EDT, clients -> refreshComboBoxes()));
+        abonnements.add(bus.abonner(Evenements.TravailImpressionModifie.class, EventBus.EDT, this::afficherEtatImpression));
+        ScreenRegistry.onDispose(mainPanel, this::dispose);
+    }
+
+    // Seul le dernier état de l'imprimante du comptoir est affiché
+    private void afficherEtatImpression(List<Evenements.TravailImpressionModifie> evenements) {
+        TravailImpression dernier = null;
+        for (Evenements.TravailImpressionModifie evenement : evenements) {
+            if (SpoolerImpression.CAISSE.equals(evenement.getTravail().getImprimante())) {
+                dernier = evenement.getTravail();
+            }
+        }
+        if (dernier == null) {
+            return;
+        }
+        switch (dernier.getEtat()) {
+            case HORS_LIGNE:
+                imprimanteLabel.setText(String.format("Imprimante hors ligne (tentative %d)", dernier.getTentatives()));
+                imprimanteLabel.setForeground(new Color(255, 152, 0));
+                break;
+            case ECHEC:
+                imprimanteLabel.setText("Ticket non imprimé : " + dernier.getMessage());
+                imprimanteLabel.setForeground(new Color(244, 67, 54));
+                break;
+            default:
+                imprimanteLabel.setText("Imprimante : " + dernier.getEtat().getLibelle().toLowerCase());
+                imprimanteLabel.setForeground(new Color(76, 175, 80));
+                break;
+        }
+        relancerImpressionBtn.setVisible(dernier.getEtat() == TravailImpression.Etat.ECHEC);
     }
 
     private void loadData() {
@@ -95,9 +137,6 @@ public class VenteViewSwing {
                 clientController.chargerClients();
                 LOGGER.info("Clients chargés");
 
-                venteController.chargerVentes();
-                LOGGER.info("Ventes chargées: " + venteController.getVentes().size() + " ventes");
-
                 refreshComboBoxes();
                 refreshVentesTable();
 
@@ -296,9 +335,6 @@ public class VenteViewSwing {
                     );
                     vente.setLignes(new ArrayList<>(panier));
 
-                    // Utiliser uniquement TextBillPrinter pour la prévisualisation
-                    TextBillPrinter printer = new TextBillPrinter(vente);
-                    printer.imprimer();
                     previewText.setLength(0); // Clear previous content
                     previewText.append("MA POISSONNERIE\n\n");
                     previewText.append("Date: ").append(DATE_FORMATTER.format(vente.getDate())).append("\n");
@@ -330,12 +366,15 @@ public class VenteViewSwing {
 
                     confirmerBtn.addActionListener(confirmEvent -> {
                         try {
-                            venteController.enregistrerVente(vente);
-                            printer.imprimer(); // Réutilisation de l'instance existante
+                            // Avec une imprimante de tickets, l'impression part en file
+                            // et la caisse est libre dès la validation de la vente
+                            boolean fileImpression = spooler.estConfiguree(SpoolerImpression.CAISSE);
+                            venteController.enregistrerVente(vente, fileImpression);
                             previewDialog.dispose();
                             resetForm();
-                            refreshComboBoxes();
-                            refreshVentesTable();
+                            if (!fileImpression) {
+                                new TextBillPrinter(vente).imprimer();
+                            }
 
                             LOGGER.info(String.format("Vente enregistrée avec succès: ID=%d, Total=%.2f€",
                                     vente.getId(), vente.getTotal()));
@@ -400,25 +439,27 @@ public class VenteViewSwing {
         });
     }
 
+    // L'historique est paginé : seules les pages en cache sont rechargées
     private synchronized void refreshVentesTable() {
-        SwingUtilities.invokeLater(() -> {
-            ventesModel.setRowCount(0);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-
-            List<Vente> ventesTriees = new ArrayList<>(venteController.getVentes());
-            ventesTriees.sort((v1, v2) -> v2.getDate().compareTo(v1.getDate()));
-
-            for (Vente vente : ventesTriees) {
-                ventesModel.addRow(new Object[]{
-                        vente.getDate().format(formatter),
-                        vente.getClient() != null ? sanitizeInput(vente.getClient().getNom()) : "Vente comptant",
-                        vente.isCredit() ? "Crédit" : "Comptant",
-                        String.format("%.2f €", vente.getTotal())
-                });
-            }
+        SwingUtilities.invokeLater(ventesModel::refresh);
+    }
 
-            LOGGER.info("Table des ventes mise à jour avec " + ventesTriees.size() + " ventes");
-        });
+    private void afficherVentes(PageVentes.Filtre filtre, IntConsumer apresComptage) {
+        SwingUtilities.invokeLater(() ->
+                ventesModel.setSource(new HistoriqueVentesSource(venteController, filtre), apresComptage));
+    }
+
+    private Object valeurColonneVente(Vente vente, int colonne) {
+        switch (colonne) {
+            case 0:
+                return vente.getDate().format(DATE_FORMATTER);
+            case 1:
+                return vente.getClient() != null ? sanitizeInput(vente.getClient().getNom()) : "Vente comptant";
+            case 2:
+                return vente.isCredit() ? "Crédit" : "Comptant";
+            default:
+                return String.format("%.2f €", vente.getTotal());
+        }
     }
 
     private synchronized double calculateTotal() {
@@ -537,6 +578,12 @@ public class VenteViewSwing {
         });
     }
 
+    public void dispose() {
+        abonnements.forEach(EventBus.Abonnement::annuler);
+        abonnements.clear();
+        ventesModel.dispose();
+    }
+
     public JPanel getMainPanel() {
         return mainPanel;
     }
@@ -668,6 +715,26 @@ public class VenteViewSwing {
         JButton validerBtn = createStyledButton("Valider la vente", MaterialDesign.MDI_CHECK_CIRCLE, new Color(76, 175, 80));
         JButton annulerBtn = createStyledButton("Annuler", MaterialDesign.MDI_CLOSE_CIRCLE, new Color(244, 67, 54));
 
+        imprimanteLabel = new JLabel();
+        imprimanteLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        imprimanteLabel.setVisible(spooler.estConfiguree(SpoolerImpression.CAISSE));
+        relancerImpressionBtn = createStyledButton("Relancer l'impression", MaterialDesign.MDI_PRINTER, new Color(255, 152, 0));
+        relancerImpressionBtn.setVisible(false);
+        relancerImpressionBtn.addActionListener(e -> {
+            try {
+                spooler.relancerEchecs(SpoolerImpression.CAISSE);
+                relancerImpressionBtn.setVisible(false);
+            } catch (Exception ex) {
+                LOGGER.log(Level.SEVERE, "Erreur lors de la relance de l'impression", ex);
+                JOptionPane.showMessageDialog(mainPanel,
+                        "Erreur lors de la relance de l'impression : " + ex.getMessage(),
+                        "Erreur",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
+        footerPanel.add(imprimanteLabel);
+        footerPanel.add(relancerImpressionBtn);
         footerPanel.add(totalLabel);
         footerPanel.add(validerBtn);
         footerPanel.add(annulerBtn);
@@ -782,7 +849,7 @@ public class VenteViewSwing {
         resetButton.addActionListener(e -> {
             dateDebut.setDate(new Date());
             dateFin.setDate(new Date());
-            refreshVentesTable(); // Reset to show all sales
+            afficherVentes(PageVentes.Filtre.aucun(), null); // Reset to show all sales
         });
 
         panel.add(titlePanel, BorderLayout.NORTH);
@@ -808,7 +875,7 @@ public class VenteViewSwing {
         LocalDateTime dateFinLD = dateFin.getDate().toInstant()
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime()
-                .withHour(23).withMinute(59).withSecond(59);
+                .withHour(23).withMinute(59).withSecond(59).withNano(999_999_999);
 
         if (dateDebutLD.isAfter(dateFinLD)) {
             JOptionPane.showMessageDialog(mainPanel,
@@ -818,25 +885,10 @@ public class VenteViewSwing {
             return;
         }
 
-        SwingUtilities.invokeLater(() -> {
-            ventesModel.setRowCount(0);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-
-            List<Vente> ventesTriees = venteController.getVentes().stream()
-                    .filter(vente -> !vente.getDate().isBefore(dateDebutLD) && !vente.getDate().isAfter(dateFinLD))
-                    .sorted((v1, v2) -> v2.getDate().compareTo(v1.getDate()))
-                    .collect(Collectors.toList());
-
-            for (Vente vente : ventesTriees) {
-                ventesModel.addRow(new Object[]{
-                        vente.getDate().format(formatter),
-                        vente.getClient() != null ? sanitizeInput(vente.getClient().getNom()) : "Vente comptant",
-                        vente.isCredit() ? "Crédit" : "Comptant",
-                        String.format("%.2f €", vente.getTotal())
-                });
-            }
-
-            if (ventesTriees.isEmpty()) {
+        long debut = dateDebutLD.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long fin = dateFinLD.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        afficherVentes(PageVentes.Filtre.periode(debut, fin), count -> {
+            if (count == 0) {
                 JOptionPane.showMessageDialog(mainPanel,
                         "Aucune vente trouvée pour cette période",
                         "Information",
@@ -855,11 +907,9 @@ public class VenteViewSwing {
         }
 
         try {
-            // Mettre à jour le solde du client
-            double ancienSolde = client.getSolde();
-            double nouveauSolde = ancienSolde - montantRegle;
-            client.setSolde(nouveauSolde);
-            clientController.mettreAJourClient(client);
+            // Règlement enregistré avec son mouvement de caisse, qui sert de clé au reçu
+            int mouvementId = clientController.reglerCreance(client, montantRegle);
+            double nouveauSolde = client.getSolde();
 
             // Générer et imprimer le reçu
             TextBillPrinter printer = new TextBillPrinter(
@@ -868,7 +918,9 @@ public class VenteViewSwing {
                     montantRegle,
                     nouveauSolde
             );
-            printer.imprimer();
+            if (!spooler.imprimer("reglement:" + mouvementId, printer)) {
+                printer.imprimer();
+            }
 
             // Rafraîchir l'affichage
             refreshComboBoxes();
@@ -1,18 +1,8 @@
--- Tables principales dans l'ordre de dépendance
-
--- Tables principales dans l'ordre de dépendance
-DROP TABLE IF EXISTS reglements_clients;
-DROP TABLE IF EXISTS mouvements_caisse;
-DROP TABLE IF EXISTS user_actions;
-DROP TABLE IF EXISTS ventes;
-DROP TABLE IF EXISTS lignes_vente;
-DROP TABLE IF EXISTS produits;
-DROP TABLE IF EXISTS fournisseurs;
-DROP TABLE IF EXISTS users;
-DROP TABLE IF EXISTS configurations;
+-- Migration 001 : schéma initial (anciennement schema.sql)
+-- Les CREATE ... IF NOT EXISTS permettent d'adopter une base créée avant les migrations
 
 -- Création des tables
-CREATE TABLE users (
+CREATE TABLE IF NOT EXISTS users (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     username TEXT NOT NULL UNIQUE,
     password TEXT NOT NULL,
@@ -83,7 +73,7 @@ CREATE TABLE IF NOT EXISTS clients (
     CONSTRAINT solde_valide CHECK (solde IS NULL OR TYPEOF(solde) = 'real' OR TYPEOF(solde) = 'integer')
 );
 
-CREATE TABLE mouvements_caisse (
+CREATE TABLE IF NOT EXISTS mouvements_caisse (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     date TEXT DEFAULT (datetime('now', 'localtime')),
     type TEXT NOT NULL CHECK (type IN ('ENTREE', 'SORTIE', 'OUVERTURE', 'CLOTURE')),
@@ -94,7 +84,7 @@ CREATE TABLE mouvements_caisse (
     CONSTRAINT description_min_length CHECK (description IS NULL OR length(trim(description)) >= 3)
 );
 
-CREATE TABLE user_actions (
+CREATE TABLE IF NOT EXISTS user_actions (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     action_type TEXT NOT NULL,
     username TEXT NOT NULL,
@@ -107,7 +97,7 @@ CREATE TABLE user_actions (
     CONSTRAINT description_min_length CHECK (length(trim(description)) >= 3)
 );
 
-CREATE TABLE ventes (
+CREATE TABLE IF NOT EXISTS ventes (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     date INTEGER NOT NULL DEFAULT (strftime('%s','now') * 1000),
     client_id INTEGER,
@@ -119,7 +109,7 @@ CREATE TABLE ventes (
     CONSTRAINT credit_positif CHECK (credit >= 0)
 );
 
-CREATE TABLE lignes_vente (
+CREATE TABLE IF NOT EXISTS lignes_vente (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     vente_id INTEGER,
     produit_id INTEGER,
@@ -174,5 +164,3 @@ INSERT OR IGNORE INTO configurations (cle, valeur, description) VALUES
 ('TVA_ENABLED', 'true', 'Activation/désactivation de la TVA'),
 ('TAUX_TVA', '20.0', 'Taux de TVA en pourcentage');
 
--- Réactivation des foreign keys après la migration
-PRAGMA foreign_keys = ON;
\ No newline at end of file
@@ -0,0 +1,4 @@
+-- Migration 003 : index des ventes (anciennement VenteController.initializeDatabase)
+
+CREATE INDEX IF NOT EXISTS idx_ventes_client_date ON ventes(client_id, date DESC);
+CREATE INDEX IF NOT EXISTS idx_lignes_vente_produit_date ON lignes_vente(produit_id, vente_id);
@@ -0,0 +1,26 @@
+-- Migration 004 : tables utilisées par InventaireManager et AuditLogger mais jamais créées
+
+CREATE TABLE IF NOT EXISTS historique_stock (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    produit_id INTEGER NOT NULL,
+    date INTEGER NOT NULL DEFAULT (strftime('%s','now') * 1000),
+    ancien_stock INTEGER NOT NULL,
+    nouveau_stock INTEGER NOT NULL,
+    type_mouvement TEXT NOT NULL,
+    commentaire TEXT,
+    FOREIGN KEY (produit_id) REFERENCES produits(id)
+);
+
+CREATE TABLE IF NOT EXISTS journal_actions (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    utilisateur_id INTEGER NOT NULL,
+    type_action TEXT NOT NULL,
+    entite TEXT,
+    description TEXT,
+    details TEXT,
+    date_action TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (utilisateur_id) REFERENCES users(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_historique_stock_produit ON historique_stock(produit_id, date);
+CREATE INDEX IF NOT EXISTS idx_journal_actions_date ON journal_actions(date_action);
@@ -0,0 +1,6 @@
+-- Migration 005 : index partiels pour la pagination par curseur (date, id) des ventes
+-- et le comptage des ventes actives sans parcourir la table
+
+CREATE INDEX IF NOT EXISTS idx_ventes_actives_date ON ventes(date, id) WHERE supprime = false;
+CREATE INDEX IF NOT EXISTS idx_ventes_actives_client ON ventes(client_id, date, id) WHERE supprime = false;
+CREATE INDEX IF NOT EXISTS idx_ventes_actives_credit ON ventes(credit, date, id) WHERE supprime = false;
@@ -0,0 +1,21 @@
+-- Migration 006 : numéro de révision des produits pour le rafraîchissement incrémental
+-- du catalogue. Chaque insertion ou modification reçoit MAX(revision) + 1 : contrairement
+-- à un horodatage, la valeur est strictement croissante (un seul écrivain à la fois).
+
+ALTER TABLE produits ADD COLUMN revision INTEGER NOT NULL DEFAULT 0;
+UPDATE produits SET revision = id;
+CREATE INDEX IF NOT EXISTS idx_produits_revision ON produits(revision);
+
+CREATE TRIGGER IF NOT EXISTS trg_produits_revision_insert
+AFTER INSERT ON produits
+BEGIN
+    UPDATE produits SET revision = (SELECT COALESCE(MAX(revision), 0) + 1 FROM produits)
+    WHERE id = NEW.id;
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_produits_revision_update
+AFTER UPDATE OF nom, categorie, prix_achat, prix_vente, stock, seuil_alerte, fournisseur_id, supprime ON produits
+BEGIN
+    UPDATE produits SET revision = (SELECT COALESCE(MAX(revision), 0) + 1 FROM produits)
+    WHERE id = NEW.id;
+END;
@@ -0,0 +1,45 @@
+-- Migration 007 : agrégats des ventes pour les rapports. Une ligne par jour, produit et
+-- mode de paiement, tenue à jour dans la transaction de chaque vente (AgregatsVentes),
+-- et les totaux par jour et mode de paiement pour les nombres de ventes et paniers.
+-- Le jour est la date locale 'YYYY-MM-DD' de la vente ; le coût est calculé au prix
+-- d'achat du produit au moment de la vente. La table ventes ne conserve pas le mode de
+-- paiement : les ventes existantes sont reprises en CREDIT ou ESPECES.
+
+CREATE TABLE IF NOT EXISTS ventes_agregats (
+    jour TEXT NOT NULL,
+    produit_id INTEGER NOT NULL,
+    mode_paiement TEXT NOT NULL,
+    quantite INTEGER NOT NULL DEFAULT 0,
+    chiffre_affaires REAL NOT NULL DEFAULT 0,
+    cout REAL NOT NULL DEFAULT 0,
+    nombre_ventes INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (jour, produit_id, mode_paiement)
+) WITHOUT ROWID;
+
+CREATE TABLE IF NOT EXISTS ventes_agregats_totaux (
+    jour TEXT NOT NULL,
+    mode_paiement TEXT NOT NULL,
+    nombre_ventes INTEGER NOT NULL DEFAULT 0,
+    total REAL NOT NULL DEFAULT 0,
+    PRIMARY KEY (jour, mode_paiement)
+) WITHOUT ROWID;
+
+CREATE INDEX IF NOT EXISTS idx_ventes_agregats_produit ON ventes_agregats(produit_id, jour);
+
+INSERT INTO ventes_agregats (jour, produit_id, mode_paiement, quantite, chiffre_affaires, cout, nombre_ventes)
+SELECT date(v.date / 1000, 'unixepoch', 'localtime'), l.produit_id,
+       CASE WHEN v.credit THEN 'CREDIT' ELSE 'ESPECES' END,
+       SUM(l.quantite), SUM(l.quantite * l.prix_unitaire), SUM(l.quantite * COALESCE(p.prix_achat, 0)),
+       COUNT(DISTINCT v.id)
+FROM ventes v
+JOIN lignes_vente l ON l.vente_id = v.id
+LEFT JOIN produits p ON p.id = l.produit_id
+WHERE v.supprime = false
+GROUP BY 1, 2, 3;
+
+INSERT INTO ventes_agregats_totaux (jour, mode_paiement, nombre_ventes, total)
+SELECT date(date / 1000, 'unixepoch', 'localtime'), CASE WHEN credit THEN 'CREDIT' ELSE 'ESPECES' END,
+       COUNT(*), SUM(total)
+FROM ventes
+WHERE supprime = false
+GROUP BY 1, 2;
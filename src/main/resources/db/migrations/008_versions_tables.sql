@@ -0,0 +1,125 @@
+-- Migration 008 : compteur de modifications par table, incrémenté par des triggers à
+-- chaque insertion, modification ou suppression. Les rapports mis en cache (CacheRapports)
+-- sont indexés par les compteurs des tables qu'ils lisent : toute écriture dans l'une
+-- d'elles, quelle que soit son origine, rend le rapport en cache obsolète.
+
+CREATE TABLE IF NOT EXISTS versions_tables (
+    nom_table TEXT PRIMARY KEY,
+    version INTEGER NOT NULL DEFAULT 0
+) WITHOUT ROWID;
+
+INSERT OR IGNORE INTO versions_tables (nom_table) VALUES
+    ('ventes'),
+    ('lignes_vente'),
+    ('produits'),
+    ('clients'),
+    ('fournisseurs'),
+    ('mouvements_caisse');
+
+CREATE TRIGGER IF NOT EXISTS trg_version_ventes_insert
+AFTER INSERT ON ventes
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'ventes';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_ventes_update
+AFTER UPDATE ON ventes
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'ventes';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_ventes_delete
+AFTER DELETE ON ventes
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'ventes';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_lignes_vente_insert
+AFTER INSERT ON lignes_vente
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'lignes_vente';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_lignes_vente_update
+AFTER UPDATE ON lignes_vente
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'lignes_vente';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_lignes_vente_delete
+AFTER DELETE ON lignes_vente
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'lignes_vente';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_produits_insert
+AFTER INSERT ON produits
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'produits';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_produits_update
+AFTER UPDATE ON produits
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'produits';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_produits_delete
+AFTER DELETE ON produits
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'produits';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_clients_insert
+AFTER INSERT ON clients
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'clients';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_clients_update
+AFTER UPDATE ON clients
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'clients';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_clients_delete
+AFTER DELETE ON clients
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'clients';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_fournisseurs_insert
+AFTER INSERT ON fournisseurs
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'fournisseurs';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_fournisseurs_update
+AFTER UPDATE ON fournisseurs
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'fournisseurs';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_fournisseurs_delete
+AFTER DELETE ON fournisseurs
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'fournisseurs';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_mouvements_caisse_insert
+AFTER INSERT ON mouvements_caisse
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'mouvements_caisse';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_mouvements_caisse_update
+AFTER UPDATE ON mouvements_caisse
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'mouvements_caisse';
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_version_mouvements_caisse_delete
+AFTER DELETE ON mouvements_caisse
+BEGIN
+    UPDATE versions_tables SET version = version + 1 WHERE nom_table = 'mouvements_caisse';
+END;
@@ -0,0 +1,19 @@
+-- Migration 009 : file d'impression persistante (SpoolerImpression). Chaque ticket y est
+-- inscrit, avec ses octets ESC/POS, dans la transaction qui l'a produit : un ticket non
+-- encore imprimé survit à un arrêt de l'application et repart au démarrage suivant.
+-- La clé identifie le document (vente:42, par exemple) pour ignorer les réimpressions.
+
+CREATE TABLE IF NOT EXISTS travaux_impression (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    imprimante TEXT NOT NULL,
+    cle TEXT NOT NULL,
+    donnees BLOB NOT NULL,
+    etat TEXT NOT NULL DEFAULT 'EN_ATTENTE',
+    tentatives INTEGER NOT NULL DEFAULT 0,
+    message TEXT,
+    date_creation INTEGER NOT NULL DEFAULT (strftime('%s','now') * 1000),
+    date_impression INTEGER
+);
+
+CREATE INDEX IF NOT EXISTS idx_travaux_impression_file ON travaux_impression(imprimante, etat, id);
+CREATE INDEX IF NOT EXISTS idx_travaux_impression_cle ON travaux_impression(imprimante, cle);
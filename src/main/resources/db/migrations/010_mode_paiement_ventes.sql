@@ -0,0 +1,5 @@
+-- Migration 010 : mode de paiement de chaque vente. Jusqu'ici seul le drapeau credit était
+-- conservé, si bien qu'une reconstruction des agrégats classait les ventes par carte en
+-- espèces. Les ventes antérieures gardent NULL et restent déduites de credit.
+
+ALTER TABLE ventes ADD COLUMN mode_paiement TEXT;